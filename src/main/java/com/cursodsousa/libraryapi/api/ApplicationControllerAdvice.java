@@ -1,5 +1,8 @@
 package com.cursodsousa.libraryapi.api;
 
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -10,22 +13,31 @@ import org.springframework.web.server.ResponseStatusException;
 
 import com.cursodsousa.libraryapi.api.exceptions.ApiErrors;
 import com.cursodsousa.libraryapi.exception.BusinessException;
+import com.cursodsousa.libraryapi.metrics.LibraryWebMvcTagsProvider;
 
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
-	public ApiErrors handleValidationExceptions(MethodArgumentNotValidException ex) {
+	public ApiErrors handleValidationExceptions(MethodArgumentNotValidException ex, HttpServletRequest request) {
+		LibraryWebMvcTagsProvider.markResult(request, LibraryWebMvcTagsProvider.VALIDATION_ERROR);
 		return new ApiErrors(ex.getBindingResult());
 	}
 	
 	@ExceptionHandler(BusinessException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
-	public ApiErrors handleValidationExceptions(BusinessException ex) {
+	public ApiErrors handleValidationExceptions(BusinessException ex, HttpServletRequest request) {
+		LibraryWebMvcTagsProvider.markResult(request, LibraryWebMvcTagsProvider.BUSINESS_ERROR);
 		return new ApiErrors(ex);
 	}
 	
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public ApiErrors handleOptimisticLockingFailureException(OptimisticLockingFailureException ex, HttpServletRequest request) {
+		LibraryWebMvcTagsProvider.markResult(request, LibraryWebMvcTagsProvider.CONFLICT);
+		return new ApiErrors("O recurso foi alterado por outra requisição.");
+	}
 	
 	@ExceptionHandler(ResponseStatusException.class)
 	public ResponseEntity handleResponseStatusException(ResponseStatusException ex) {
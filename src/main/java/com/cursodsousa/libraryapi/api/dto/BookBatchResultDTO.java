@@ -0,0 +1,20 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResultDTO {
+
+	private List<BookDTO> books;
+	private List<Long> missingIds;
+	private List<String> missingIsbns;
+	
+}
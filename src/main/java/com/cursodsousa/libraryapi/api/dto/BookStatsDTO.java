@@ -0,0 +1,18 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStatsDTO {
+
+	private Long bookId;
+	private Long loans;
+	private Long returns;
+	
+}
@@ -0,0 +1,25 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class ChangeEventDTO {
+
+	private long id;
+	private String type;
+	private Long bookId;
+	private Long loanId;
+	private Boolean returned;
+	private BookDTO book;
+	
+}
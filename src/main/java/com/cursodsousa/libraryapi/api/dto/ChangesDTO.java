@@ -0,0 +1,21 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangesDTO<T> {
+
+	private List<T> items;
+	private List<Long> deleted;
+	private String next;
+	private boolean hasMore;
+	
+}
@@ -0,0 +1,20 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyLoanStatsDTO {
+
+	private LocalDate day;
+	private Long loans;
+	private Long returns;
+	
+}
@@ -0,0 +1,19 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnsDTO {
+
+	private List<Long> ids;
+	private List<String> isbns;
+	
+}
@@ -0,0 +1,25 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class LoanSummaryDTO {
+
+	private Long id;
+	private String customer;
+	private String email;
+	private String isbn;
+	private Boolean returned;
+	private BookDTO book;
+	
+}
@@ -0,0 +1,28 @@
+package com.cursodsousa.libraryapi.api.dto;
+
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(Include.NON_NULL)
+public class PageEnvelopeDTO<T> {
+
+	private List<T> items;
+	private int page;
+	private int size;
+	private long total;
+	private Integer nextPage;
+	private Map<String, BookDTO> books;
+	
+}
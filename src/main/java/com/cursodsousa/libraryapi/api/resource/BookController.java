@@ -1,14 +1,21 @@
 package com.cursodsousa.libraryapi.api.resource;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.validation.Valid;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,16 +23,28 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.cursodsousa.libraryapi.api.dto.BookAvailabilityDTO;
+import com.cursodsousa.libraryapi.api.dto.BookBatchDTO;
+import com.cursodsousa.libraryapi.api.dto.BookBatchResultDTO;
 import com.cursodsousa.libraryapi.api.dto.BookDTO;
+import com.cursodsousa.libraryapi.api.dto.ChangesDTO;
 import com.cursodsousa.libraryapi.api.dto.LoanDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanSummaryDTO;
+import com.cursodsousa.libraryapi.api.dto.PageEnvelopeDTO;
 import com.cursodsousa.libraryapi.model.entity.Book;
 import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.service.BookAvailabilityService;
 import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.BookSuggestService;
+import com.cursodsousa.libraryapi.service.ChangeSet;
 import com.cursodsousa.libraryapi.service.LoanService;
 
 import io.swagger.annotations.Api;
@@ -45,6 +64,20 @@ public class BookController {
 	private final BookService service;
 	private final ModelMapper mapper;
 	private final LoanService loanService;
+	private final BookSuggestService suggestService;
+	private final BookAvailabilityService availabilityService;
+	
+	@Value("${application.books.batch.max-size:100}")
+	private int batchMaxSize;
+	
+	@Value("${application.sync.max-chunk-size:5000}")
+	private int syncMaxChunkSize;
+	
+	@Value("${application.suggest.max-limit:20}")
+	private int suggestMaxLimit;
+	
+	@Value("${application.availability.max-ids:1000}")
+	private int availabilityMaxIds;
 	
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
@@ -58,8 +91,12 @@ public class BookController {
 	
 	@GetMapping("/{id}")
 	@ApiOperation("Obtains a book details by id")
-	public BookDTO get(@PathVariable Long id) {
+	public BookDTO get(@PathVariable Long id, WebRequest request) {
 		log.info("obtaining details for book id: {}", id);
+		Long version = service.getVersion(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		if(ETags.checkNotModified(request, version)) {
+			return null;
+		}
 		return service.getById(id)
 				.map(book -> mapper.map(book, BookDTO.class))
 				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
@@ -80,10 +117,12 @@ public class BookController {
 	
 	@PutMapping("/{id}")
 	@ApiOperation("Updates a book")
-	public BookDTO update(@PathVariable Long id, @RequestBody BookDTO dto) {
+	public BookDTO update(@PathVariable Long id, @RequestBody BookDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		log.info("updating book of id: {}", id);
 		return service.getById(id)
 				.map(book -> {
+					ETags.checkIfMatch(ifMatch, ETags.of(book.getVersion()));
 					book.setAuthor(dto.getAuthor());
 					book.setTitle(dto.getTitle());
 					book = service.update(book);					
@@ -94,9 +133,9 @@ public class BookController {
 	
 	@GetMapping
 	@ApiOperation("Find books by params")
-	public Page<BookDTO> find(BookDTO dto, Pageable pageRequest) {
+	public Page<BookDTO> find(BookDTO dto, Pageable pageRequest, @RequestParam(required = false) Boolean available) {
 		Book filter = mapper.map(dto, Book.class);
-		Page<Book> result = service.find(filter, pageRequest);
+		Page<Book> result = findBooks(filter, available, pageRequest);
 		
 		List<BookDTO> list = result.getContent()
 			.stream()
@@ -107,11 +146,112 @@ public class BookController {
 		
 	}	
 	
+	@GetMapping(params = "compact=true")
+	@ApiOperation("Find books by params, answering with the compact page envelope")
+	public PageEnvelopeDTO<BookDTO> findCompact(BookDTO dto, Pageable pageRequest, @RequestParam(required = false) Boolean available) {
+		Page<Book> result = findBooks(mapper.map(dto, Book.class), available, pageRequest);
+		List<BookDTO> list = result.getContent().stream()
+				.map(entity -> mapper.map(entity, BookDTO.class))
+				.collect(Collectors.toList());
+		return PageEnvelopes.of(result, list);
+	}
+	
+	private Page<Book> findBooks(Book filter, Boolean available, Pageable pageRequest) {
+		return available == null ? service.find(filter, pageRequest) : service.find(filter, available, pageRequest);
+	}
+	
+	@GetMapping("/availability")
+	@ApiOperation("Tells which of the given books are available and which are loaned, without querying the database")
+	public BookAvailabilityDTO availability(@RequestParam List<Long> ids) {
+		if(ids.size() > availabilityMaxIds) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limite de " + availabilityMaxIds + " livros por consulta excedido.");
+		}
+		Map<Boolean, List<Long>> byAvailability = ids.stream().distinct()
+				.collect(Collectors.partitioningBy(availabilityService::isAvailable));
+		return BookAvailabilityDTO.builder()
+				.available(byAvailability.get(true))
+				.loaned(byAvailability.get(false))
+				.build();
+	}
+	
+	@GetMapping("/suggest")
+	@ApiOperation("Suggests books whose title, author or isbn start with the typed text, most borrowed first")
+	public List<BookDTO> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+		if(limit < 1 || limit > suggestMaxLimit) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O limite deve estar entre 1 e " + suggestMaxLimit + " sugestões.");
+		}
+		List<Long> ids = suggestService.suggest(q, limit);
+		Map<Long, Book> books = service.getByIds(ids).stream()
+				.collect(Collectors.toMap(Book::getId, Function.identity()));
+		return ids.stream()
+				.map(books::get)
+				.filter(Objects::nonNull)
+				.map(book -> mapper.map(book, BookDTO.class))
+				.collect(Collectors.toList());
+	}
+	
+	@GetMapping(params = "ids")
+	@ApiOperation("Obtains books details by a list of ids")
+	public BookBatchResultDTO getByIds(@RequestParam List<Long> ids) {
+		return batch(BookBatchDTO.builder().ids(ids).build());
+	}
+	
+	@PostMapping("/batch")
+	@ApiOperation("Obtains books details by lists of ids and isbns")
+	public BookBatchResultDTO batch(@RequestBody BookBatchDTO dto) {
+		List<Long> ids = dto.getIds() == null ? Collections.emptyList() : dto.getIds();
+		List<String> isbns = dto.getIsbns() == null ? Collections.emptyList() : dto.getIsbns();
+		log.info("obtaining details for {} ids and {} isbns", ids.size(), isbns.size());
+		if(ids.size() + isbns.size() > batchMaxSize) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limite de " + batchMaxSize + " livros por consulta excedido.");
+		}
+		
+		Map<Long, Book> booksById = service.getByIds(ids).stream()
+				.collect(Collectors.toMap(Book::getId, Function.identity()));
+		Map<String, Book> booksByIsbn = service.getByIsbns(isbns).stream()
+				.collect(Collectors.toMap(Book::getIsbn, Function.identity(), (first, second) -> first));
+		
+		List<BookDTO> books = new ArrayList<>();
+		List<Long> missingIds = new ArrayList<>();
+		List<String> missingIsbns = new ArrayList<>();
+		ids.forEach(id -> {
+			Book book = booksById.get(id);
+			if(book == null) {
+				missingIds.add(id);
+			} else {
+				books.add(mapper.map(book, BookDTO.class));
+			}
+		});
+		isbns.forEach(isbn -> {
+			Book book = booksByIsbn.get(isbn);
+			if(book == null) {
+				missingIsbns.add(isbn);
+			} else {
+				books.add(mapper.map(book, BookDTO.class));
+			}
+		});
+		
+		return BookBatchResultDTO.builder().books(books).missingIds(missingIds).missingIsbns(missingIsbns).build();
+	}
+	
+	@GetMapping("/changes")
+	@ApiOperation("Lists books changed and ids of books deleted after the since token, with the token for the next chunk")
+	public ChangesDTO<BookDTO> changes(@RequestParam(required = false) String since, @RequestParam(defaultValue = "500") int limit) {
+		ChangeSet<Book> changes = service.getChanges(ChangeFeeds.since(since, limit, syncMaxChunkSize), limit);
+		List<BookDTO> list = changes.getChanged().stream()
+				.map(book -> mapper.map(book, BookDTO.class))
+				.collect(Collectors.toList());
+		return ChangeFeeds.of(changes, list);
+	}
+	
 	@GetMapping("/{id}/loans")
-	@ApiOperation("List loans by book id")
-	public PageImpl<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable) {
-		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-		Page<Loan> result = loanService.getLoansByBook(book, pageable);
+	@ApiOperation("List loans by book id, including archived loans when history=true")
+	public PageImpl<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable,
+			@RequestParam(defaultValue = "false") boolean history, WebRequest request) {
+		Page<Loan> result = findLoansByBook(id, pageable, history, request);
+		if(result == null) {
+			return null;
+		}
 		
 		List<LoanDTO> list = result.getContent().stream()
 			.map(loan -> {
@@ -125,4 +265,29 @@ public class BookController {
 		return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
 	}
 	
+	@GetMapping(value = "/{id}/loans", params = "compact=true")
+	@ApiOperation("List loans by book id with the compact page envelope; the book goes once in the books table unless dedupeBooks=false")
+	public PageEnvelopeDTO<LoanSummaryDTO> loansByBookCompact(@PathVariable Long id, Pageable pageable,
+			@RequestParam(defaultValue = "false") boolean history,
+			@RequestParam(defaultValue = "true") boolean dedupeBooks, WebRequest request) {
+		Page<Loan> result = findLoansByBook(id, pageable, history, request);
+		if(result == null) {
+			return null;
+		}
+		return PageEnvelopes.loans(result, mapper, dedupeBooks);
+	}
+	
+	/*Retorna null quando o cliente já tem a versão atual (304)*/
+	private Page<Loan> findLoansByBook(Long id, Pageable pageable, boolean history, WebRequest request) {
+		Long bookVersion = service.getVersion(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		boolean notModified = history
+				? ETags.checkNotModified(request, bookVersion, loanService.getLoansVersionByBook(id), loanService.countArchivedLoansByBook(id))
+				: ETags.checkNotModified(request, bookVersion, loanService.getLoansVersionByBook(id));
+		if(notModified) {
+			return null;
+		}
+		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		return loanService.getLoansByBook(book, pageable, history);
+	}
+	
 }
@@ -0,0 +1,38 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cursodsousa.libraryapi.api.dto.ChangesDTO;
+import com.cursodsousa.libraryapi.service.ChangeSet;
+import com.cursodsousa.libraryapi.util.ChangeToken;
+
+/*Parâmetros e resposta comuns dos endpoints de sincronização incremental (/changes?since=)*/
+final class ChangeFeeds {
+
+	private ChangeFeeds() {
+	}
+
+	static ChangeToken since(String since, int limit, int maxLimit) {
+		if(limit < 1 || limit > maxLimit) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "O limite deve estar entre 1 e " + maxLimit + " alterações por bloco.");
+		}
+		try {
+			return ChangeToken.parse(since);
+		} catch (IllegalArgumentException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+		}
+	}
+
+	static <T> ChangesDTO<T> of(ChangeSet<?> changes, List<T> items) {
+		return ChangesDTO.<T>builder()
+				.items(items)
+				.deleted(changes.getDeleted())
+				.next(changes.getNext().toString())
+				.hasMore(changes.isHasMore())
+				.build();
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cursodsousa.libraryapi.service.ChangeStreamService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+@Api("Change stream API")
+@Slf4j
+public class ChangeStreamController {
+
+	private final ChangeStreamService service;
+	
+	@GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@ApiOperation("Streams book and loan changes as server-sent events, resuming after Last-Event-ID")
+	public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+		log.info("subscribing to the change stream after event id: {}", lastEventId);
+		return service.subscribe(lastEventId);
+	}
+	
+}
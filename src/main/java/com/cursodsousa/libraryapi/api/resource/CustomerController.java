@@ -0,0 +1,73 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cursodsousa.libraryapi.api.dto.BookDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanSummaryDTO;
+import com.cursodsousa.libraryapi.api.dto.PageEnvelopeDTO;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.service.CustomerService;
+import com.cursodsousa.libraryapi.service.LoanService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+@Api("Customer API")
+public class CustomerController {
+
+	private final CustomerService service;
+	private final LoanService loanService;
+	private final ModelMapper mapper;
+	
+	@GetMapping("/{id}/loans")
+	@ApiOperation("Lists the loans of a customer")
+	public PageImpl<LoanDTO> loans(@PathVariable Long id, Pageable pageable) {
+		Customer customer = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		Page<Loan> result = loanService.getLoansByCustomer(customer.getId(), pageable);
+		
+		List<LoanDTO> list = result.getContent().stream()
+			.map(loan -> {
+				BookDTO bookDTO = mapper.map(loan.getBook(), BookDTO.class);
+				LoanDTO loanDTO = mapper.map(loan, LoanDTO.class);
+				loanDTO.setCustomer(customer.getName());
+				loanDTO.setEmail(customer.getEmail());
+				loanDTO.setBook(bookDTO);
+				return loanDTO;
+			}).collect(Collectors.toList());
+		
+		return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
+	}
+	
+	@GetMapping(value = "/{id}/loans", params = "compact=true")
+	@ApiOperation("Lists the loans of a customer with the compact page envelope")
+	public PageEnvelopeDTO<LoanSummaryDTO> loansCompact(@PathVariable Long id, Pageable pageable,
+			@RequestParam(defaultValue = "true") boolean dedupeBooks) {
+		Customer customer = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		PageEnvelopeDTO<LoanSummaryDTO> envelope = PageEnvelopes.loans(loanService.getLoansByCustomer(customer.getId(), pageable), mapper, dedupeBooks);
+		envelope.getItems().forEach(loan -> {
+			loan.setCustomer(customer.getName());
+			loan.setEmail(customer.getEmail());
+		});
+		return envelope;
+	}
+	
+}
@@ -0,0 +1,82 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+final class ETags {
+
+	private static final String ANY = "*";
+	private static final String WEAK = "W/";
+
+	private ETags() {
+	}
+
+	static String of(Object... parts) {
+		return Arrays.stream(parts)
+				.map(String::valueOf)
+				.collect(Collectors.joining("-", "\"", "\""));
+	}
+
+	/*ETag fraco: o mesmo recurso em JSON, CBOR ou Smile tem bytes diferentes, então não pode levar um ETag forte
+	 *único. A resposta também varia com o Accept, para que caches compartilhados guardem uma cópia por formato*/
+	static boolean checkNotModified(WebRequest request, Object... parts) {
+		if(request instanceof NativeWebRequest) {
+			HttpServletResponse response = ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class);
+			if(response != null) {
+				response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+			}
+		}
+		return request.checkNotModified(WEAK + of(parts));
+	}
+
+	/*Sem If-Match a requisição segue normalmente; com If-Match exige a versão atual do recurso.
+	 *O ETag fraco recebido no GET identifica a versão, não o formato, então também é aceito aqui*/
+	static void checkIfMatch(String ifMatch, String currentETag) {
+		if(ifMatch == null) {
+			return;
+		}
+		boolean matches = Arrays.stream(ifMatch.split(","))
+				.map(ETags::opaque)
+				.anyMatch(tag -> ANY.equals(tag) || currentETag.equals(tag));
+		if(!matches) {
+			throw preconditionFailed();
+		}
+	}
+
+	/*Versões aceitas pelo If-Match para ETags de uma única versão; null quando não há condição.
+	 *Tags que não são números nunca casam, então uma lista sem números resulta em lista vazia*/
+	static List<Long> versions(String ifMatch) {
+		if(ifMatch == null) {
+			return null;
+		}
+		List<String> tags = Arrays.stream(ifMatch.split(","))
+				.map(ETags::opaque)
+				.collect(Collectors.toList());
+		if(tags.contains(ANY)) {
+			return null;
+		}
+		return tags.stream()
+				.filter(tag -> tag.matches("\"\\d+\""))
+				.map(tag -> Long.valueOf(tag.substring(1, tag.length() - 1)))
+				.collect(Collectors.toList());
+	}
+
+	private static String opaque(String tag) {
+		String trimmed = tag.trim();
+		return trimmed.startsWith(WEAK) ? trimmed.substring(WEAK.length()) : trimmed;
+	}
+
+	static ResponseStatusException preconditionFailed() {
+		return new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "O recurso foi alterado por outra requisição.");
+	}
+
+}
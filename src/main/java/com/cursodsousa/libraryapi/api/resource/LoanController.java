@@ -1,32 +1,44 @@
 package com.cursodsousa.libraryapi.api.resource;
 
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.cursodsousa.libraryapi.api.dto.BookDTO;
+import com.cursodsousa.libraryapi.api.dto.ChangesDTO;
 import com.cursodsousa.libraryapi.api.dto.LoanDTO;
 import com.cursodsousa.libraryapi.api.dto.LoanFilterDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanReturnsDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanReturnsResultDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanSummaryDTO;
+import com.cursodsousa.libraryapi.api.dto.PageEnvelopeDTO;
 import com.cursodsousa.libraryapi.api.dto.ReturnedLoanDTO;
 import com.cursodsousa.libraryapi.model.entity.Book;
 import com.cursodsousa.libraryapi.model.entity.Loan;
 import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.ChangeSet;
+import com.cursodsousa.libraryapi.service.LoanCheckoutBatcher;
 import com.cursodsousa.libraryapi.service.LoanService;
 
 import lombok.RequiredArgsConstructor;
@@ -39,28 +51,47 @@ public class LoanController {
 	private final LoanService loanService;
 
 	private final BookService bookService;
+
+	private final LoanCheckoutBatcher checkoutBatcher;
 	
 	private final ModelMapper mapper;
+	
+	@Value("${application.loans.returns.max-size:10000}")
+	private int returnsMaxSize;
+	
+	@Value("${application.sync.max-chunk-size:5000}")
+	private int syncMaxChunkSize;
 
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
 	public Long create(@RequestBody LoanDTO dto) {
 		Book book = bookService.getBookByIsbn(dto.getIsbn()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Livro não encontrado."));
 		
-		Loan loan = Loan.builder().book(book).loanDate(LocalDate.now()).customer(dto.getCustomer()).build();
+		Loan loan = Loan.builder().book(book).loanDate(LocalDate.now()).customer(dto.getCustomer()).customerEmail(dto.getEmail()).build();
 		
-		loan = loanService.save(loan);
+		loan = checkoutBatcher.checkout(loan);
 		
 		return loan.getId();
 	}
 	
 	@PatchMapping("/{id}")
-	public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+	public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		
-		Loan loan = loanService.getByid(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-		loan.setReturned(dto.getReturned());
-		
-		loanService.update(loan);
+		if(!loanService.updateReturned(id, dto.getReturned(), ETags.versions(ifMatch))) {
+			loanService.getByid(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+			throw ETags.preconditionFailed();
+		}
+	}
+	
+	@PostMapping("/returns")
+	public LoanReturnsResultDTO returnBooks(@RequestBody LoanReturnsDTO dto) {
+		List<Long> ids = dto.getIds() == null ? Collections.emptyList() : dto.getIds();
+		List<String> isbns = dto.getIsbns() == null ? Collections.emptyList() : dto.getIsbns();
+		if(ids.size() + isbns.size() > returnsMaxSize) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limite de " + returnsMaxSize + " devoluções por requisição excedido.");
+		}
+		return LoanReturnsResultDTO.builder().returned(loanService.returnLoans(ids, isbns)).build();
 	}
 	
 	@GetMapping
@@ -79,4 +110,19 @@ public class LoanController {
 		return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
 	}
 	
+	@GetMapping(params = "compact=true")
+	public PageEnvelopeDTO<LoanSummaryDTO> findCompact(LoanFilterDTO dto, Pageable pageRequest,
+			@RequestParam(defaultValue = "true") boolean dedupeBooks) {
+		return PageEnvelopes.loans(loanService.find(dto, pageRequest), mapper, dedupeBooks);
+	}
+	
+	@GetMapping("/changes")
+	public ChangesDTO<LoanSummaryDTO> changes(@RequestParam(required = false) String since, @RequestParam(defaultValue = "500") int limit) {
+		ChangeSet<Loan> changes = loanService.getChanges(ChangeFeeds.since(since, limit, syncMaxChunkSize), limit);
+		List<LoanSummaryDTO> loans = changes.getChanged().stream()
+				.map(PageEnvelopes::summary)
+				.collect(Collectors.toList());
+		return ChangeFeeds.of(changes, loans);
+	}
+	
 }
@@ -0,0 +1,63 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+
+import com.cursodsousa.libraryapi.api.dto.BookDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanSummaryDTO;
+import com.cursodsousa.libraryapi.api.dto.PageEnvelopeDTO;
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+
+/*Envelope compacto (compact=true) das listagens: só os itens, a página, o total e a próxima página,
+ *sem os campos derivados de pageable/sort que o PageImpl serializa*/
+final class PageEnvelopes {
+
+	private PageEnvelopes() {
+	}
+
+	static <T> PageEnvelopeDTO<T> of(Page<?> page, List<T> items) {
+		return PageEnvelopeDTO.<T>builder()
+				.items(items)
+				.page(page.getNumber())
+				.size(page.getSize())
+				.total(page.getTotalElements())
+				.nextPage(page.hasNext() ? page.getNumber() + 1 : null)
+				.build();
+	}
+
+	/*Com dedupeBooks cada livro aparece uma vez na tabela books, indexada pelo isbn que os empréstimos trazem*/
+	static PageEnvelopeDTO<LoanSummaryDTO> loans(Page<Loan> page, ModelMapper mapper, boolean dedupeBooks) {
+		Map<String, BookDTO> books = new LinkedHashMap<>();
+		List<LoanSummaryDTO> items = page.getContent().stream()
+				.map(loan -> {
+					Book book = loan.getBook();
+					BookDTO bookDTO = dedupeBooks ? books.computeIfAbsent(book.getIsbn(), isbn -> mapper.map(book, BookDTO.class))
+							: mapper.map(book, BookDTO.class);
+					LoanSummaryDTO summary = summary(loan);
+					summary.setBook(dedupeBooks ? null : bookDTO);
+					return summary;
+				}).collect(Collectors.toList());
+		PageEnvelopeDTO<LoanSummaryDTO> envelope = of(page, items);
+		if(dedupeBooks) {
+			envelope.setBooks(books);
+		}
+		return envelope;
+	}
+
+	static LoanSummaryDTO summary(Loan loan) {
+		return LoanSummaryDTO.builder()
+				.id(loan.getId())
+				.customer(loan.getCustomer())
+				.email(loan.getCustomerEmail())
+				.isbn(loan.getBook().getIsbn())
+				.returned(loan.getReturned())
+				.build();
+	}
+
+}
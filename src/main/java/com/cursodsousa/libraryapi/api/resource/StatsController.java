@@ -0,0 +1,66 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cursodsousa.libraryapi.api.dto.BookStatsDTO;
+import com.cursodsousa.libraryapi.api.dto.DailyLoanStatsDTO;
+import com.cursodsousa.libraryapi.model.entity.BookLoanStats;
+import com.cursodsousa.libraryapi.service.BorrowingStatisticsService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Api("Stats API")
+public class StatsController {
+
+	private static final int MAX_DAYS = 366;
+
+	private final BorrowingStatisticsService service;
+	
+	@GetMapping("/books/{id}")
+	@ApiOperation("Obtains the total of loans and returns of a book")
+	public BookStatsDTO book(@PathVariable Long id) {
+		BookLoanStats stats = service.getBookStats(id);
+		return BookStatsDTO.builder().bookId(id).loans(stats.getTotalLoans()).returns(stats.getTotalReturns()).build();
+	}
+	
+	@GetMapping("/daily")
+	@ApiOperation("Obtains the number of loans and returns per day")
+	public List<DailyLoanStatsDTO> daily(@RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+			@RequestParam @DateTimeFormat(iso = ISO.DATE) LocalDate to) {
+		if(from.isAfter(to) || from.plusDays(MAX_DAYS).isBefore(to)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Período inválido, informe no máximo " + MAX_DAYS + " dias.");
+		}
+		return service.getDailyStats(from, to).stream()
+				.map(stats -> DailyLoanStatsDTO.builder().day(stats.getDay()).loans(stats.getLoans()).returns(stats.getReturns()).build())
+				.collect(Collectors.toList());
+	}
+	
+	@GetMapping("/trending")
+	@ApiOperation("Lists the most borrowed books in the recent window")
+	public List<BookStatsDTO> trending(@RequestParam(defaultValue = "10") int limit) {
+		if(limit < 1 || limit > service.getTopK()) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limite inválido, informe de 1 a " + service.getTopK() + ".");
+		}
+		return service.getTrending(limit).stream()
+				.map(entry -> BookStatsDTO.builder().bookId(entry.getKey()).loans(entry.getValue()).build())
+				.collect(Collectors.toList());
+	}
+	
+}
@@ -0,0 +1,44 @@
+package com.cursodsousa.libraryapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/*O Spring Boot registra no ObjectMapper todo bean do tipo Module. O Afterburner gera em bytecode os
+ *acessos aos getters/setters dos DTOs no lugar de reflexão, reduzindo o custo de serializar as listagens.
+ *
+ *Os conversores CBOR (application/cbor) e Smile (application/x-jackson-smile) atendem os serviços internos
+ *que pedem o formato binário pelo Accept ou enviam pelo Content-Type. Eles substituem os que o Spring MVC
+ *cria sozinho, na mesma posição, depois do JSON, que continua sendo o padrão, mas partem do builder do Boot
+ *para ter os mesmos módulos e configurações do ObjectMapper de JSON.*/
+@Configuration
+public class JacksonConfig {
+
+	@Bean
+	public Module afterburnerModule() {
+		return new AfterburnerModule();
+	}
+	
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+		builder.configure(mapper);
+		return new MappingJackson2CborHttpMessageConverter(mapper);
+	}
+	
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+		builder.configure(mapper);
+		return new MappingJackson2SmileHttpMessageConverter(mapper);
+	}
+	
+}
@@ -0,0 +1,71 @@
+package com.cursodsousa.libraryapi.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*Só para o perfil replicas, com bancos H2 separados: copia o primário para cada réplica a cada
+ *local-sync-interval-ms, então as réplicas ficam atrasadas como ficariam de verdade. Cada réplica sai
+ *do rodízio enquanto é recarregada e fica fora até a primeira cópia.*/
+@Slf4j
+public class LocalReplicaSync {
+
+	private final ReplicaRoutingDataSource routing;
+
+	public LocalReplicaSync(ReplicaRoutingDataSource routing) {
+		this.routing = routing;
+		routing.getReplicas().keySet().forEach(routing::suspendReplica);
+	}
+
+	@Scheduled(fixedDelayString = "${application.datasource.routing.local-sync-interval-ms}")
+	public void sync() {
+		Path script = createScript();
+		try {
+			String file = script.toAbsolutePath().toString().replace('\\', '/');
+			execute(routing.getPrimary(), "SCRIPT TO '" + file + "'");
+			routing.getReplicas().forEach((key, replica) -> {
+				routing.suspendReplica(key);
+				try {
+					execute(replica, "DROP ALL OBJECTS");
+					execute(replica, "RUNSCRIPT FROM '" + file + "'");
+					routing.resumeReplica(key);
+				} catch (SQLException e) {
+					log.warn("could not copy the primary into replica {}, keeping it out of rotation", key, e);
+				}
+			});
+		} catch (SQLException e) {
+			log.warn("could not export the primary for the local replicas", e);
+		} finally {
+			try {
+				Files.deleteIfExists(script);
+			} catch (IOException e) {
+				log.warn("could not delete {}", script, e);
+			}
+		}
+	}
+
+	private static Path createScript() {
+		try {
+			return Files.createTempFile("replica-sync", ".sql");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void execute(DataSource dataSource, String sql) throws SQLException {
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute(sql);
+		}
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.cursodsousa.libraryapi.config;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/*Identifica o cliente (X-Client-Id ou endereço remoto) para que suas leituras sigam suas escritas.
+ *Atrás de um balanceador o endereço remoto é o dele, o mesmo para todos os clientes: por isso o perfil
+ *replicas usa server.forward-headers-strategy=native, que troca o endereço pelo do X-Forwarded-For*/
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	public static final String CLIENT_HEADER = "X-Client-Id";
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String client = request.getHeader(CLIENT_HEADER);
+		ReplicaRoutingDataSource.bindClient(client != null ? client : request.getRemoteAddr());
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			ReplicaRoutingDataSource.clearClient();
+		}
+	}
+
+}
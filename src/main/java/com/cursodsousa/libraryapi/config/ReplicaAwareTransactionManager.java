@@ -0,0 +1,39 @@
+package com.cursodsousa.libraryapi.config;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*Decide a rota de cada transação somente leitura assim que ela começa. Nas que vão a uma réplica, o cache de
+ *segundo nível é lido mas não recebe o que foi carregado (CacheMode.GET, o mesmo que CacheStoreMode.BYPASS):
+ *a réplica pode estar atrasada, e o cache também é servido a quem precisa ler do primário.*/
+public class ReplicaAwareTransactionManager extends JpaTransactionManager {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient ReplicaRoutingDataSource routing;
+
+	public ReplicaAwareTransactionManager(EntityManagerFactory entityManagerFactory, ReplicaRoutingDataSource routing) {
+		super(entityManagerFactory);
+		this.routing = routing;
+	}
+
+	@Override
+	protected void prepareSynchronization(DefaultTransactionStatus status, TransactionDefinition definition) {
+		super.prepareSynchronization(status, definition);
+		if(!status.isNewSynchronization() || !definition.isReadOnly() || ReplicaRoutingDataSource.PRIMARY.equals(routing.route())) {
+			return;
+		}
+		EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(obtainEntityManagerFactory());
+		if(holder != null) {
+			holder.getEntityManager().unwrap(Session.class).setCacheMode(CacheMode.GET);
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.cursodsousa.libraryapi.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnProperty(name = "application.datasource.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+	@Bean
+	public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, ReplicaRoutingProperties routing) {
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		primary.setPoolName("primary");
+		
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		for(int i = 0; i < routing.getReplicas().size(); i++) {
+			ReplicaRoutingProperties.Replica replica = routing.getReplicas().get(i);
+			HikariDataSource dataSource = DataSourceBuilder.create()
+					.type(HikariDataSource.class)
+					.url(replica.getUrl())
+					.username(replica.getUsername())
+					.password(replica.getPassword())
+					.build();
+			dataSource.setPoolName("replica-" + i);
+			replicas.put(dataSource.getPoolName(), dataSource);
+		}
+		
+		ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas, routing.getStickiness());
+		routingDataSource.afterPropertiesSet();
+		return routingDataSource;
+	}
+
+	@Bean
+	@Primary
+	public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+	}
+
+	@Bean
+	public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory, ReplicaRoutingDataSource replicaRoutingDataSource,
+			ObjectProvider<TransactionManagerCustomizers> customizers) {
+		ReplicaAwareTransactionManager transactionManager = new ReplicaAwareTransactionManager(entityManagerFactory, replicaRoutingDataSource);
+		customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+		return transactionManager;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "application.datasource.routing.local-sync-interval-ms")
+	public LocalReplicaSync localReplicaSync(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		return new LocalReplicaSync(replicaRoutingDataSource);
+	}
+
+	@Bean
+	public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+		FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+		registration.addUrlPatterns("/api/*");
+		return registration;
+	}
+
+}
@@ -0,0 +1,185 @@
+package com.cursodsousa.libraryapi.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*Envia transações somente leitura às réplicas (round-robin entre as saudáveis) e o resto ao primário.
+ *Precisa estar atrás de um LazyConnectionDataSourceProxy, pois a transação só é marcada
+ *como somente leitura depois de iniciada. A rota de cada transação somente leitura é decidida uma vez
+ *(route) e vale até o fim dela; o ReplicaAwareTransactionManager a decide logo no início, para que o
+ *código da transação saiba se lê de uma réplica. Os pools do primário e das réplicas são criados pela
+ *configuração e não são beans, então são fechados aqui no encerramento do contexto.*/
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+	public static final String PRIMARY = "primary";
+
+	private static final ThreadLocal<String> CLIENT = new ThreadLocal<>();
+
+	/*Chave da rota decidida, entre os recursos da transação atual*/
+	private static final Object ROUTE = new Object();
+
+	private final DataSource primary;
+	private final Map<String, DataSource> replicas;
+	private final List<String> replicaKeys;
+	private final long stickinessMillis;
+	private final Set<String> unhealthy = ConcurrentHashMap.newKeySet();
+	private final Set<String> suspended = ConcurrentHashMap.newKeySet();
+	private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+	private final AtomicInteger next = new AtomicInteger();
+
+	public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration stickiness) {
+		this.primary = primary;
+		this.replicas = replicas;
+		this.replicaKeys = new ArrayList<>(replicas.keySet());
+		this.stickinessMillis = stickiness.toMillis();
+		Map<Object, Object> targets = new HashMap<>(replicas);
+		targets.put(PRIMARY, primary);
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+	}
+
+	public static void bindClient(String client) {
+		CLIENT.set(client);
+	}
+
+	public static void clearClient() {
+		CLIENT.remove();
+	}
+
+	/*Se a transação atual já foi enviada a uma réplica, que pode estar atrasada*/
+	public static boolean isReplicaTransaction() {
+		Object route = TransactionSynchronizationManager.getResource(ROUTE);
+		return route != null && !PRIMARY.equals(route);
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if(TransactionSynchronizationManager.isActualTransactionActive()) {
+				recordWrite();
+			}
+			return PRIMARY;
+		}
+		return route();
+	}
+
+	/*Primário para quem escreveu há pouco, senão a próxima réplica saudável; fixa a escolha até o fim da transação*/
+	public String route() {
+		String bound = (String) TransactionSynchronizationManager.getResource(ROUTE);
+		if(bound != null) {
+			return bound;
+		}
+		String key = wroteRecently() ? PRIMARY : nextHealthyReplica();
+		if(TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.bindResource(ROUTE, key);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(ROUTE);
+				}
+			});
+		}
+		return key;
+	}
+
+	/*Tira a réplica do rodízio (por exemplo, enquanto é recarregada) até resumeReplica*/
+	public void suspendReplica(String key) {
+		suspended.add(key);
+	}
+
+	public void resumeReplica(String key) {
+		suspended.remove(key);
+	}
+
+	DataSource getPrimary() {
+		return primary;
+	}
+
+	Map<String, DataSource> getReplicas() {
+		return replicas;
+	}
+
+	@Scheduled(fixedDelayString = "${application.datasource.routing.health-check-interval-ms:5000}")
+	public void checkHealth() {
+		replicas.forEach((key, replica) -> {
+			boolean healthy = isValid(replica);
+			if(healthy && unhealthy.remove(key)) {
+				log.info("replica {} is healthy again", key);
+			} else if(!healthy && unhealthy.add(key)) {
+				log.warn("replica {} failed its health check, routing reads elsewhere", key);
+			}
+		});
+		long oldest = System.currentTimeMillis() - stickinessMillis;
+		lastWrites.values().removeIf(writtenAt -> writtenAt < oldest);
+	}
+
+	@Override
+	public void destroy() {
+		replicas.forEach(this::close);
+		close(PRIMARY, primary);
+	}
+
+	private void close(String key, DataSource dataSource) {
+		if(dataSource instanceof AutoCloseable) {
+			try {
+				((AutoCloseable) dataSource).close();
+			} catch (Exception e) {
+				log.warn("could not close data source {}", key, e);
+			}
+		}
+	}
+
+	private String nextHealthyReplica() {
+		for(int attempt = 0; attempt < replicaKeys.size(); attempt++) {
+			String key = replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+			if(!unhealthy.contains(key) && !suspended.contains(key)) {
+				return key;
+			}
+		}
+		return PRIMARY;
+	}
+
+	private void recordWrite() {
+		String client = CLIENT.get();
+		if(client != null) {
+			lastWrites.put(client, System.currentTimeMillis());
+		}
+	}
+
+	private boolean wroteRecently() {
+		String client = CLIENT.get();
+		if(client == null) {
+			return false;
+		}
+		Long writtenAt = lastWrites.get(client);
+		return writtenAt != null && System.currentTimeMillis() - writtenAt < stickinessMillis;
+	}
+
+	private boolean isValid(DataSource replica) {
+		try (Connection connection = replica.getConnection()) {
+			return connection.isValid(1);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+}
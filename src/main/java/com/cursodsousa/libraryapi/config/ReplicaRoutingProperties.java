@@ -0,0 +1,31 @@
+package com.cursodsousa.libraryapi.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "application.datasource.routing")
+public class ReplicaRoutingProperties {
+
+	private boolean enabled;
+
+	/*Janela em que as leituras de um cliente continuam no primário após uma escrita dele*/
+	private Duration stickiness = Duration.ofSeconds(5);
+
+	private List<Replica> replicas = new ArrayList<>();
+
+	@Data
+	public static class Replica {
+
+		private String url;
+		private String username;
+		private String password;
+
+	}
+
+}
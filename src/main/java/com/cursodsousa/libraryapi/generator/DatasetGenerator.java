@@ -0,0 +1,266 @@
+package com.cursodsousa.libraryapi.generator;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.util.ZipfSampler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Popula customer, book e loan com dados sintéticos para testes de escala (perfil generate).
+ *Os inserts são em lote via JDBC, em paralelo, e cada bloco usa um Random derivado da semente e do
+ *número do bloco, então o resultado é o mesmo com qualquer número de threads.
+ * - a popularidade dos livros segue Zipf, com a ordem de popularidade embaralhada entre os ids;
+ * - empréstimos antigos estão devolvidos e concentrados nos meses mais recentes;
+ * - uma fração dos livros tem um empréstimo em aberto dos últimos 30 dias, parte deles atrasada.
+ *Ao final as sequências são avançadas e as estatísticas de empréstimos recalculadas. A tabela loan não guarda
+ *a data da devolução, então nas estatísticas diárias cada empréstimo devolvido conta a devolução de 1 a
+ *RETURN_DAYS dias depois do empréstimo (pelo id); são os mesmos empréstimos somados em total_returns.*/
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.generator.enabled", havingValue = "true")
+public class DatasetGenerator implements CommandLineRunner {
+
+	private static final List<String> TITLE_WORDS = Arrays.asList("Aventura", "Mistério", "História", "Ciência", "Guerra",
+			"Amor", "Viagem", "Segredo", "Reino", "Mar", "Noite", "Cidade", "Jardim", "Sombra", "Caminho", "Tempo",
+			"Memórias", "Luz", "Fogo", "Silêncio", "Vento", "Rio", "Montanha", "Estrela", "Sonho", "Destino", "Casa",
+			"Ilha", "Ouro", "Pedra", "Lenda", "Coração", "Espelho", "Labirinto", "Tempestade", "Horizonte");
+	private static final List<String> TITLE_JOINERS = Arrays.asList("do", "da", "de", "e", "no", "na", "sem");
+	private static final List<String> FIRST_NAMES = Arrays.asList("Ana", "Bruno", "Carla", "Daniel", "Eduarda", "Felipe",
+			"Gabriela", "Henrique", "Isabela", "João", "Larissa", "Marcos", "Natália", "Otávio", "Paula", "Rafael",
+			"Sofia", "Thiago", "Vitória", "William");
+	private static final List<String> LAST_NAMES = Arrays.asList("Silva", "Santos", "Oliveira", "Souza", "Rodrigues",
+			"Ferreira", "Alves", "Pereira", "Lima", "Gomes", "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida",
+			"Lopes", "Soares", "Fernandes", "Vieira", "Barbosa");
+	private static final long ID_PERMUTATION_PRIME = 2_147_483_647L;
+	private static final int SEQUENCE_MARGIN = 100;
+	private static final int RECENT_DAYS = 15;
+	/*Menor que RECENT_DAYS: toda devolução gerada cai no passado*/
+	private static final int RETURN_DAYS = 14;
+
+	private final JdbcTemplate jdbc;
+	private final PlatformTransactionManager transactionManager;
+	private final ConfigurableApplicationContext context;
+
+	@Value("${application.generator.books:100000}")
+	private int books;
+
+	@Value("${application.generator.loans:1000000}")
+	private long loans;
+
+	@Value("${application.generator.customers:50000}")
+	private int customers;
+
+	@Value("${application.generator.seed:42}")
+	private long seed;
+
+	@Value("${application.generator.threads:0}")
+	private int threads;
+
+	@Value("${application.generator.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${application.generator.chunk-size:50000}")
+	private int chunkSize;
+
+	@Value("${application.generator.zipf-exponent:1.0}")
+	private double zipfExponent;
+
+	@Value("${application.generator.outstanding-ratio:0.1}")
+	private double outstandingRatio;
+
+	@Value("${application.generator.history-days:1095}")
+	private int historyDays;
+
+	@Value("${application.generator.exit-when-done:true}")
+	private boolean exitWhenDone;
+
+	@Override
+	public void run(String... args) throws Exception {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+		try {
+			log.info("generating {} customers, {} books and {} loans with seed {}", customers, books, loans, seed);
+			await(submitChunks(executor, customers, this::insertCustomers));
+			await(submitChunks(executor, books, this::insertBooks));
+			ZipfSampler popularity = new ZipfSampler(books, zipfExponent);
+			long historical = Math.max(0, loans - Math.round(books * outstandingRatio));
+			AtomicLong outstanding = new AtomicLong();
+			List<Future<?>> loanTasks = submitChunks(executor, historical, (from, to) -> insertReturnedLoans(from, to, popularity));
+			loanTasks.addAll(submitChunks(executor, books, (from, to) -> outstanding.addAndGet(insertOutstandingLoans(from, to, historical))));
+			await(loanTasks);
+			finish(historical + books);
+			log.info("generated {} returned and {} outstanding loans in {} s", historical, outstanding.get(),
+					TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+		} finally {
+			executor.shutdown();
+		}
+		if(exitWhenDone) {
+			System.exit(SpringApplication.exit(context));
+		}
+	}
+
+	private void insertCustomers(long from, long to) {
+		List<Object[]> rows = new ArrayList<>(batchSize);
+		for(long id = from + 1; id <= to; id++) {
+			rows.add(new Object[] {id, customerName(id), customerEmail(id)});
+			flushIfFull("insert into customer (id, name, email) values (?, ?, ?)", rows, false);
+		}
+		flushIfFull("insert into customer (id, name, email) values (?, ?, ?)", rows, true);
+	}
+
+	private void insertBooks(long from, long to) {
+		Random random = chunkRandom(1, from);
+		List<Object[]> rows = new ArrayList<>(batchSize);
+		String sql = "insert into book (id, title, author, isbn, version, change_seq) values (?, ?, ?, ?, 0, 0)";
+		for(long id = from + 1; id <= to; id++) {
+			rows.add(new Object[] {id, title(random), pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES), isbn(id)});
+			flushIfFull(sql, rows, false);
+		}
+		flushIfFull(sql, rows, true);
+	}
+
+	private void insertReturnedLoans(long from, long to, ZipfSampler popularity) {
+		Random random = chunkRandom(2, from);
+		LocalDate today = LocalDate.now();
+		List<Object[]> rows = new ArrayList<>(batchSize);
+		for(long id = from + 1; id <= to; id++) {
+			long bookId = bookIdForRank(popularity.next(random));
+			double recency = random.nextDouble();
+			int daysAgo = RECENT_DAYS + (int) ((historyDays - RECENT_DAYS) * recency * recency);
+			rows.add(loanRow(id, bookId, random, today.minusDays(daysAgo), true));
+			flushIfFull(loanSql(), rows, false);
+		}
+		flushIfFull(loanSql(), rows, true);
+	}
+
+	private int insertOutstandingLoans(long from, long to, long idOffset) {
+		Random random = chunkRandom(3, from);
+		LocalDate today = LocalDate.now();
+		List<Object[]> rows = new ArrayList<>(batchSize);
+		int count = 0;
+		for(long bookId = from + 1; bookId <= to; bookId++) {
+			if(random.nextDouble() >= outstandingRatio) {
+				continue;
+			}
+			rows.add(loanRow(idOffset + bookId, bookId, random, today.minusDays(random.nextInt(30)), false));
+			count++;
+			flushIfFull(loanSql(), rows, false);
+		}
+		flushIfFull(loanSql(), rows, true);
+		return count;
+	}
+
+	private Object[] loanRow(long id, long bookId, Random random, LocalDate loanDate, boolean returned) {
+		long customerId = 1 + random.nextInt(customers);
+		return new Object[] {id, customerId, bookId, Date.valueOf(loanDate), returned};
+	}
+
+	private static String loanSql() {
+		return "insert into loan (id, id_customer, id_book, loan_date, returned, version, change_seq) values (?, ?, ?, ?, ?, 0, 0)";
+	}
+
+	/*Avança as sequências além dos ids gerados e recalcula as estatísticas mantidas pelos serviços*/
+	private void finish(long maxLoanId) {
+		new TransactionTemplate(transactionManager).execute(status -> {
+			jdbc.execute("alter sequence book_seq restart with " + (books + SEQUENCE_MARGIN));
+			jdbc.execute("alter sequence loan_seq restart with " + (maxLoanId + SEQUENCE_MARGIN));
+			jdbc.execute("alter table customer alter column id restart with " + (customers + 1));
+			jdbc.update("delete from book_loan_stats");
+			jdbc.update("insert into book_loan_stats (book_id, total_loans, total_returns) "
+					+ "select id_book, count(*), sum(case when returned then 1 else 0 end) from loan group by id_book");
+			jdbc.update("delete from daily_loan_stats");
+			jdbc.update("insert into daily_loan_stats (day, loans, returns) select d, sum(l), sum(r) from ("
+					+ "select loan_date d, 1 l, 0 r from loan union all "
+					+ "select dateadd('DAY', mod(id, " + RETURN_DAYS + ") + 1, loan_date), 0, 1 from loan where returned) t group by d");
+			return null;
+		});
+	}
+
+	private void flushIfFull(String sql, List<Object[]> rows, boolean force) {
+		if(rows.isEmpty() || (!force && rows.size() < batchSize)) {
+			return;
+		}
+		new TransactionTemplate(transactionManager).execute(status -> jdbc.batchUpdate(sql, rows));
+		rows.clear();
+	}
+
+	private List<Future<?>> submitChunks(ExecutorService executor, long total, ChunkTask task) {
+		List<Future<?>> futures = new ArrayList<>();
+		for(long from = 0; from < total; from += chunkSize) {
+			long chunkFrom = from;
+			long chunkTo = Math.min(total, from + chunkSize);
+			futures.add(executor.submit(() -> task.run(chunkFrom, chunkTo)));
+		}
+		return futures;
+	}
+
+	private static void await(List<Future<?>> futures) throws Exception {
+		for(Future<?> future : futures) {
+			future.get();
+		}
+	}
+
+	private Random chunkRandom(int table, long chunkStart) {
+		return new Random(seed * 31 + table * 1_000_003L + chunkStart);
+	}
+
+	/*Embaralha a ordem de popularidade: o livro mais emprestado não é o de id 1*/
+	private long bookIdForRank(int rank) {
+		return (rank * ID_PERMUTATION_PRIME) % books + 1;
+	}
+
+	private static String title(Random random) {
+		String title = pick(random, TITLE_WORDS);
+		int extra = random.nextInt(3);
+		for(int i = 0; i < extra; i++) {
+			title += " " + pick(random, TITLE_JOINERS) + " " + pick(random, TITLE_WORDS);
+		}
+		return title;
+	}
+
+	private static String isbn(long id) {
+		return String.format("978%010d", id);
+	}
+
+	private static String customerName(long id) {
+		return FIRST_NAMES.get((int) (id % FIRST_NAMES.size())) + " " + LAST_NAMES.get((int) (id / FIRST_NAMES.size() % LAST_NAMES.size()));
+	}
+
+	private static String customerEmail(long id) {
+		return "cliente" + id + "@library-api.com";
+	}
+
+	private static String pick(Random random, List<String> words) {
+		return words.get(random.nextInt(words.size()));
+	}
+
+	@FunctionalInterface
+	private interface ChunkTask {
+
+		void run(long from, long to);
+
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.cursodsousa.libraryapi.logging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+/*Um objeto JSON por linha: timestamp, level, logger, thread, message, o MDC (onde fica o requestId)
+ *e a exceção. O OutputStreamAppender chama encode antes de pegar o seu lock, então várias threads podem
+ *codificar ao mesmo tempo e cada chamada usa o seu próprio buffer.*/
+public class JsonEventEncoder extends EncoderBase<ILoggingEvent> {
+
+	@Override
+	public byte[] headerBytes() {
+		return null;
+	}
+
+	@Override
+	public byte[] encode(ILoggingEvent event) {
+		StringBuilder json = new StringBuilder(512);
+		json.append("{\"timestamp\":").append(event.getTimeStamp());
+		field(json, "level", event.getLevel().toString());
+		field(json, "logger", event.getLoggerName());
+		field(json, "thread", event.getThreadName());
+		field(json, "message", event.getFormattedMessage());
+		for(Map.Entry<String, String> entry : event.getMDCPropertyMap().entrySet()) {
+			field(json, entry.getKey(), entry.getValue());
+		}
+		if(event.getThrowableProxy() != null) {
+			json.append(",\"exception\":\"");
+			appendThrowable(json, event.getThrowableProxy());
+			json.append('"');
+		}
+		json.append("}\n");
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public byte[] footerBytes() {
+		return null;
+	}
+
+	private static void field(StringBuilder json, String name, String value) {
+		json.append(",\"");
+		escape(json, name);
+		json.append("\":");
+		if(value == null) {
+			json.append("null");
+			return;
+		}
+		json.append('"');
+		escape(json, value);
+		json.append('"');
+	}
+
+	private static void appendThrowable(StringBuilder json, IThrowableProxy throwable) {
+		escape(json, throwable.getClassName());
+		if(throwable.getMessage() != null) {
+			escape(json, ": ");
+			escape(json, throwable.getMessage());
+		}
+		for(StackTraceElementProxy element : throwable.getStackTraceElementProxyArray()) {
+			escape(json, "\n\t");
+			escape(json, element.getSTEAsString());
+		}
+		if(throwable.getCause() != null) {
+			escape(json, "\nCaused by: ");
+			appendThrowable(json, throwable.getCause());
+		}
+	}
+
+	private static void escape(StringBuilder json, String value) {
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+				case '"': json.append("\\\""); break;
+				case '\\': json.append("\\\\"); break;
+				case '\n': json.append("\\n"); break;
+				case '\r': json.append("\\r"); break;
+				case '\t': json.append("\\t"); break;
+				default:
+					if(c < 0x20) {
+						json.append(String.format("\\u%04x", (int) c));
+					} else {
+						json.append(c);
+					}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.cursodsousa.libraryapi.logging;
+
+import java.util.Iterator;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class LoggingConfig {
+
+	@Bean
+	public FilterRegistrationBean<RequestIdFilter> requestIdFilter() {
+		FilterRegistrationBean<RequestIdFilter> registration = new FilterRegistrationBean<>(new RequestIdFilter());
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return registration;
+	}
+
+	/*Expõe no actuator os eventos descartados pela fila de log e os removidos pela amostragem*/
+	@Bean
+	public MeterBinder loggingMetrics() {
+		return registry -> {
+			if(!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+				return;
+			}
+			LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+			Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+			while(appenders.hasNext()) {
+				Appender<ILoggingEvent> appender = appenders.next();
+				if(appender instanceof RingBufferAppender) {
+					RingBufferAppender ringBuffer = (RingBufferAppender) appender;
+					FunctionCounter.builder("library.logging.dropped", ringBuffer, RingBufferAppender::getDroppedCount)
+							.tag("appender", ringBuffer.getName())
+							.register(registry);
+					Gauge.builder("library.logging.queue.size", ringBuffer, RingBufferAppender::getQueueSize)
+							.tag("appender", ringBuffer.getName())
+							.register(registry);
+				}
+			}
+			for(TurboFilter filter : context.getTurboFilterList()) {
+				if(filter instanceof SamplingTurboFilter) {
+					FunctionCounter.builder("library.logging.sampled", (SamplingTurboFilter) filter, SamplingTurboFilter::getSampledOutCount)
+							.register(registry);
+				}
+			}
+		};
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.cursodsousa.libraryapi.logging;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/*Coloca no MDC o X-Request-Id recebido, ou um novo, para que todos os logs da requisição o tragam*/
+public class RequestIdFilter extends OncePerRequestFilter {
+
+	public static final String REQUEST_ID_HEADER = "X-Request-Id";
+	public static final String REQUEST_ID_KEY = "requestId";
+
+	private static final int MAX_LENGTH = 64;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		String requestId = request.getHeader(REQUEST_ID_HEADER);
+		if(requestId == null || requestId.isEmpty() || requestId.length() > MAX_LENGTH) {
+			requestId = UUID.randomUUID().toString();
+		}
+		MDC.put(REQUEST_ID_KEY, requestId);
+		response.setHeader(REQUEST_ID_HEADER, requestId);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			MDC.remove(REQUEST_ID_KEY);
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.cursodsousa.libraryapi.logging;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.cursodsousa.libraryapi.util.RingBuffer;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+/*Entrega os eventos aos appenders anexados (arquivo, console) em uma thread própria, tirando o I/O
+ *da thread da requisição. Com a fila cheia a política DROP descarta eventos abaixo de WARN e conta
+ *o descarte; BLOCK, e também WARN/ERROR em qualquer política, esperam uma posição livre.
+ *Sem eventos a thread fica parada até um produtor acordá-la, sem acordar periodicamente.*/
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent> implements AppenderAttachable<ILoggingEvent> {
+
+	public enum Policy { DROP, BLOCK }
+
+	private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+	private final AtomicLong dropped = new AtomicLong();
+
+	private int capacity = 8192;
+	private Policy policy = Policy.DROP;
+	private int maxFlushTimeMillis = 1000;
+
+	private RingBuffer<ILoggingEvent> buffer;
+	private volatile Thread worker;
+	private volatile boolean sleeping;
+
+	@Override
+	public void start() {
+		if(isStarted()) {
+			return;
+		}
+		buffer = new RingBuffer<>(Integer.highestOneBit(Math.max(2, capacity - 1)) << 1);
+		worker = new Thread(this::drain, "log-" + getName());
+		worker.setDaemon(true);
+		super.start();
+		worker.start();
+	}
+
+	@Override
+	public void stop() {
+		if(!isStarted()) {
+			return;
+		}
+		super.stop();
+		Thread current = worker;
+		worker = null;
+		LockSupport.unpark(current);
+		try {
+			current.join(maxFlushTimeMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		appenders.detachAndStopAllAppenders();
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		event.prepareForDeferredProcessing();
+		if(buffer.offer(event)) {
+			wakeUp();
+			return;
+		}
+		if(policy == Policy.DROP && !event.getLevel().isGreaterOrEqual(Level.WARN)) {
+			dropped.incrementAndGet();
+			return;
+		}
+		while(!buffer.offer(event)) {
+			if(!isStarted()) {
+				dropped.incrementAndGet();
+				return;
+			}
+			LockSupport.parkNanos(FULL_PARK_NANOS);
+		}
+		wakeUp();
+	}
+
+	/*sleeping é escrito antes de a fila ser conferida e lido depois do offer: se o produtor não vê a thread
+	 *dormindo, ela ainda vai ver o evento antes de parar*/
+	private void wakeUp() {
+		if(sleeping) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	private void drain() {
+		while(worker != null) {
+			if(deliverAvailable()) {
+				continue;
+			}
+			sleeping = true;
+			if(buffer.size() == 0 && worker != null) {
+				LockSupport.park(this);
+			}
+			sleeping = false;
+		}
+		deliverAvailable();
+	}
+
+	private boolean deliverAvailable() {
+		boolean delivered = false;
+		ILoggingEvent event;
+		while((event = buffer.poll()) != null) {
+			appenders.appendLoopOnAppenders(event);
+			delivered = true;
+		}
+		return delivered;
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	public int getQueueSize() {
+		return buffer == null ? 0 : buffer.size();
+	}
+
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public void setPolicy(String policy) {
+		this.policy = Policy.valueOf(policy.trim().toUpperCase());
+	}
+
+	public void setMaxFlushTimeMillis(int maxFlushTimeMillis) {
+		this.maxFlushTimeMillis = maxFlushTimeMillis;
+	}
+
+	@Override
+	public void addAppender(Appender<ILoggingEvent> appender) {
+		appenders.addAppender(appender);
+	}
+
+	@Override
+	public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+		return appenders.iteratorForAppenders();
+	}
+
+	@Override
+	public Appender<ILoggingEvent> getAppender(String name) {
+		return appenders.getAppender(name);
+	}
+
+	@Override
+	public boolean isAttached(Appender<ILoggingEvent> appender) {
+		return appenders.isAttached(appender);
+	}
+
+	@Override
+	public void detachAndStopAllAppenders() {
+		appenders.detachAndStopAllAppenders();
+	}
+
+	@Override
+	public boolean detachAppender(Appender<ILoggingEvent> appender) {
+		return appenders.detachAppender(appender);
+	}
+
+	@Override
+	public boolean detachAppender(String name) {
+		return appenders.detachAppender(name);
+	}
+
+}
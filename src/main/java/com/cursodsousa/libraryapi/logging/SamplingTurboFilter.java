@@ -0,0 +1,71 @@
+package com.cursodsousa.libraryapi.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/*Amostragem de logs INFO/DEBUG/TRACE por logger: "nome=N" mantém 1 a cada N chamadas do logger ou de
+ *qualquer logger abaixo dele. Decide antes de o evento ser criado, então os descartados não alocam nada.
+ *WARN e ERROR sempre passam, assim como as consultas isXxxEnabled(), que chegam sem format.*/
+public class SamplingTurboFilter extends TurboFilter {
+
+	private final Map<String, Integer> rates = new ConcurrentHashMap<>();
+	private final Map<String, Integer> resolved = new ConcurrentHashMap<>();
+	private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+	private final AtomicLong sampledOut = new AtomicLong();
+
+	@Override
+	public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+		if(rates.isEmpty() || format == null || level.isGreaterOrEqual(Level.WARN) || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+			return FilterReply.NEUTRAL;
+		}
+		int rate = resolved.computeIfAbsent(logger.getName(), this::rateFor);
+		if(rate <= 1) {
+			return FilterReply.NEUTRAL;
+		}
+		long call = calls.computeIfAbsent(logger.getName(), name -> new AtomicLong()).getAndIncrement();
+		if(call % rate == 0) {
+			return FilterReply.NEUTRAL;
+		}
+		sampledOut.incrementAndGet();
+		return FilterReply.DENY;
+	}
+
+	private int rateFor(String loggerName) {
+		String name = loggerName;
+		while(true) {
+			Integer rate = rates.get(name);
+			if(rate != null) {
+				return rate;
+			}
+			int dot = name.lastIndexOf('.');
+			if(dot < 0) {
+				return 1;
+			}
+			name = name.substring(0, dot);
+		}
+	}
+
+	/*Aceita uma lista separada por vírgulas, por exemplo "com.cursodsousa.libraryapi.api.resource=10"*/
+	public void setSampling(String sampling) {
+		for(String entry : sampling.split(",")) {
+			String[] parts = entry.split("=");
+			if(parts.length == 2 && !parts[0].trim().isEmpty()) {
+				rates.put(parts[0].trim(), Integer.valueOf(parts[1].trim()));
+			}
+		}
+		resolved.clear();
+	}
+
+	public long getSampledOutCount() {
+		return sampledOut.get();
+	}
+
+}
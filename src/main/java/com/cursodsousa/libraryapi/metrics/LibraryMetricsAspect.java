@@ -0,0 +1,97 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+/*Timers por método dos repositórios (library.repository) e do envio de e-mails (library.mail.send),
+ *e quantidade de comandos SQL por método de serviço (library.service.sql.statements)*/
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class LibraryMetricsAspect {
+
+	private static final String REPOSITORY_PACKAGE = BookRepository.class.getPackage().getName();
+
+	private final MeterRegistry registry;
+
+	private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+	@Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+	public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+		Timer.Sample sample = Timer.start(registry);
+		String result = LibraryWebMvcTagsProvider.ERROR;
+		try {
+			Object value = joinPoint.proceed();
+			result = isEmpty(value) ? LibraryWebMvcTagsProvider.NOT_FOUND : LibraryWebMvcTagsProvider.SUCCESS;
+			return value;
+		} finally {
+			sample.stop(Timer.builder("library.repository")
+					.tag("repository", repositoryName(joinPoint))
+					.tag("method", joinPoint.getSignature().getName())
+					.tag("result", result)
+					.register(registry));
+		}
+	}
+
+	@Around("execution(* com.cursodsousa.libraryapi.service.EmailService.sendMails(..)) && args(message, mailsList)")
+	public Object timeSendMails(ProceedingJoinPoint joinPoint, String message, List<String> mailsList) throws Throwable {
+		Timer.Sample sample = Timer.start(registry);
+		String result = LibraryWebMvcTagsProvider.ERROR;
+		try {
+			Object value = joinPoint.proceed();
+			result = LibraryWebMvcTagsProvider.SUCCESS;
+			registry.counter("library.mail.recipients").increment(mailsList == null ? 0 : mailsList.size());
+			return value;
+		} finally {
+			sample.stop(Timer.builder("library.mail.send")
+					.tag("result", result)
+					.register(registry));
+		}
+	}
+
+	@Around("execution(public * com.cursodsousa.libraryapi.service.impl.*ServiceImpl.*(..))")
+	public Object countServiceStatements(ProceedingJoinPoint joinPoint) throws Throwable {
+		SqlStatementCounter.Stats stats = SqlStatementCounter.current();
+		if(stats == null) {
+			return joinPoint.proceed();
+		}
+		int before = stats.getStatements();
+		try {
+			return joinPoint.proceed();
+		} finally {
+			DistributionSummary.builder("library.service.sql.statements")
+					.tag("service", joinPoint.getSignature().getDeclaringType().getSimpleName())
+					.tag("method", joinPoint.getSignature().getName())
+					.register(registry)
+					.record(stats.getStatements() - before);
+		}
+	}
+
+	private String repositoryName(ProceedingJoinPoint joinPoint) {
+		return repositoryNames.computeIfAbsent(joinPoint.getTarget().getClass(), type -> Arrays.stream(type.getInterfaces())
+				.filter(contract -> contract.getPackage() != null && contract.getPackage().getName().equals(REPOSITORY_PACKAGE))
+				.map(Class::getSimpleName)
+				.findFirst()
+				.orElse(joinPoint.getSignature().getDeclaringType().getSimpleName()));
+	}
+
+	private boolean isEmpty(Object value) {
+		return value instanceof Optional && !((Optional<?>) value).isPresent();
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+
+/*Acrescenta ao http.server.requests a tag "result", preenchida pelo ApplicationControllerAdvice
+ *para erros tratados e derivada do status HTTP nos demais casos*/
+@Component
+public class LibraryWebMvcTagsProvider extends DefaultWebMvcTagsProvider {
+
+	public static final String RESULT_ATTRIBUTE = LibraryWebMvcTagsProvider.class.getName() + ".RESULT";
+
+	public static final String SUCCESS = "success";
+	public static final String NOT_FOUND = "not_found";
+	public static final String BUSINESS_ERROR = "business_error";
+	public static final String VALIDATION_ERROR = "validation_error";
+	public static final String CONFLICT = "conflict";
+	public static final String ERROR = "error";
+
+	@Override
+	public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler, Throwable exception) {
+		return Tags.of(super.getTags(request, response, handler, exception))
+				.and("result", result(request, response, exception));
+	}
+
+	public static void markResult(HttpServletRequest request, String result) {
+		request.setAttribute(RESULT_ATTRIBUTE, result);
+	}
+
+	private String result(HttpServletRequest request, HttpServletResponse response, Throwable exception) {
+		Object marked = request.getAttribute(RESULT_ATTRIBUTE);
+		if(marked != null) {
+			return marked.toString();
+		}
+		if(exception != null || response == null) {
+			return ERROR;
+		}
+		if(response.getStatus() == HttpStatus.NOT_FOUND.value()) {
+			return NOT_FOUND;
+		}
+		return response.getStatus() < 400 ? SUCCESS : ERROR;
+	}
+
+}
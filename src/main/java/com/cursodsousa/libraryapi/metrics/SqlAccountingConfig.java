@@ -0,0 +1,53 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+@Configuration
+public class SqlAccountingConfig {
+
+	/*Contar linhas lidas exige um proxy por ResultSet, por isso só é ligado no perfil de debug.
+	 *Um roteador de DataSources é contado pelo DataSource que o envolve.*/
+	@Bean
+	public static BeanPostProcessor sqlAccountingDataSourcePostProcessor(Environment environment) {
+		boolean countRows = environment.getProperty("application.sql.debug-headers", Boolean.class, false);
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if(bean instanceof DataSource && !(bean instanceof ProxyDataSource) && !(bean instanceof AbstractRoutingDataSource)) {
+					SqlStatementListener listener = new SqlStatementListener();
+					ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create((DataSource) bean)
+							.name(beanName)
+							.listener(listener);
+					if(countRows) {
+						builder.methodListener(listener).proxyResultSet();
+					}
+					return builder.build();
+				}
+				return bean;
+			}
+		};
+	}
+
+	@Bean
+	public FilterRegistrationBean<SqlAccountingFilter> sqlAccountingFilter(
+			@Value("${application.sql.statement-budget:20}") int statementBudget,
+			@Value("${application.sql.repeated-statement-threshold:5}") int repeatedStatementThreshold,
+			@Value("${application.sql.debug-headers:false}") boolean debugHeaders) {
+		FilterRegistrationBean<SqlAccountingFilter> registration = new FilterRegistrationBean<>(
+				new SqlAccountingFilter(statementBudget, repeatedStatementThreshold, debugHeaders));
+		registration.addUrlPatterns("/api/*");
+		return registration;
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.cursodsousa.libraryapi.metrics.SqlStatementCounter.Stats;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@RequiredArgsConstructor
+public class SqlAccountingFilter extends OncePerRequestFilter {
+
+	private final int statementBudget;
+	private final int repeatedStatementThreshold;
+	private final boolean debugHeaders;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		Stats stats = SqlStatementCounter.start();
+		DebugHeadersResponseWrapper wrapper = debugHeaders ? new DebugHeadersResponseWrapper(response) : null;
+		try {
+			chain.doFilter(request, wrapper == null ? response : wrapper);
+		} finally {
+			SqlStatementCounter.stop();
+			check(request, stats);
+			if(wrapper != null && !wrapper.isEventStream()) {
+				wrapper.setHeader("X-Sql-Statements", String.valueOf(stats.getStatements()));
+				wrapper.setHeader("X-Sql-Rows", String.valueOf(stats.getRows()));
+				wrapper.setHeader("X-Sql-Time-Ms", String.valueOf(stats.getElapsedMillis()));
+			}
+			if(wrapper != null) {
+				wrapper.copyBodyToResponse();
+			}
+		}
+	}
+
+	private void check(HttpServletRequest request, Stats stats) {
+		if(stats.getStatements() > statementBudget) {
+			log.warn("{} {} executed {} sql statements (budget {})",
+					request.getMethod(), request.getRequestURI(), stats.getStatements(), statementBudget);
+		}
+		if(stats.getMaxRepetitions() >= repeatedStatementThreshold) {
+			log.warn("{} {} repeated the same sql statement {} times, possible N+1: {}",
+					request.getMethod(), request.getRequestURI(), stats.getMaxRepetitions(), stats.getMostRepeatedStatement());
+		}
+	}
+
+	/*O corpo fica retido até o fim da requisição para que os cabeçalhos de depuração ainda possam ser escritos.
+	 *Um fluxo SSE não termina enquanto o cliente estiver conectado, então a partir do momento em que a
+	 *resposta se declara text/event-stream o corpo vai direto ao cliente, sem esses cabeçalhos*/
+	private static class DebugHeadersResponseWrapper extends ContentCachingResponseWrapper {
+
+		DebugHeadersResponseWrapper(HttpServletResponse response) {
+			super(response);
+		}
+
+		boolean isEventStream() {
+			String contentType = getContentType();
+			return contentType != null && contentType.startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			return isEventStream() ? getResponse().getOutputStream() : super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			return isEventStream() ? getResponse().getWriter() : super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			if(isEventStream()) {
+				getResponse().flushBuffer();
+			}
+		}
+
+	}
+
+}
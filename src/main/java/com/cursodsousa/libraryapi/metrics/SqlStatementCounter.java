@@ -0,0 +1,70 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+/*Contabiliza, por thread, os comandos SQL executados dentro de um escopo (requisição HTTP ou teste)*/
+public final class SqlStatementCounter {
+
+	private static final ThreadLocal<Stats> CURRENT = new ThreadLocal<>();
+
+	private SqlStatementCounter() {
+	}
+
+	public static Stats start() {
+		Stats stats = new Stats();
+		CURRENT.set(stats);
+		return stats;
+	}
+
+	public static Stats current() {
+		return CURRENT.get();
+	}
+
+	public static Stats stop() {
+		Stats stats = CURRENT.get();
+		CURRENT.remove();
+		return stats;
+	}
+
+	static void recordStatement(String sql, long elapsedMillis, long affectedRows) {
+		Stats stats = CURRENT.get();
+		if(stats != null) {
+			stats.statements++;
+			stats.elapsedMillis += elapsedMillis;
+			stats.rows += affectedRows;
+			stats.shapes.merge(sql, 1, Integer::sum);
+		}
+	}
+
+	static void recordRow() {
+		Stats stats = CURRENT.get();
+		if(stats != null) {
+			stats.rows++;
+		}
+	}
+
+	@Getter
+	public static class Stats {
+
+		private int statements;
+		private long rows;
+		private long elapsedMillis;
+		private final Map<String, Integer> shapes = new HashMap<>();
+
+		public int getMaxRepetitions() {
+			return shapes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+		}
+
+		public String getMostRepeatedStatement() {
+			return shapes.entrySet().stream()
+					.max(Map.Entry.comparingByValue())
+					.map(Map.Entry::getKey)
+					.orElse(null);
+		}
+
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/*Repassa ao SqlStatementCounter cada comando executado e cada linha lida dos ResultSets*/
+public class SqlStatementListener implements QueryExecutionListener, MethodExecutionListener {
+
+	@Override
+	public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+	}
+
+	@Override
+	public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+		SqlStatementCounter.recordStatement(sql, execInfo.getElapsedTime(), affectedRows(execInfo.getResult()));
+	}
+
+	@Override
+	public void beforeMethod(MethodExecutionContext executionContext) {
+	}
+
+	@Override
+	public void afterMethod(MethodExecutionContext executionContext) {
+		if(executionContext.getTarget() instanceof ResultSet
+				&& "next".equals(executionContext.getMethod().getName())
+				&& Boolean.TRUE.equals(executionContext.getResult())) {
+			SqlStatementCounter.recordRow();
+		}
+	}
+
+	private long affectedRows(Object result) {
+		if(result instanceof Integer) {
+			return Math.max(0, (Integer) result);
+		}
+		if(result instanceof int[]) {
+			return Arrays.stream((int[]) result).filter(count -> count > 0).sum();
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.cursodsousa.libraryapi.model.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class BookLoanStats {
+
+	@Id
+	private Long bookId;
+	
+	private Long totalLoans;
+	
+	private Long totalReturns;
+	
+}
@@ -0,0 +1,32 @@
+package com.cursodsousa.libraryapi.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*Registro de um livro excluído, para que a sincronização incremental informe a exclusão*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_book_tombstone_change_seq", columnList = "change_seq, book_id"))
+public class BookTombstone {
+
+	@Id
+	@Column(name = "book_id")
+	private Long bookId;
+	
+	private String isbn;
+	
+	@Column(name = "change_seq", nullable = false)
+	private long changeSeq;
+	
+}
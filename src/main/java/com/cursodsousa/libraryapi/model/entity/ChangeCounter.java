@@ -0,0 +1,26 @@
+package com.cursodsousa.libraryapi.model.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*Último número da sequência de alterações, em uma linha só; o lock da linha ordena os commits de todas as instâncias*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class ChangeCounter {
+
+	public static final long CHANGES = 1;
+
+	@Id
+	private Long id;
+	
+	private long seq;
+	
+}
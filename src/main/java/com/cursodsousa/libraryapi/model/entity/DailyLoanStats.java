@@ -0,0 +1,27 @@
+package com.cursodsousa.libraryapi.model.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class DailyLoanStats {
+
+	@Id
+	private LocalDate day;
+	
+	private Long loans;
+	
+	private Long returns;
+	
+}
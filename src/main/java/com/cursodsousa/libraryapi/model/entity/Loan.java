@@ -4,11 +4,16 @@ import java.time.LocalDate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,18 +25,30 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+	@Index(name = "idx_loan_customer", columnList = "id_customer, returned, loan_date"),
+	@Index(name = "idx_loan_change_seq", columnList = "change_seq, id"),
+	@Index(name = "idx_loan_book_returned", columnList = "id_book, returned")
+})
 public class Loan {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+	@SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
 	private Long id;
 	
+	/*Texto livre dos empréstimos anteriores à tabela customer. O CustomerMigrationService liga esses
+	 *empréstimos a um cliente e limpa as colunas; os novos só gravam id_customer*/
 	@Column(length = 100)
 	private String customer;
 	
 	private String customerEmail;
 	
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "id_customer")
+	private Customer customerAccount;
+	
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "id_book")
 	private Book book;
 	
@@ -39,4 +56,25 @@ public class Loan {
 	
 	private Boolean returned;
 	
+	@Version
+	private Long version;
+	
+	@Column(name = "change_seq", nullable = false)
+	private long changeSeq;
+	
+	public String getCustomer() {
+		return customer == null && customerAccount != null ? customerAccount.getName() : customer;
+	}
+	
+	public String getCustomerEmail() {
+		return customerEmail == null && customerAccount != null ? customerAccount.getEmail() : customerEmail;
+	}
+	
+	/*Liga o empréstimo ao cliente e descarta o texto livre, que passa a ser lido do cadastro*/
+	public void assignCustomer(Customer account) {
+		customerAccount = account;
+		customer = null;
+		customerEmail = null;
+	}
+	
 }
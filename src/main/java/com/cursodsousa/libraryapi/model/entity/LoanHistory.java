@@ -0,0 +1,61 @@
+package com.cursodsousa.libraryapi.model.entity;
+
+import java.time.LocalDate;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/*Empréstimos devolvidos movidos da tabela loan pelo LoanArchiveService; mantém o id original*/
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(indexes = {
+	@Index(name = "idx_loan_history_book", columnList = "id_book, loan_date"),
+	@Index(name = "idx_loan_history_loan_date", columnList = "loan_date")
+})
+public class LoanHistory {
+
+	@Id
+	private Long id;
+	
+	@Column(length = 100)
+	private String customer;
+	
+	private String customerEmail;
+	
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "id_customer")
+	private Customer customerAccount;
+	
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "id_book")
+	private Book book;
+	
+	private LocalDate loanDate;
+	
+	public Loan toLoan() {
+		return Loan.builder()
+				.id(id)
+				.customer(customer)
+				.customerEmail(customerEmail)
+				.customerAccount(customerAccount)
+				.book(book)
+				.loanDate(loanDate)
+				.returned(true)
+				.build();
+	}
+	
+}
@@ -0,0 +1,17 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cursodsousa.libraryapi.model.entity.BookLoanStats;
+
+public interface BookLoanStatsRepository extends JpaRepository<BookLoanStats, Long> {
+
+	@Modifying
+	@Query("update BookLoanStats s set s.totalLoans = coalesce(s.totalLoans, 0) + :loans, "
+			+ "s.totalReturns = coalesce(s.totalReturns, 0) + :returns where s.bookId = :bookId")
+	int addTotals(@Param("bookId") Long bookId, @Param("loans") long loans, @Param("returns") long returns);
+
+}
@@ -1,15 +1,63 @@
 package com.cursodsousa.libraryapi.model.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Loan;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
 
 	boolean existsByIsbn(String isbn);
 
+	@QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
 	Optional<Book> findByIsbn(String isbn);
 
+	List<Book> findByIsbnIn(Collection<String> isbns);
+
+	@Query("select b.version from Book b where b.id = :id")
+	Optional<Long> findVersionById(@Param("id") Long id);
+
+	@Query("select b from Book b where (b.changeSeq > :seq or (b.changeSeq = :seq and b.id > :id)) "
+			+ "and b.changeSeq <= :upTo order by b.changeSeq, b.id")
+	List<Book> findChangedAfter(@Param("seq") long seq, @Param("id") long id, @Param("upTo") long upTo, Pageable page);
+
+	@Query("select coalesce(max(b.changeSeq), 0) from Book b")
+	long findMaxChangeSeq();
+
+	@Query("select b.id, b.title, b.author, b.isbn from Book b where b.id > :after order by b.id")
+	List<Object[]> findSuggestionRowsAfter(@Param("after") long after, Pageable page);
+
+	/*A busca por exemplo restrita aos livros sem (ou com) empréstimo em aberto, com um (not) exists na tabela
+	 *loan: o banco filtra e pagina, e o total vem de um único count*/
+	default Page<Book> findByExampleAndAvailability(Example<Book> example, boolean available, Pageable page) {
+		Specification<Book> specification = (root, query, cb) -> {
+			Subquery<Long> openLoans = query.subquery(Long.class);
+			Root<Loan> loan = openLoans.from(Loan.class);
+			openLoans.select(loan.<Long>get("id")).where(cb.equal(loan.get("book"), root),
+					cb.or(cb.isNull(loan.get("returned")), cb.isFalse(loan.<Boolean>get("returned"))));
+			Predicate availability = available ? cb.not(cb.exists(openLoans)) : cb.exists(openLoans);
+			Predicate matches = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+			return matches == null ? availability : cb.and(matches, availability);
+		};
+		return findAll(specification, page);
+	}
+
 }
@@ -0,0 +1,21 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cursodsousa.libraryapi.model.entity.BookTombstone;
+
+public interface BookTombstoneRepository extends JpaRepository<BookTombstone, Long> {
+
+	@Query("select t from BookTombstone t where (t.changeSeq > :seq or (t.changeSeq = :seq and t.bookId > :id)) "
+			+ "and t.changeSeq <= :upTo order by t.changeSeq, t.bookId")
+	List<BookTombstone> findChangedAfter(@Param("seq") long seq, @Param("id") long id, @Param("upTo") long upTo, Pageable page);
+
+	@Query("select coalesce(max(t.changeSeq), 0) from BookTombstone t")
+	long findMaxChangeSeq();
+
+}
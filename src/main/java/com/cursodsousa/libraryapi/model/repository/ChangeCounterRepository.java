@@ -0,0 +1,21 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cursodsousa.libraryapi.model.entity.ChangeCounter;
+
+public interface ChangeCounterRepository extends JpaRepository<ChangeCounter, Long> {
+
+	@Modifying
+	@Query("update ChangeCounter c set c.seq = c.seq + 1 where c.id = :id")
+	int increment(@Param("id") Long id);
+
+	@Query("select c.seq from ChangeCounter c where c.id = :id")
+	Optional<Long> findValue(@Param("id") Long id);
+
+}
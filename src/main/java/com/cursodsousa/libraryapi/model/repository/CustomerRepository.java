@@ -0,0 +1,21 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.cursodsousa.libraryapi.model.entity.Customer;
+
+public interface CustomerRepository extends JpaRepository<Customer, Long> {
+
+	Optional<Customer> findByEmail(String email);
+
+	Optional<Customer> findFirstByNameAndEmailIsNull(String name);
+
+	List<Customer> findByEmailIn(Collection<String> emails);
+
+	List<Customer> findByNameInAndEmailIsNullOrderById(Collection<String> names);
+
+}
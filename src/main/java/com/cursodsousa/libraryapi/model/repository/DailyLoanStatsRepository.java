@@ -0,0 +1,22 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cursodsousa.libraryapi.model.entity.DailyLoanStats;
+
+public interface DailyLoanStatsRepository extends JpaRepository<DailyLoanStats, LocalDate> {
+
+	List<DailyLoanStats> findByDayBetween(LocalDate from, LocalDate to);
+
+	@Modifying
+	@Query("update DailyLoanStats s set s.loans = coalesce(s.loans, 0) + :loans, "
+			+ "s.returns = coalesce(s.returns, 0) + :returns where s.day = :day")
+	int addTotals(@Param("day") LocalDate day, @Param("loans") long loans, @Param("returns") long returns);
+
+}
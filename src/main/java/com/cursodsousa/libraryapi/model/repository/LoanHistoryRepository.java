@@ -0,0 +1,31 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.LoanHistory;
+
+public interface LoanHistoryRepository extends JpaRepository<LoanHistory, Long> {
+
+	@Modifying
+	@Query(value = "insert into loan_history (id, customer, customer_email, id_customer, id_book, loan_date) "
+			+ "select id, customer, customer_email, id_customer, id_book, loan_date from loan where id in (:ids)", nativeQuery = true)
+	int copyFromLoans(@Param("ids") Collection<Long> ids);
+
+	@EntityGraph(attributePaths = {"book", "customerAccount"})
+	Page<LoanHistory> findByBook(Book book, Pageable pageable);
+
+	long countByBook(Book book);
+
+	@Query("select count(h.id) from LoanHistory h where h.book.id = :bookId")
+	long countByBookId(@Param("bookId") Long bookId);
+
+}
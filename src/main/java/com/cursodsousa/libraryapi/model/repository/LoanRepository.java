@@ -1,15 +1,23 @@
 package com.cursodsousa.libraryapi.model.repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
 import com.cursodsousa.libraryapi.model.entity.Loan;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
@@ -19,12 +27,108 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
 			+ "and (l.returned is null or l.returned is false)")
 	boolean existsByBookAndNotRetruned(@Param("book") Book book);
 
-	@Query("select l from Loan l join l.book b where b.isbn = :isbn or l.customer = :customer")
+	@Query("select distinct l.book.id from Loan l where l.book.id in :bookIds "
+			+ "and (l.returned is null or l.returned is false)")
+	List<Long> findBookIdsWithOpenLoans(@Param("bookIds") Collection<Long> bookIds);
+
+	@Query(value = "select l from Loan l join fetch l.book b left join fetch l.customerAccount c "
+			+ "where b.isbn = :isbn or c.name = :customer or l.customer = :customer",
+			countQuery = "select count(l.id) from Loan l join l.book b left join l.customerAccount c "
+			+ "where b.isbn = :isbn or c.name = :customer or l.customer = :customer")
 	Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer, Pageable page);
 
+	@EntityGraph(attributePaths = {"book", "customerAccount"})
 	Page<Loan> findByBook(Book book, Pageable pageable);
 
-	@Query("select l from Loan l where l.loanDate <= :threDaysAgo and (l.returned is null or l.returned is false)")
+	@EntityGraph(attributePaths = {"book", "customerAccount"})
+	Page<Loan> findByCustomerAccountId(Long customerId, Pageable pageable);
+
+	@Query("select distinct l.customer, l.customerEmail from Loan l where l.customerAccount is null "
+			+ "and (l.customer is not null or l.customerEmail is not null)")
+	List<Object[]> findCustomersWithoutAccount(Pageable pageable);
+
+	@Modifying
+	@Query("update Loan l set l.customerAccount = :account, l.customer = null, l.customerEmail = null "
+			+ "where l.customerAccount is null and l.customerEmail = :email")
+	int linkCustomerByEmail(@Param("account") Customer account, @Param("email") String email);
+
+	@Modifying
+	@Query("update Loan l set l.customerAccount = :account, l.customer = null where l.customerAccount is null "
+			+ "and l.customerEmail is null and l.customer = :name")
+	int linkCustomerByName(@Param("account") Customer account, @Param("name") String name);
+
+	@Modifying
+	@Query("update Loan l set l.customer = null, l.customerEmail = null where l.customerAccount is not null "
+			+ "and (l.customer is not null or l.customerEmail is not null)")
+	int clearLinkedCustomerText();
+
+	/*Só altera o empréstimo que ainda não está na situação pedida (returned nulo conta como em aberto)*/
+	@Modifying
+	@Query("update Loan l set l.returned = :returned, l.version = l.version + 1, l.changeSeq = :changeSeq where l.id = :id "
+			+ "and (l.returned <> :returned or (l.returned is null and :returned = true))")
+	int updateReturned(@Param("id") Long id, @Param("returned") boolean returned, @Param("changeSeq") long changeSeq);
+
+	@Modifying
+	@Query("update Loan l set l.returned = :returned, l.version = l.version + 1, l.changeSeq = :changeSeq "
+			+ "where l.id = :id and l.version in :versions and (l.returned <> :returned or (l.returned is null and :returned = true))")
+	int updateReturnedIfVersionIn(@Param("id") Long id, @Param("returned") boolean returned, @Param("versions") Collection<Long> versions,
+			@Param("changeSeq") long changeSeq);
+
+	@Query("select case when count(l) > 0 then true else false end from Loan l where l.id = :id "
+			+ "and (l.returned = :returned or (l.returned is null and :returned = false))")
+	boolean hasReturned(@Param("id") Long id, @Param("returned") boolean returned);
+
+	@Query("select case when count(l) > 0 then true else false end from Loan l, Loan reopened "
+			+ "where reopened.id = :id and l.book = reopened.book and l.id <> :id and (l.returned is null or l.returned is false)")
+	boolean existsOtherOpenLoan(@Param("id") Long id);
+
+	@Modifying
+	@Query("update Loan l set l.returned = true, l.version = l.version + 1, l.changeSeq = :changeSeq "
+			+ "where l.id in :ids and (l.returned is null or l.returned is false)")
+	int returnByIdIn(@Param("ids") Collection<Long> ids, @Param("changeSeq") long changeSeq);
+
+	@Modifying
+	@Query("update Loan l set l.returned = true, l.version = l.version + 1, l.changeSeq = :changeSeq "
+			+ "where l.book.id in (select b.id from Book b where b.isbn in :isbns) and (l.returned is null or l.returned is false)")
+	int returnByBookIsbnIn(@Param("isbns") Collection<String> isbns, @Param("changeSeq") long changeSeq);
+
+	@Query("select l.book.id from Loan l where l.id = :id")
+	Optional<Long> findBookIdById(@Param("id") Long id);
+
+	/*Com lock nas linhas lidas: uma devolução em lote concorrente espera, e cada devolução é publicada uma vez*/
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select l.id, l.book.id from Loan l where l.id in :ids and (l.returned is null or l.returned is false)")
+	List<Object[]> findOpenByIdIn(@Param("ids") Collection<Long> ids);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select l.id, l.book.id from Loan l where l.book.isbn in :isbns and (l.returned is null or l.returned is false)")
+	List<Object[]> findOpenByBookIsbnIn(@Param("isbns") Collection<String> isbns);
+
+	@EntityGraph(attributePaths = {"book", "customerAccount"})
+	@Query("select l from Loan l where (l.changeSeq > :seq or (l.changeSeq = :seq and l.id > :id)) "
+			+ "and l.changeSeq <= :upTo order by l.changeSeq, l.id")
+	List<Loan> findChangedAfter(@Param("seq") long seq, @Param("id") long id, @Param("upTo") long upTo, Pageable page);
+
+	@Query("select coalesce(max(l.changeSeq), 0) from Loan l")
+	long findMaxChangeSeq();
+
+	@Query("select distinct l.book.id from Loan l where l.book.id > :after and (l.returned is null or l.returned is false) "
+			+ "order by l.book.id")
+	List<Long> findLoanedBookIdsAfter(@Param("after") long after, Pageable page);
+
+	@Query("select l from Loan l left join fetch l.customerAccount where l.loanDate <= :threDaysAgo and (l.returned is null or l.returned is false)")
 	List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threDaysAgo") LocalDate threDaysAgo);
 
+	@Query("select l.id from Loan l where l.returned = true and l.loanDate < :cutoff order by l.id")
+	List<Long> findReturnedIdsBefore(@Param("cutoff") LocalDate cutoff, Pageable page);
+
+	@Modifying
+	@Query("delete from Loan l where l.id in :ids")
+	int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+	/*Maior change_seq e quantidade de empréstimos do livro: toda escrita leva o change_seq além de qualquer
+	 *valor anterior e, entre escritas, o arquivamento só diminui a quantidade, então o par nunca se repete*/
+	@Query("select coalesce(max(l.changeSeq), 0), count(l.id) from Loan l where l.book.id = :bookId")
+	List<Object[]> findLoansVersionByBookId(@Param("bookId") Long bookId);
+
 }
@@ -0,0 +1,143 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+import com.cursodsousa.libraryapi.util.CompressedBitmap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Livros com empréstimo em aberto, em um CompressedBitmap carregado do banco na inicialização e mantido
+ *pelos eventos de empréstimo e devolução após o commit. Responde "está disponível?" sem consultar a
+ *tabela loan. Assume um empréstimo em aberto por livro, como o LoanService garante na criação.*/
+@Service
+@Slf4j
+@Lazy(false)
+@RequiredArgsConstructor
+public class BookAvailabilityService {
+
+	private final LoanRepository loanRepository;
+	private final PlatformTransactionManager transactionManager;
+	private final MeterRegistry registry;
+
+	private final CompressedBitmap loaned = new CompressedBitmap();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	@Value("${application.availability.page-size:10000}")
+	private int pageSize;
+
+	@PostConstruct
+	public void start() {
+		registry.gauge("library.books.loaned", this, service -> service.getLoanedCount());
+		registry.gauge("library.books.availability.bytes", this, service -> service.getEstimatedBytes());
+		rebuild();
+	}
+
+	/*Com o lock de escrita durante toda a leitura: os eventos que chegam nesse meio tempo são aplicados depois.
+	 *A leitura vai ao primário: uma réplica atrasada perderia empréstimos cujos eventos já passaram*/
+	public void rebuild() {
+		long start = System.nanoTime();
+		TransactionTemplate primary = new TransactionTemplate(transactionManager);
+		lock.writeLock().lock();
+		try {
+			loaned.clear();
+			long after = Long.MIN_VALUE;
+			List<Long> ids;
+			do {
+				long from = after;
+				ids = primary.execute(status -> loanRepository.findLoanedBookIdsAfter(from, PageRequest.of(0, pageSize)));
+				for(Long id : ids) {
+					loaned.add(id);
+					after = id;
+				}
+			} while(ids.size() == pageSize);
+			log.info("loaded {} loaned books ({} KB) in {} ms", loaned.getCardinality(), loaned.estimatedBytes() / 1024,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onLoanCheckedOut(LoanCheckedOutEvent event) {
+		Loan loan = event.getLoan();
+		if(loan.getBook() != null && loan.getBook().getId() != null) {
+			update(loan.getBook().getId(), true);
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onLoanReturned(LoanReturnedEvent event) {
+		if(event.getBookId() != null) {
+			update(event.getBookId(), !event.isReturned());
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBookChanged(BookChangedEvent event) {
+		if(event.getType() == BookChangedEvent.Type.DELETED && event.getBook().getId() != null) {
+			update(event.getBook().getId(), false);
+		}
+	}
+
+	/*Ids que não são de nenhum livro aparecem como disponíveis: a resposta não consulta o banco*/
+	public boolean isAvailable(long bookId) {
+		lock.readLock().lock();
+		try {
+			return !loaned.contains(bookId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getLoanedCount() {
+		lock.readLock().lock();
+		try {
+			return loaned.getCardinality();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public long getEstimatedBytes() {
+		lock.readLock().lock();
+		try {
+			return loaned.estimatedBytes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void update(long bookId, boolean isLoaned) {
+		lock.writeLock().lock();
+		try {
+			if(isLoaned) {
+				loaned.add(bookId);
+			} else {
+				loaned.remove(bookId);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+}
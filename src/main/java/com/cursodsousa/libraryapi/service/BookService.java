@@ -1,11 +1,14 @@
 package com.cursodsousa.libraryapi.service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.util.ChangeToken;
 
 public interface BookService {
 
@@ -19,6 +22,16 @@ public interface BookService {
 
 	Page<Book> find(Book filter, Pageable pageRequest);
 
+	Page<Book> find(Book filter, boolean available, Pageable pageRequest);
+
 	Optional<Book> getBookByIsbn(String isbn);
 
+	Optional<Long> getVersion(Long id);
+
+	List<Book> getByIds(Collection<Long> ids);
+
+	List<Book> getByIsbns(Collection<String> isbns);
+
+	ChangeSet<Book> getChanges(ChangeToken since, int limit);
+
 }
@@ -0,0 +1,226 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+import com.cursodsousa.libraryapi.util.SuggestionIndex;
+import com.cursodsousa.libraryapi.util.SuggestionIndex.Document;
+import com.cursodsousa.libraryapi.util.SuggestionIndex.Query;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Autocomplete de títulos, autores e ISBNs sem consultar o banco.
+ *O SuggestionIndex é reconstruído em segundo plano na inicialização e a cada rebuild-interval-ms, com a
+ *popularidade do BorrowingStatisticsService. Entre reconstruções, os livros criados, alterados ou excluídos
+ *(eventos após o commit) ficam em uma lista pequena que tem prioridade sobre a versão indexada, com um mapa
+ *ordenado de termos e ISBNs para que cada consulta só examine os pendentes com o prefixo digitado. Se ela
+ *passa de max-pending livros, a reconstrução é antecipada. Até a primeira reconstrução terminar não há sugestões.*/
+@Service
+@Slf4j
+@Lazy(false)
+@RequiredArgsConstructor
+public class BookSuggestService {
+
+	private static final int CACHED_PREFIX_LENGTH = 3;
+
+	private final BookRepository repository;
+	private final BorrowingStatisticsService statistics;
+	private final PlatformTransactionManager transactionManager;
+	private final MeterRegistry registry;
+
+	private final Map<Long, PendingChange> pending = new ConcurrentHashMap<>();
+	private final NavigableMap<String, Set<Long>> pendingKeys = new ConcurrentSkipListMap<>();
+	private final AtomicLong changes = new AtomicLong();
+	private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+	@Value("${application.suggest.enabled:true}")
+	private boolean enabled;
+
+	@Value("${application.suggest.rebuild-interval-ms:600000}")
+	private long rebuildIntervalMillis;
+
+	@Value("${application.suggest.max-pending:10000}")
+	private int maxPending;
+
+	@Value("${application.suggest.page-size:10000}")
+	private int pageSize;
+
+	@Value("${application.suggest.max-limit:20}")
+	private int maxLimit;
+
+	private volatile SuggestionIndex index = SuggestionIndex.EMPTY;
+	private volatile long indexBytes;
+	private ScheduledExecutorService rebuilds;
+
+	@PostConstruct
+	public void start() {
+		registry.gauge("library.books.suggest.index.bytes", this, service -> service.indexBytes);
+		registry.gauge("library.books.suggest.pending", pending, Map::size);
+		if(!enabled) {
+			return;
+		}
+		rebuilds = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "book-suggest-index");
+			thread.setDaemon(true);
+			return thread;
+		});
+		rebuilds.scheduleWithFixedDelay(this::rebuildQuietly, 0, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if(rebuilds != null) {
+			rebuilds.shutdownNow();
+		}
+	}
+
+	public List<Long> suggest(String text, int limit) {
+		Query query = Query.parse(text);
+		if(query.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Long> ids = new ArrayList<>(index.suggest(query, limit, pending::containsKey));
+		Set<Long> candidates = new HashSet<>();
+		for(String key : query.keys()) {
+			pendingKeys.subMap(key, key + Character.MAX_VALUE).values().forEach(candidates::addAll);
+		}
+		for(Long bookId : candidates) {
+			PendingChange change = pending.get(bookId);
+			if(change != null && change.document != null && change.document.matches(query)) {
+				ids.add(bookId);
+			}
+		}
+		Map<Long, Long> loans = statistics.getLoansByBooks(ids);
+		ids.sort(Comparator.comparingLong((Long id) -> loans.get(id)).reversed());
+		return ids.size() > limit ? ids.subList(0, limit) : ids;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBookChanged(BookChangedEvent event) {
+		Book book = event.getBook();
+		Document document = event.getType() == BookChangedEvent.Type.DELETED ? null
+				: new Document(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+		putPending(book.getId(), new PendingChange(changes.incrementAndGet(), document));
+		if(rebuilds != null && pending.size() > maxPending && rebuildRequested.compareAndSet(false, true)) {
+			rebuilds.execute(this::rebuildQuietly);
+		}
+	}
+
+	/*As alterações anteriores ao início da leitura já estão no banco e entram no novo índice; as demais continuam
+	 *pendentes. Por isso a leitura não é somente leitura: iria para uma réplica, que pode não ter essas alterações*/
+	public synchronized void rebuild() {
+		rebuildRequested.set(false);
+		long startedAt = changes.get();
+		long start = System.nanoTime();
+		TransactionTemplate primary = new TransactionTemplate(transactionManager);
+		SuggestionIndex.Builder builder = new SuggestionIndex.Builder();
+		long after = Long.MIN_VALUE;
+		List<Object[]> rows;
+		do {
+			long from = after;
+			rows = primary.execute(status -> repository.findSuggestionRowsAfter(from, PageRequest.of(0, pageSize)));
+			Map<Long, Long> loans = statistics.getLoansByBooks(rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList()));
+			for(Object[] row : rows) {
+				long bookId = (Long) row[0];
+				builder.add(bookId, (String) row[1], (String) row[2], (String) row[3], loans.get(bookId));
+				after = bookId;
+			}
+		} while(rows.size() == pageSize);
+		SuggestionIndex rebuilt = builder.build(CACHED_PREFIX_LENGTH, 2 * maxLimit);
+		index = rebuilt;
+		indexBytes = rebuilt.estimatedBytes();
+		pending.forEach((bookId, change) -> {
+			if(change.seq <= startedAt) {
+				removePending(bookId, change);
+			}
+		});
+		log.info("rebuilt book suggestion index with {} books ({} KB) in {} ms", rebuilt.size(), indexBytes / 1024,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	private void putPending(long bookId, PendingChange change) {
+		synchronized(pendingKeys) {
+			PendingChange previous = pending.put(bookId, change);
+			unindex(bookId, previous, change);
+			if(change.document != null) {
+				change.document.keys().forEach(key -> pendingKeys.computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet()).add(bookId));
+			}
+		}
+	}
+
+	private void removePending(long bookId, PendingChange change) {
+		synchronized(pendingKeys) {
+			if(pending.remove(bookId, change)) {
+				unindex(bookId, change, null);
+			}
+		}
+	}
+
+	/*Tira o livro das chaves da versão removida que a versão atual não tem*/
+	private void unindex(long bookId, PendingChange removed, PendingChange current) {
+		if(removed == null || removed.document == null) {
+			return;
+		}
+		Set<String> kept = current != null && current.document != null ? current.document.keys() : Collections.emptySet();
+		for(String key : removed.document.keys()) {
+			Set<Long> bookIds = pendingKeys.get(key);
+			if(bookIds != null && !kept.contains(key)) {
+				bookIds.remove(bookId);
+				if(bookIds.isEmpty()) {
+					pendingKeys.remove(key, bookIds);
+				}
+			}
+		}
+	}
+
+	private void rebuildQuietly() {
+		try {
+			rebuild();
+		} catch (RuntimeException e) {
+			log.error("book suggestion index rebuild failed", e);
+		}
+	}
+
+	private static final class PendingChange {
+
+		private final long seq;
+		private final Document document;
+
+		PendingChange(long seq, Document document) {
+			this.seq = seq;
+			this.document = document;
+		}
+
+	}
+
+}
@@ -0,0 +1,254 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.BookLoanStats;
+import com.cursodsousa.libraryapi.model.entity.DailyLoanStats;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.BookLoanStatsRepository;
+import com.cursodsousa.libraryapi.model.repository.DailyLoanStatsRepository;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+import com.cursodsousa.libraryapi.util.SlidingWindowTopK;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Estatísticas de empréstimos e devoluções contadas a cada evento confirmado, sem GROUP BY na tabela loan.
+ *Em memória ficam só o ranking recente e os incrementos desta instância ainda não gravados, que o checkpoint
+ *soma ao banco (total = total + delta); assim várias instâncias somam em vez de sobrescreverem umas às outras.
+ *Os totais são lidos das tabelas de estatísticas, mais os incrementos locais pendentes.*/
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BorrowingStatisticsService {
+
+	private static final long HOUR_MILLIS = 60 * 60 * 1000;
+
+	private final BookLoanStatsRepository bookStatsRepository;
+	private final DailyLoanStatsRepository dailyStatsRepository;
+	private final PlatformTransactionManager transactionManager;
+	private final EntityManager entityManager;
+
+	/*Só as chaves com incrementos não gravados; o checkpoint remove as que zerou*/
+	private final Map<Long, Tally> byBook = new ConcurrentHashMap<>();
+	private final Map<LocalDate, Tally> byDay = new ConcurrentHashMap<>();
+
+	@Value("${application.stats.trending.top-k:10}")
+	private int topK;
+
+	@Value("${application.stats.trending.window-hours:24}")
+	private int windowHours;
+
+	private SlidingWindowTopK trending;
+
+	@PostConstruct
+	public void load() {
+		trending = new SlidingWindowTopK(topK, windowHours, HOUR_MILLIS, 4, 2048, System.currentTimeMillis());
+	}
+
+	public int getTopK() {
+		return topK;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onLoanCheckedOut(LoanCheckedOutEvent event) {
+		Loan loan = event.getLoan();
+		if(loan.getBook() == null || loan.getBook().getId() == null) {
+			return;
+		}
+		Long bookId = loan.getBook().getId();
+		LocalDate day = loan.getLoanDate() != null ? loan.getLoanDate() : LocalDate.now();
+		add(byBook, bookId, 1, 0);
+		add(byDay, day, 1, 0);
+		trending.add(bookId, System.currentTimeMillis());
+	}
+
+	/*Conta a devolução no dia em que foi registrada; reabrir um empréstimo não desfaz a contagem*/
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onLoanReturned(LoanReturnedEvent event) {
+		if(!event.isReturned() || event.getBookId() == null) {
+			return;
+		}
+		add(byBook, event.getBookId(), 0, 1);
+		add(byDay, LocalDate.now(), 0, 1);
+	}
+
+	/*Total de empréstimos de cada livro, em uma consulta; livros sem estatística ficam com zero*/
+	public Map<Long, Long> getLoansByBooks(Collection<Long> bookIds) {
+		Map<Long, Long> loans = new HashMap<>();
+		if(bookIds.isEmpty()) {
+			return loans;
+		}
+		bookIds.forEach(bookId -> loans.put(bookId, unsaved(byBook, bookId)[0]));
+		bookStatsRepository.findAllById(bookIds).forEach(stats -> loans.merge(stats.getBookId(), orZero(stats.getTotalLoans()), Long::sum));
+		return loans;
+	}
+
+	public BookLoanStats getBookStats(Long bookId) {
+		long[] unsaved = unsaved(byBook, bookId);
+		Optional<BookLoanStats> saved = bookStatsRepository.findById(bookId);
+		return BookLoanStats.builder()
+				.bookId(bookId)
+				.totalLoans(unsaved[0] + saved.map(stats -> orZero(stats.getTotalLoans())).orElse(0L))
+				.totalReturns(unsaved[1] + saved.map(stats -> orZero(stats.getTotalReturns())).orElse(0L))
+				.build();
+	}
+
+	public List<DailyLoanStats> getDailyStats(LocalDate from, LocalDate to) {
+		Map<LocalDate, DailyLoanStats> saved = new HashMap<>();
+		dailyStatsRepository.findByDayBetween(from, to).forEach(stats -> saved.put(stats.getDay(), stats));
+		List<DailyLoanStats> result = new ArrayList<>();
+		for(LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+			long[] unsaved = unsaved(byDay, day);
+			DailyLoanStats stats = saved.get(day);
+			result.add(DailyLoanStats.builder()
+					.day(day)
+					.loans(unsaved[0] + (stats == null ? 0 : orZero(stats.getLoans())))
+					.returns(unsaved[1] + (stats == null ? 0 : orZero(stats.getReturns())))
+					.build());
+		}
+		return result;
+	}
+
+	public List<Entry<Long, Long>> getTrending(int limit) {
+		return trending.top(limit, System.currentTimeMillis());
+	}
+
+	@Scheduled(fixedDelayString = "${application.stats.checkpoint-interval-ms:60000}")
+	public synchronized void checkpoint() {
+		int books = flush(byBook, new DeltaWriter<Long>() {
+			@Override
+			public int add(Long bookId, long loans, long returns) {
+				return bookStatsRepository.addTotals(bookId, loans, returns);
+			}
+			@Override
+			public Object create(Long bookId, long loans, long returns) {
+				return BookLoanStats.builder().bookId(bookId).totalLoans(loans).totalReturns(returns).build();
+			}
+		});
+		int days = flush(byDay, new DeltaWriter<LocalDate>() {
+			@Override
+			public int add(LocalDate day, long loans, long returns) {
+				return dailyStatsRepository.addTotals(day, loans, returns);
+			}
+			@Override
+			public Object create(LocalDate day, long loans, long returns) {
+				return DailyLoanStats.builder().day(day).loans(loans).returns(returns).build();
+			}
+		});
+		if(books > 0 || days > 0) {
+			log.info("checkpointed loan statistics for {} books and {} days", books, days);
+		}
+	}
+
+	/*Os incrementos de todas as chaves vão em uma transação; as chaves ainda sem linha são inseridas uma a uma
+	 *e, se outra instância inseriu antes, voltam a ser incrementadas. Em caso de falha continuam pendentes.*/
+	private <K> int flush(Map<K, Tally> tallies, DeltaWriter<K> writer) {
+		Map<K, long[]> deltas = new LinkedHashMap<>();
+		tallies.forEach((key, tally) -> deltas.put(key, tally.unsaved()));
+		if(deltas.isEmpty()) {
+			return 0;
+		}
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		try {
+			List<K> missing = transaction.execute(status -> {
+				List<K> keys = new ArrayList<>();
+				deltas.forEach((key, delta) -> {
+					if(writer.add(key, delta[0], delta[1]) == 0) {
+						keys.add(key);
+					}
+				});
+				return keys;
+			});
+			deltas.forEach((key, delta) -> {
+				if(!missing.contains(key)) {
+					add(tallies, key, -delta[0], -delta[1]);
+				}
+			});
+			for(K key : missing) {
+				long[] delta = deltas.get(key);
+				insertOrAdd(transaction, writer, key, delta);
+				add(tallies, key, -delta[0], -delta[1]);
+			}
+		} catch (RuntimeException e) {
+			log.error("could not checkpoint loan statistics, keeping {} keys for the next attempt", deltas.size(), e);
+			return 0;
+		}
+		return deltas.size();
+	}
+
+	private <K> void insertOrAdd(TransactionTemplate transaction, DeltaWriter<K> writer, K key, long[] delta) {
+		try {
+			transaction.execute(status -> {
+				entityManager.persist(writer.create(key, delta[0], delta[1]));
+				return null;
+			});
+		} catch (RuntimeException e) {
+			Integer updated = transaction.execute(status -> writer.add(key, delta[0], delta[1]));
+			if(updated == null || updated == 0) {
+				throw e;
+			}
+		}
+	}
+
+	/*Soma e remoção da chave zerada acontecem no mesmo compute, então um evento concorrente nunca cai em um Tally descartado*/
+	private static <K> void add(Map<K, Tally> tallies, K key, long loans, long returns) {
+		tallies.compute(key, (ignored, tally) -> {
+			Tally current = tally == null ? new Tally() : tally;
+			current.loans += loans;
+			current.returns += returns;
+			return current.loans == 0 && current.returns == 0 ? null : current;
+		});
+	}
+
+	private static <K> long[] unsaved(Map<K, Tally> tallies, K key) {
+		Tally tally = tallies.get(key);
+		return tally == null ? new long[2] : tally.unsaved();
+	}
+
+	private static long orZero(Long value) {
+		return value == null ? 0 : value;
+	}
+
+	private interface DeltaWriter<K> {
+
+		/*Soma o delta à linha existente e retorna quantas linhas mudaram*/
+		int add(K key, long loans, long returns);
+
+		Object create(K key, long loans, long returns);
+
+	}
+
+	/*Incrementos ainda não gravados; só alterados dentro de compute na chave, por isso sem outro lock*/
+	private static final class Tally {
+
+		private volatile long loans;
+		private volatile long returns;
+
+		long[] unsaved() {
+			return new long[] {loans, returns};
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.cursodsousa.libraryapi.service;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.ChangeCounter;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.model.repository.BookTombstoneRepository;
+import com.cursodsousa.libraryapi.model.repository.ChangeCounterRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/*Sequência de alterações gravada em change_seq por toda escrita de livros e empréstimos feita pelos serviços.
+ *Cada transação recebe um único número, na primeira escrita, incrementando a linha de change_counter na
+ *própria transação. O lock dessa linha fica com ela até o commit ou rollback, então as transações de todas
+ *as instâncias confirmam na ordem dos números, e o valor confirmado do contador é a watermark: todas as
+ *linhas com número até ele já estão visíveis. Por isso next() deve vir antes das demais escritas da transação.
+ *Uma instância que cai libera o lock com a conexão; não há estado em memória entre instâncias.*/
+@Component
+@RequiredArgsConstructor
+public class ChangeSequence {
+
+	private final BookRepository bookRepository;
+	private final BookTombstoneRepository tombstoneRepository;
+	private final LoanRepository loanRepository;
+	private final ChangeCounterRepository counterRepository;
+	private final PlatformTransactionManager transactionManager;
+
+	/*Cria o contador a partir das tabelas na primeira inicialização; se outra instância o criou antes, usa o dela*/
+	@PostConstruct
+	public void load() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		if(transaction.execute(status -> counterRepository.existsById(ChangeCounter.CHANGES))) {
+			return;
+		}
+		try {
+			transaction.execute(status -> counterRepository.saveAndFlush(ChangeCounter.builder()
+					.id(ChangeCounter.CHANGES)
+					.seq(Math.max(bookRepository.findMaxChangeSeq(), Math.max(tombstoneRepository.findMaxChangeSeq(), loanRepository.findMaxChangeSeq())))
+					.build()));
+		} catch (DataIntegrityViolationException e) {
+			if(!transaction.execute(status -> counterRepository.existsById(ChangeCounter.CHANGES))) {
+				throw e;
+			}
+		}
+	}
+
+	public long next() {
+		if(!TransactionSynchronizationManager.isActualTransactionActive()) {
+			return new TransactionTemplate(transactionManager).execute(status -> increment());
+		}
+		Long current = (Long) TransactionSynchronizationManager.getResource(this);
+		if(current != null) {
+			return current;
+		}
+		long seq = increment();
+		TransactionSynchronizationManager.bindResource(this, seq);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(ChangeSequence.this);
+			}
+		});
+		return seq;
+	}
+
+	/*Lido na transação de quem consulta as alterações, da mesma conexão que lê as linhas*/
+	public long watermark() {
+		return counterRepository.findValue(ChangeCounter.CHANGES).orElse(0l);
+	}
+
+	private long increment() {
+		counterRepository.increment(ChangeCounter.CHANGES);
+		return counterRepository.findValue(ChangeCounter.CHANGES)
+				.orElseThrow(() -> new IllegalStateException("Contador da sequência de alterações não inicializado."));
+	}
+
+}
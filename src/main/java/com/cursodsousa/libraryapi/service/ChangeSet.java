@@ -0,0 +1,20 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.util.List;
+
+import com.cursodsousa.libraryapi.util.ChangeToken;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*Um bloco da sincronização incremental: as linhas alteradas, os ids excluídos e o token para o próximo bloco*/
+@Getter
+@AllArgsConstructor
+public class ChangeSet<T> {
+
+	private final List<T> changed;
+	private final List<Long> deleted;
+	private final ChangeToken next;
+	private final boolean hasMore;
+
+}
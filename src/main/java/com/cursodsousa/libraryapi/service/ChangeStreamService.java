@@ -0,0 +1,247 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cursodsousa.libraryapi.api.dto.BookDTO;
+import com.cursodsousa.libraryapi.api.dto.ChangeEventDTO;
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Fluxo SSE das alterações de livros e empréstimos, publicadas depois do commit.
+ * - cada evento recebe um id <inicialização>-<sequência> e fica num log em memória com os últimos
+ *   replay-size eventos, usado para retomar a conexão a partir do Last-Event-ID;
+ * - cada assinante tem uma fila limitada esvaziada por um pool pequeno de threads de envio, então a
+ *   thread que fez o commit nunca espera um cliente;
+ * - o assinante cuja fila enche é desconectado e, ao reconectar, retoma pelo log ou recebe stream.reset.
+ *A sequência recomeça a cada inicialização, então um Last-Event-ID de outra inicialização gera stream.reset.*/
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChangeStreamService {
+
+	static final String RESET = "stream.reset";
+
+	private final ModelMapper mapper;
+	private final MeterRegistry registry;
+
+	private final String bootId = UUID.randomUUID().toString().substring(0, 8);
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final Deque<ChangeEventDTO> replayLog = new ArrayDeque<>();
+	private long lastId;
+
+	@Value("${application.stream.replay-size:10000}")
+	private int replaySize;
+
+	@Value("${application.stream.buffer-size:1000}")
+	private int bufferSize;
+
+	@Value("${application.stream.sender-threads:4}")
+	private int senderThreads;
+
+	@Value("${application.stream.timeout-millis:1800000}")
+	private long timeoutMillis;
+
+	private ExecutorService senders;
+	private Counter slowDisconnects;
+
+	@PostConstruct
+	public void start() {
+		AtomicInteger threads = new AtomicInteger();
+		senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+			Thread thread = new Thread(runnable, "change-stream-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		registry.gaugeCollectionSize("library.stream.subscribers", Tags.empty(), subscribers);
+		slowDisconnects = registry.counter("library.stream.disconnected.slow");
+	}
+
+	@PreDestroy
+	public void stop() {
+		subscribers.forEach(this::close);
+		senders.shutdownNow();
+	}
+
+	/*Registra o assinante e enfileira, antes de qualquer evento novo, os eventos posteriores ao lastEventId*/
+	public SseEmitter subscribe(String lastEventId) {
+		Subscriber subscriber = new Subscriber(newEmitter(), new ArrayBlockingQueue<>(bufferSize));
+		subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+		subscriber.emitter.onTimeout(() -> close(subscriber));
+		subscriber.emitter.onError(error -> close(subscriber));
+		synchronized(this) {
+			if(lastEventId != null) {
+				replay(subscriber, lastEventId);
+			}
+			subscribers.add(subscriber);
+		}
+		schedule(subscriber);
+		return subscriber.emitter;
+	}
+
+	SseEmitter newEmitter() {
+		return new SseEmitter(timeoutMillis);
+	}
+
+	String eventId(long sequence) {
+		return bootId + "-" + sequence;
+	}
+
+	private void replay(Subscriber subscriber, String lastEventId) {
+		Long sequence = sequenceOf(lastEventId);
+		long oldest = replayLog.isEmpty() ? lastId + 1 : replayLog.peekFirst().getId();
+		if(sequence == null || sequence > lastId || sequence < oldest - 1) {
+			subscriber.queue.offer(ChangeEventDTO.builder().id(lastId).type(RESET).build());
+			return;
+		}
+		for(ChangeEventDTO event : replayLog) {
+			if(event.getId() > sequence && !subscriber.queue.offer(event)) {
+				subscriber.queue.clear();
+				subscriber.queue.offer(ChangeEventDTO.builder().id(lastId).type(RESET).build());
+				return;
+			}
+		}
+	}
+
+	/*null quando o id é de outra inicialização ou não está no formato deste fluxo*/
+	private Long sequenceOf(String lastEventId) {
+		String prefix = bootId + "-";
+		if(!lastEventId.startsWith(prefix)) {
+			return null;
+		}
+		try {
+			return Long.valueOf(lastEventId.substring(prefix.length()));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBookChanged(BookChangedEvent event) {
+		Book book = event.getBook();
+		publish(ChangeEventDTO.builder()
+				.type("book." + event.getType().name().toLowerCase())
+				.bookId(book.getId())
+				.book(event.getType() == BookChangedEvent.Type.DELETED ? null : mapper.map(book, BookDTO.class))
+				.build());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onLoanCheckedOut(LoanCheckedOutEvent event) {
+		Loan loan = event.getLoan();
+		publish(ChangeEventDTO.builder()
+				.type("loan.checked-out")
+				.loanId(loan.getId())
+				.bookId(loan.getBook() == null ? null : loan.getBook().getId())
+				.returned(false)
+				.build());
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onLoanReturned(LoanReturnedEvent event) {
+		publish(ChangeEventDTO.builder()
+				.type(event.isReturned() ? "loan.returned" : "loan.reopened")
+				.loanId(event.getLoanId())
+				.bookId(event.getBookId())
+				.returned(event.isReturned())
+				.build());
+	}
+
+	void publish(ChangeEventDTO event) {
+		synchronized(this) {
+			event.setId(++lastId);
+			replayLog.addLast(event);
+			if(replayLog.size() > replaySize) {
+				replayLog.removeFirst();
+			}
+			for(Subscriber subscriber : subscribers) {
+				if(!subscriber.queue.offer(event)) {
+					slowDisconnects.increment();
+					log.warn("disconnecting slow change stream subscriber with {} pending events", subscriber.queue.size());
+					close(subscriber);
+				}
+			}
+		}
+		subscribers.forEach(this::schedule);
+	}
+
+	private void schedule(Subscriber subscriber) {
+		if(!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+			senders.execute(() -> drain(subscriber));
+		}
+	}
+
+	private void drain(Subscriber subscriber) {
+		try {
+			ChangeEventDTO event;
+			while(!subscriber.closed && (event = subscriber.queue.poll()) != null) {
+				subscriber.emitter.send(SseEmitter.event()
+						.id(eventId(event.getId()))
+						.name(event.getType())
+						.data(event, MediaType.APPLICATION_JSON));
+			}
+		} catch (IOException | IllegalStateException e) {
+			close(subscriber);
+		} finally {
+			subscriber.draining.set(false);
+		}
+		if(!subscriber.closed) {
+			schedule(subscriber);
+		}
+	}
+
+	private void close(Subscriber subscriber) {
+		subscriber.closed = true;
+		subscribers.remove(subscriber);
+		subscriber.queue.clear();
+		try {
+			subscriber.emitter.complete();
+		} catch (IllegalStateException e) {
+			/*já encerrado pelo container*/
+		}
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	@RequiredArgsConstructor
+	private static class Subscriber {
+
+		private final SseEmitter emitter;
+		private final BlockingQueue<ChangeEventDTO> queue;
+		private final AtomicBoolean draining = new AtomicBoolean();
+		private volatile boolean closed;
+
+	}
+
+}
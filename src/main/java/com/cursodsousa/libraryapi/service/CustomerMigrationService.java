@@ -0,0 +1,76 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.repository.CustomerRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Migra os empréstimos antigos, que só guardam nome e email em texto, para a tabela customer:
+ *cada par distinto vira um cliente e os empréstimos passam a referenciá-lo pelo id, sem o texto.
+ *Só olha empréstimos sem cliente ou com texto repetido, então pode rodar a cada inicialização*/
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CustomerMigrationService {
+
+	private final LoanRepository loanRepository;
+	private final CustomerRepository customerRepository;
+	private final PlatformTransactionManager transactionManager;
+	
+	@Value("${application.customers.migration.enabled:true}")
+	private boolean enabled;
+	
+	@Value("${application.customers.migration.batch-size:500}")
+	private int batchSize;
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void onStartup() {
+		if(enabled) {
+			migrate();
+		}
+	}
+	
+	public long migrate() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		long linked = 0;
+		int pairs = 0;
+		List<Object[]> pending;
+		do {
+			pending = transaction.execute(status -> loanRepository.findCustomersWithoutAccount(PageRequest.of(0, batchSize)));
+			for(Object[] pair : pending) {
+				linked += transaction.execute(status -> link((String) pair[0], (String) pair[1]));
+			}
+			pairs += pending.size();
+		} while(pending.size() == batchSize);
+		int cleared = transaction.execute(status -> loanRepository.clearLinkedCustomerText());
+		if(linked > 0 || cleared > 0) {
+			log.info("linked {} loans from {} distinct customer name/email pairs, cleared the customer text of {} loans",
+					linked, pairs, cleared);
+		}
+		return linked;
+	}
+	
+	private int link(String name, String email) {
+		if(email != null) {
+			Customer customer = customerRepository.findByEmail(email)
+					.orElseGet(() -> customerRepository.save(Customer.builder().name(name).email(email).build()));
+			return loanRepository.linkCustomerByEmail(customer, email);
+		}
+		Customer customer = customerRepository.findFirstByNameAndEmailIsNull(name)
+				.orElseGet(() -> customerRepository.save(Customer.builder().name(name).build()));
+		return loanRepository.linkCustomerByName(customer, name);
+	}
+	
+}
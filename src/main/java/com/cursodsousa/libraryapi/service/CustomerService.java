@@ -0,0 +1,17 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.util.List;
+import java.util.Optional;
+
+import com.cursodsousa.libraryapi.model.entity.Customer;
+
+public interface CustomerService {
+
+	Customer resolve(String name, String email);
+
+	/*Um cliente para cada pedido (nome e email, sem id), na mesma ordem*/
+	List<Customer> resolveAll(List<Customer> requested);
+
+	Optional<Customer> getById(Long id);
+
+}
@@ -0,0 +1,67 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.repository.LoanHistoryRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Move empréstimos devolvidos há mais de application.loans.archive.age-days dias para loan_history,
+ *em lotes de uma transação cada, mantendo a tabela loan pequena*/
+@Service
+@Lazy(false)
+@Slf4j
+@RequiredArgsConstructor
+public class LoanArchiveService {
+
+	private final LoanRepository loanRepository;
+	private final LoanHistoryRepository historyRepository;
+	private final PlatformTransactionManager transactionManager;
+	private final MeterRegistry registry;
+	
+	@Value("${application.loans.archive.age-days:90}")
+	private int ageDays;
+	
+	@Value("${application.loans.archive.batch-size:1000}")
+	private int batchSize;
+	
+	@Scheduled(cron = "${application.loans.archive.cron:0 0 3 * * ?}")
+	public long archiveReturnedLoans() {
+		LocalDate cutoff = LocalDate.now().minusDays(ageDays);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		Timer batchTimer = registry.timer("library.loans.archive.batch");
+		long total = 0;
+		int moved;
+		do {
+			moved = batchTimer.record(() -> transaction.execute(status -> moveBatch(cutoff)));
+			registry.counter("library.loans.archived").increment(moved);
+			total += moved;
+		} while(moved == batchSize);
+		log.info("archived {} loans returned before {}", total, cutoff);
+		return total;
+	}
+	
+	private int moveBatch(LocalDate cutoff) {
+		List<Long> ids = loanRepository.findReturnedIdsBefore(cutoff, PageRequest.of(0, batchSize));
+		if(ids.isEmpty()) {
+			return 0;
+		}
+		historyRepository.copyFromLoans(ids);
+		loanRepository.deleteByIdIn(ids);
+		return ids.size();
+	}
+	
+}
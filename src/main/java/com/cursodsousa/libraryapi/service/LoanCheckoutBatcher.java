@@ -0,0 +1,232 @@
+package com.cursodsousa.libraryapi.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.exception.BusinessException;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Commit em grupo dos empréstimos: as requisições que chegam dentro de application.loans.checkout.batch-window-ms
+ *são gravadas por uma única thread em uma transação com inserts em lote. Cada chamador recebe o seu empréstimo
+ *ou o seu próprio erro de negócio. Com janela zero, com a fila cheia ou sem a thread do lote viva, o empréstimo
+ *é salvo direto pelo LoanService; também é quem esperou na fila além de application.loans.checkout.timeout-ms*/
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LoanCheckoutBatcher {
+
+	private final LoanService loanService;
+	private final LoanRepository repository;
+	private final CustomerService customerService;
+	private final ChangeSequence changeSequence;
+	private final ApplicationEventPublisher eventPublisher;
+	private final PlatformTransactionManager transactionManager;
+	private final MeterRegistry registry;
+
+	@Value("${application.loans.checkout.batch-window-ms:2}")
+	private long windowMillis;
+
+	@Value("${application.loans.checkout.max-batch-size:100}")
+	private int maxBatchSize;
+
+	@Value("${application.loans.checkout.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${application.loans.checkout.timeout-ms:5000}")
+	private long timeoutMillis;
+
+	private BlockingQueue<PendingCheckout> queue;
+	private TransactionTemplate transaction;
+	private DistributionSummary batchSizes;
+	private volatile Thread worker;
+
+	@PostConstruct
+	public void start() {
+		if(windowMillis <= 0) {
+			return;
+		}
+		queue = new LinkedBlockingQueue<>(queueCapacity);
+		transaction = new TransactionTemplate(transactionManager);
+		batchSizes = registry.summary("library.loans.checkout.batch.size");
+		worker = new Thread(this::run, "loan-group-commit");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		Thread current = worker;
+		if(current == null) {
+			return;
+		}
+		worker = null;
+		current.interrupt();
+		current.join(TimeUnit.SECONDS.toMillis(5));
+		List<PendingCheckout> abandoned = new ArrayList<>();
+		queue.drainTo(abandoned);
+		abandoned.forEach(pending -> pending.future.completeExceptionally(new IllegalStateException("Aplicação em desligamento.")));
+	}
+
+	public Loan checkout(Loan loan) {
+		PendingCheckout pending = new PendingCheckout(loan);
+		Thread current = worker;
+		if(current == null || !current.isAlive() || !queue.offer(pending)) {
+			return loanService.save(loan);
+		}
+		try {
+			try {
+				return pending.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				/*Ainda na fila, nenhum lote o gravou; fora dela já está no lote em andamento, que sempre conclui
+				 *o future (gravado, com erro ou no desligamento), então espera por ele em vez de responder um erro
+				 *para um empréstimo que ainda pode ser gravado*/
+				if(queue.remove(pending)) {
+					return loanService.save(loan);
+				}
+				return pending.future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private void run() {
+		List<PendingCheckout> batch = new ArrayList<>(maxBatchSize);
+		long windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		while(!Thread.currentThread().isInterrupted()) {
+			try {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + windowNanos;
+				while(batch.size() < maxBatchSize) {
+					PendingCheckout next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if(next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				commit(batch);
+			} catch (InterruptedException e) {
+				batch.forEach(pending -> pending.future.completeExceptionally(new IllegalStateException("Aplicação em desligamento.")));
+				Thread.currentThread().interrupt();
+			} catch (RuntimeException e) {
+				log.error("loan group commit failed", e);
+				batch.forEach(pending -> pending.future.completeExceptionally(e));
+			} catch (Error e) {
+				/*A thread termina; quem chamar depois salva direto e quem está na fila sai dela pelo tempo limite*/
+				log.error("loan group commit thread stopped", e);
+				batch.forEach(pending -> pending.future.completeExceptionally(e));
+				throw e;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void commit(List<PendingCheckout> batch) {
+		batchSizes.record(batch.size());
+		List<PendingCheckout> written;
+		try {
+			resolveCustomers(batch);
+			written = transaction.execute(status -> write(batch));
+		} catch (RuntimeException e) {
+			/*Uma falha derruba a transação do grupo inteiro; cada empréstimo é refeito sozinho para que
+			 *apenas o que causou o erro falhe. Os repetidos no lote também, pois o que venceu pode não ter sido gravado*/
+			log.warn("loan group commit of {} checkouts failed, retrying one by one", batch.size(), e);
+			batch.stream().filter(pending -> !pending.future.isDone()).forEach(this::saveAlone);
+			return;
+		}
+		written.forEach(pending -> pending.future.complete(pending.loan));
+		batch.stream()
+				.filter(pending -> !pending.future.isDone())
+				.forEach(pending -> pending.future.completeExceptionally(new BusinessException("Livro já emprestado.")));
+	}
+
+	/*Retorna os aceitos; os recusados só recebem o erro depois do commit, em commit. Os empréstimos em aberto
+	 *são lidos depois de next(), cujo lock serializa as escritas, como no LoanService*/
+	private List<PendingCheckout> write(List<PendingCheckout> batch) {
+		long changeSeq = changeSequence.next();
+		Set<Long> bookIds = batch.stream().map(pending -> pending.loan.getBook().getId()).collect(Collectors.toSet());
+		Set<Long> loanedBooks = new HashSet<>(repository.findBookIdsWithOpenLoans(bookIds));
+		List<PendingCheckout> accepted = new ArrayList<>();
+		for(PendingCheckout pending : batch) {
+			if(loanedBooks.add(pending.loan.getBook().getId())) {
+				accepted.add(pending);
+			}
+		}
+		accepted.forEach(pending -> pending.loan.setChangeSeq(changeSeq));
+		repository.saveAll(accepted.stream().map(pending -> pending.loan).collect(Collectors.toList()));
+		repository.flush();
+		accepted.forEach(pending -> eventPublisher.publishEvent(new LoanCheckedOutEvent(pending.loan)));
+		return accepted;
+	}
+
+	/*Antes da transação do lote e em uma única chamada, para não segurar a conexão do lote enquanto
+	 *os clientes são procurados ou cadastrados*/
+	private void resolveCustomers(List<PendingCheckout> batch) {
+		List<PendingCheckout> unresolved = batch.stream()
+				.filter(pending -> pending.loan.getCustomerAccount() == null)
+				.collect(Collectors.toList());
+		List<Customer> customers = unresolved.isEmpty() ? Collections.emptyList() : customerService.resolveAll(unresolved.stream()
+				.map(pending -> Customer.builder().name(pending.loan.getCustomer()).email(pending.loan.getCustomerEmail()).build())
+				.collect(Collectors.toList()));
+		for(int i = 0; i < unresolved.size(); i++) {
+			unresolved.get(i).loan.setCustomerAccount(customers.get(i));
+		}
+		batch.forEach(pending -> pending.loan.assignCustomer(pending.loan.getCustomerAccount()));
+	}
+
+	private void saveAlone(PendingCheckout pending) {
+		try {
+			pending.loan.setId(null);
+			pending.loan.setVersion(null);
+			pending.future.complete(loanService.save(pending.loan));
+		} catch (RuntimeException e) {
+			pending.future.completeExceptionally(e);
+		}
+	}
+
+	private static class PendingCheckout {
+
+		private final Loan loan;
+		private final CompletableFuture<Loan> future = new CompletableFuture<>();
+
+		PendingCheckout(Loan loan) {
+			this.loan = loan;
+		}
+
+	}
+
+}
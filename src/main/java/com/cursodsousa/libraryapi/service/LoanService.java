@@ -1,5 +1,6 @@
 package com.cursodsousa.libraryapi.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -9,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import com.cursodsousa.libraryapi.api.dto.LoanFilterDTO;
 import com.cursodsousa.libraryapi.model.entity.Book;
 import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.util.ChangeToken;
 
 public interface LoanService {
 
@@ -18,10 +20,24 @@ public interface LoanService {
 
 	Loan update(Loan loan);
 
+	boolean updateReturned(Long id, Boolean returned, Collection<Long> expectedVersions);
+
+	int returnLoans(Collection<Long> ids, Collection<String> isbns);
+
 	Page<Loan> find(LoanFilterDTO dto, Pageable page);
 
 	Page<Loan> getLoansByBook(Book book, Pageable pageable);
+
+	Page<Loan> getLoansByBook(Book book, Pageable pageable, boolean includeHistory);
 	
 	List<Loan> getAllLateLoans();
 
+	String getLoansVersionByBook(Long bookId);
+
+	long countArchivedLoansByBook(Long bookId);
+
+	Page<Loan> getLoansByCustomer(Long customerId, Pageable pageable);
+
+	ChangeSet<Loan> getChanges(ChangeToken since, int limit);
+
 }
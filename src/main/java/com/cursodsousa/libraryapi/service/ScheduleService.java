@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,7 @@ import com.cursodsousa.libraryapi.model.entity.Loan;
 import lombok.RequiredArgsConstructor;
 
 @Service
+@Lazy(false)
 @RequiredArgsConstructor
 public class ScheduleService {
 
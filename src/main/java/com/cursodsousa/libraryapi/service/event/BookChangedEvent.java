@@ -0,0 +1,17 @@
+package com.cursodsousa.libraryapi.service.event;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BookChangedEvent {
+
+	public enum Type { CREATED, UPDATED, DELETED }
+
+	private final Type type;
+	private final Book book;
+	
+}
@@ -0,0 +1,14 @@
+package com.cursodsousa.libraryapi.service.event;
+
+import com.cursodsousa.libraryapi.model.entity.Loan;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LoanCheckedOutEvent {
+
+	private final Loan loan;
+	
+}
@@ -0,0 +1,14 @@
+package com.cursodsousa.libraryapi.service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LoanReturnedEvent {
+
+	private final Long loanId;
+	private final Long bookId;
+	private final boolean returned;
+	
+}
@@ -1,18 +1,35 @@
 package com.cursodsousa.libraryapi.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.ExampleMatcher.StringMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import com.cursodsousa.libraryapi.config.ReplicaRoutingDataSource;
 import com.cursodsousa.libraryapi.exception.BusinessException;
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.BookTombstone;
 import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.model.repository.BookTombstoneRepository;
 import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.ChangeSequence;
+import com.cursodsousa.libraryapi.service.ChangeSet;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent.Type;
+import com.cursodsousa.libraryapi.util.ChangeToken;
+import com.cursodsousa.libraryapi.util.SingleFlight;
 
 import lombok.RequiredArgsConstructor;
 
@@ -20,51 +37,168 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class BookServiceImpl implements BookService {
 
+	private static final long COALESCING_TIMEOUT_MILLIS = 500;
+
 	private final BookRepository repository;
 
+	private final BookTombstoneRepository tombstoneRepository;
+
+	private final ChangeSequence changeSequence;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final SingleFlight<Long, Optional<Book>> loadsById = new SingleFlight<>(COALESCING_TIMEOUT_MILLIS, BookServiceImpl::copy);
+
+	private final SingleFlight<String, Optional<Book>> loadsByIsbn = new SingleFlight<>(COALESCING_TIMEOUT_MILLIS, BookServiceImpl::copy);
+
 	@Override
+	@Transactional
 	public Book save(Book book) {
 		if(repository.existsByIsbn(book.getIsbn())) {
 			throw new BusinessException("Isbn já cadastrado");
 		}
-		return repository.save(book);
+		book.setChangeSeq(changeSequence.next());
+		Book saved = repository.save(book);
+		eventPublisher.publishEvent(new BookChangedEvent(Type.CREATED, saved));
+		return saved;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Optional<Book> getById(Long id) {
-		return repository.findById(id);
+		if(ReplicaRoutingDataSource.isReplicaTransaction()) {
+			return repository.findById(id);
+		}
+		return loadsById.load(id, () -> repository.findById(id));
 	}
 
 	@Override
+	@Transactional
 	public void delete(Book book) {
 		if(book == null || book.getId() == null) {
 			throw new IllegalArgumentException("O id do livro não pode ser nullo");
 		}
+		long changeSeq = changeSequence.next();
 		repository.delete(book);
+		tombstoneRepository.save(BookTombstone.builder().bookId(book.getId()).isbn(book.getIsbn()).changeSeq(changeSeq).build());
+		eventPublisher.publishEvent(new BookChangedEvent(Type.DELETED, book));
 	}
 
 	@Override
+	@Transactional
 	public Book update(Book book) {
 		if(book == null || book.getId() == null) {
 			throw new IllegalArgumentException("O id do livro não pode ser nullo");
 		}
-		return repository.save(book);
+		book.setChangeSeq(changeSequence.next());
+		Book saved = repository.save(book);
+		eventPublisher.publishEvent(new BookChangedEvent(Type.UPDATED, saved));
+		return saved;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Page<Book> find(Book filter, Pageable pageRequest) {
+		return repository.findAll(example(filter), pageRequest);
+	}
 
-		Example<Book> example = Example.of(filter, ExampleMatcher
+	@Override
+	@Transactional(readOnly = true)
+	public Page<Book> find(Book filter, boolean available, Pageable pageRequest) {
+		return repository.findByExampleAndAvailability(example(filter), available, pageRequest);
+	}
+
+	/*changeSeq é primitivo e nunca nulo: sem ignorá-lo, todo filtro exigiria change_seq = 0*/
+	private static Example<Book> example(Book filter) {
+		return Example.of(filter, ExampleMatcher
 				.matching()
 				.withIgnoreCase()
 				.withIgnoreNullValues()
+				.withIgnorePaths("changeSeq")
 				.withStringMatcher(StringMatcher.CONTAINING));
-		return repository.findAll(example , pageRequest);
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Optional<Book> getBookByIsbn(String isbn) {
-		return repository.findByIsbn(isbn);
+		if(ReplicaRoutingDataSource.isReplicaTransaction()) {
+			return repository.findByIsbn(isbn);
+		}
+		return loadsByIsbn.load(isbn, () -> repository.findByIsbn(isbn));
+	}
+
+	/*Uma carga iniciada antes do commit pode ter lido a versão anterior do livro*/
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBookChanged(BookChangedEvent event) {
+		loadsById.invalidate(event.getBook().getId());
+		loadsByIsbn.invalidate(event.getBook().getIsbn());
+	}
+
+	/*Quem aguardou a carga de outra requisição recebe uma cópia própria, sem a coleção lazy de empréstimos*/
+	private static Optional<Book> copy(Optional<Book> book) {
+		return book.map(found -> found.toBuilder().loans(null).build());
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Long> getVersion(Long id) {
+		return repository.findVersionById(id);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Book> getByIds(Collection<Long> ids) {
+		if(ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return repository.findAllById(ids);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Book> getByIsbns(Collection<String> isbns) {
+		if(isbns.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return repository.findByIsbnIn(isbns);
+	}
+
+	/*Livros e exclusões são lidos na mesma ordem (change_seq, id) e intercalados até o limite.
+	 *Não é somente leitura de propósito: a réplica pode ainda não ter linhas abaixo da watermark*/
+	@Override
+	@Transactional
+	public ChangeSet<Book> getChanges(ChangeToken since, int limit) {
+		long upTo = changeSequence.watermark();
+		PageRequest page = PageRequest.of(0, limit);
+		List<Book> books = repository.findChangedAfter(since.getSeq(), since.getId(), upTo, page);
+		List<BookTombstone> tombstones = tombstoneRepository.findChangedAfter(since.getSeq(), since.getId(), upTo, page);
+
+		List<Book> changed = new ArrayList<>();
+		List<Long> deleted = new ArrayList<>();
+		ChangeToken last = null;
+		int b = 0;
+		int t = 0;
+		while(changed.size() + deleted.size() < limit && (b < books.size() || t < tombstones.size())) {
+			boolean nextIsBook = t == tombstones.size() || (b < books.size()
+					&& ChangeToken.after(books.get(b).getChangeSeq(), books.get(b).getId())
+						.isBefore(ChangeToken.after(tombstones.get(t).getChangeSeq(), tombstones.get(t).getBookId())));
+			if(nextIsBook) {
+				Book book = books.get(b++);
+				changed.add(book);
+				last = ChangeToken.after(book.getChangeSeq(), book.getId());
+			} else {
+				BookTombstone tombstone = tombstones.get(t++);
+				deleted.add(tombstone.getBookId());
+				last = ChangeToken.after(tombstone.getChangeSeq(), tombstone.getBookId());
+			}
+		}
+		boolean hasMore = changed.size() + deleted.size() == limit;
+		return new ChangeSet<>(changed, deleted, hasMore ? last : nextToken(since, upTo), hasMore);
+	}
+
+	private static ChangeToken nextToken(ChangeToken since, long upTo) {
+		ChangeToken complete = ChangeToken.upTo(upTo);
+		return since.isBefore(complete) ? complete : since;
 	}
 
 }
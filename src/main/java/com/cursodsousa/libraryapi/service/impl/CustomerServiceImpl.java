@@ -0,0 +1,84 @@
+package com.cursodsousa.libraryapi.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.repository.CustomerRepository;
+import com.cursodsousa.libraryapi.service.CustomerService;
+
+import lombok.RequiredArgsConstructor;
+
+@Service
+@RequiredArgsConstructor
+public class CustomerServiceImpl implements CustomerService {
+
+	private final CustomerRepository repository;
+	private final PlatformTransactionManager transactionManager;
+
+	/*O email identifica o cliente; sem email vale o nome*/
+	@Override
+	public Customer resolve(String name, String email) {
+		return resolveAll(Collections.singletonList(Customer.builder().name(name).email(email).build())).get(0);
+	}
+
+	/*Uma consulta por emails e outra por nomes, e os que faltam são cadastrados. Participa da transação de
+	 *quem chama, sem ocupar uma segunda conexão do pool. Fora de uma transação, quem perde a corrida de um
+	 *cadastro concorrente encontra o cadastro do outro na segunda tentativa; dentro de uma, a violação sobe*/
+	@Override
+	public List<Customer> resolveAll(List<Customer> requested) {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		try {
+			return transaction.execute(status -> findOrCreate(requested));
+		} catch (DataIntegrityViolationException e) {
+			if(TransactionSynchronizationManager.isActualTransactionActive()) {
+				throw e;
+			}
+			return transaction.execute(status -> findOrCreate(requested));
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Optional<Customer> getById(Long id) {
+		return repository.findById(id);
+	}
+
+	private List<Customer> findOrCreate(List<Customer> requested) {
+		Set<String> emails = requested.stream().map(Customer::getEmail).filter(Objects::nonNull).collect(Collectors.toSet());
+		Set<String> names = requested.stream().filter(customer -> customer.getEmail() == null).map(Customer::getName)
+				.filter(Objects::nonNull).collect(Collectors.toSet());
+		Map<String, Customer> byEmail = new HashMap<>();
+		Map<String, Customer> byName = new HashMap<>();
+		if(!emails.isEmpty()) {
+			repository.findByEmailIn(emails).forEach(customer -> byEmail.put(customer.getEmail(), customer));
+		}
+		if(!names.isEmpty()) {
+			repository.findByNameInAndEmailIsNullOrderById(names).forEach(customer -> byName.putIfAbsent(customer.getName(), customer));
+		}
+		List<Customer> resolved = new ArrayList<>(requested.size());
+		for(Customer customer : requested) {
+			Map<String, Customer> known = customer.getEmail() != null ? byEmail : byName;
+			String key = customer.getEmail() != null ? customer.getEmail() : customer.getName();
+			resolved.add(known.computeIfAbsent(key,
+					ignored -> repository.save(Customer.builder().name(customer.getName()).email(customer.getEmail()).build())));
+		}
+		repository.flush();
+		return resolved;
+	}
+
+}
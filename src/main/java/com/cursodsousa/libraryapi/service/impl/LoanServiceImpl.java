@@ -1,19 +1,41 @@
 package com.cursodsousa.libraryapi.service.impl;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.cursodsousa.libraryapi.api.dto.LoanFilterDTO;
 import com.cursodsousa.libraryapi.exception.BusinessException;
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
 import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.entity.LoanHistory;
+import com.cursodsousa.libraryapi.model.repository.LoanHistoryRepository;
 import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+import com.cursodsousa.libraryapi.service.ChangeSequence;
+import com.cursodsousa.libraryapi.service.ChangeSet;
+import com.cursodsousa.libraryapi.service.CustomerService;
 import com.cursodsousa.libraryapi.service.LoanService;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+import com.cursodsousa.libraryapi.util.ChangeToken;
+import com.cursodsousa.libraryapi.util.OffsetPageRequest;
 
 import lombok.RequiredArgsConstructor;
 
@@ -21,41 +43,199 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class LoanServiceImpl implements LoanService {
 
+	private static final int RETURNS_CHUNK_SIZE = 500;
+
+	/*Propriedades de Loan que também existem em LoanHistory*/
+	private static final Set<String> HISTORY_SORT = new HashSet<>(Arrays.asList("id", "customer", "customerEmail", "loanDate"));
+
+	/*Propriedades só de Loan; no histórico returned é sempre verdadeiro e as outras não existem, então não mudam a ordem*/
+	private static final Set<String> LIVE_ONLY_SORT = new HashSet<>(Arrays.asList("returned", "version", "changeSeq"));
+
 	private final LoanRepository repository;
 
+	private final LoanHistoryRepository historyRepository;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final CustomerService customerService;
+
+	private final ChangeSequence changeSequence;
+
 	@Override
+	@Transactional
 	public Loan save(Loan loan) {
+		long changeSeq = changeSequence.next();
 		if(repository.existsByBookAndNotRetruned(loan.getBook())) {
 			throw new BusinessException("Livro já emprestado.");
 		}
-		return repository.save(loan);
+		Customer account = loan.getCustomerAccount();
+		loan.assignCustomer(account != null ? account : customerService.resolve(loan.getCustomer(), loan.getCustomerEmail()));
+		loan.setChangeSeq(changeSeq);
+		Loan saved = repository.save(loan);
+		eventPublisher.publishEvent(new LoanCheckedOutEvent(saved));
+		return saved;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Optional<Loan> getByid(Long id) {
 		return repository.findById(id);
 	}
 
 	@Override
+	@Transactional
 	public Loan update(Loan loan) {
+		loan.setChangeSeq(changeSequence.next());
 		return repository.save(loan);
 	}
 
+	/*Um único UPDATE; com versões esperadas (If-Match) ele só altera o empréstimo se a versão
+	 *ainda for uma delas. Um empréstimo que já está na situação pedida (um PATCH repetido) não muda de
+	 *versão nem publica evento, e conta como sucesso. Retorna false quando o empréstimo não existe ou
+	 *a versão não confere. Reabrir é recusado se o livro já tem outro empréstimo em aberto; como no save,
+	 *a verificação vem depois de next(), cujo lock serializa as escritas até o commit*/
+	@Override
+	@Transactional
+	public boolean updateReturned(Long id, Boolean returned, Collection<Long> expectedVersions) {
+		if(expectedVersions != null && expectedVersions.isEmpty()) {
+			return false;
+		}
+		boolean value = Boolean.TRUE.equals(returned);
+		long changeSeq = changeSequence.next();
+		if(!value && repository.existsOtherOpenLoan(id)) {
+			throw new BusinessException("Livro já emprestado.");
+		}
+		int updated = expectedVersions == null
+				? repository.updateReturned(id, value, changeSeq)
+				: repository.updateReturnedIfVersionIn(id, value, expectedVersions, changeSeq);
+		if(updated == 0) {
+			return repository.hasReturned(id, value);
+		}
+		eventPublisher.publishEvent(new LoanReturnedEvent(id, repository.findBookIdById(id).orElse(null), value));
+		return true;
+	}
+
+	/*Os empréstimos em aberto de cada bloco são lidos com lock antes do UPDATE para publicar a devolução
+	 *de cada um; o número da sequência vem antes, na mesma ordem de locks das demais escritas*/
 	@Override
+	@Transactional
+	public int returnLoans(Collection<Long> ids, Collection<String> isbns) {
+		long changeSeq = changeSequence.next();
+		int returned = 0;
+		for(List<Long> chunk : chunks(ids)) {
+			returned += returnOpen(repository.findOpenByIdIn(chunk), changeSeq);
+		}
+		for(List<String> chunk : chunks(isbns)) {
+			returned += returnOpen(repository.findOpenByBookIsbnIn(chunk), changeSeq);
+		}
+		return returned;
+	}
+
+	private int returnOpen(List<Object[]> open, long changeSeq) {
+		if(open.isEmpty()) {
+			return 0;
+		}
+		List<Long> loanIds = open.stream().map(pair -> (Long) pair[0]).collect(Collectors.toList());
+		int returned = repository.returnByIdIn(loanIds, changeSeq);
+		open.forEach(pair -> eventPublisher.publishEvent(new LoanReturnedEvent((Long) pair[0], (Long) pair[1], true)));
+		return returned;
+	}
+
+	private static <T> List<List<T>> chunks(Collection<T> values) {
+		List<T> list = new ArrayList<>(values);
+		List<List<T>> chunks = new ArrayList<>();
+		for(int start = 0; start < list.size(); start += RETURNS_CHUNK_SIZE) {
+			chunks.add(list.subList(start, Math.min(start + RETURNS_CHUNK_SIZE, list.size())));
+		}
+		return chunks;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
 	public Page<Loan> find(LoanFilterDTO dto, Pageable page) {
 		return repository.findByBookIsbnOrCustomer(dto.getIsbn(), dto.getCustomer(), page);
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
 		return repository.findByBook(book, pageable);
 	}
 
+	/*Os empréstimos ativos vêm primeiro; a página continua no histórico quando eles acabam*/
+	@Override
+	@Transactional(readOnly = true)
+	public Page<Loan> getLoansByBook(Book book, Pageable pageable, boolean includeHistory) {
+		if(!includeHistory) {
+			return repository.findByBook(book, pageable);
+		}
+		Sort historySort = historySort(pageable.getSort());
+		Page<Loan> live = repository.findByBook(book, pageable);
+		List<Loan> content = new ArrayList<>(live.getContent());
+		int remaining = pageable.getPageSize() - content.size();
+		long archived;
+		if(remaining > 0) {
+			long historyOffset = Math.max(0, pageable.getOffset() - live.getTotalElements());
+			Page<LoanHistory> history = historyRepository.findByBook(book, new OffsetPageRequest(historyOffset, remaining, historySort));
+			history.getContent().forEach(loan -> content.add(loan.toLoan()));
+			archived = history.getTotalElements();
+		} else {
+			archived = historyRepository.countByBook(book);
+		}
+		return new PageImpl<>(content, pageable, live.getTotalElements() + archived);
+	}
+
+	private static Sort historySort(Sort sort) {
+		List<Sort.Order> orders = new ArrayList<>();
+		for(Sort.Order order : sort) {
+			if(HISTORY_SORT.contains(order.getProperty())) {
+				orders.add(order);
+			} else if(!LIVE_ONLY_SORT.contains(order.getProperty())) {
+				throw new BusinessException("Ordenação inválida: " + order.getProperty());
+			}
+		}
+		return Sort.by(orders);
+	}
+
 	@Override
+	@Transactional(readOnly = true)
 	public List<Loan> getAllLateLoans() {
 		final Integer loanDays = 4;
 		LocalDate threDaysAgo = LocalDate.now().minusDays(loanDays);
 		return repository.findByLoanDateLessThanAndNotReturned(threDaysAgo);
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public String getLoansVersionByBook(Long bookId) {
+		Object[] version = repository.findLoansVersionByBookId(bookId).get(0);
+		return version[0] + "." + version[1];
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public long countArchivedLoansByBook(Long bookId) {
+		return historyRepository.countByBookId(bookId);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Page<Loan> getLoansByCustomer(Long customerId, Pageable pageable) {
+		return repository.findByCustomerAccountId(customerId, pageable);
+	}
+
+	/*Não é somente leitura de propósito: a réplica pode ainda não ter linhas abaixo da watermark*/
+	@Override
+	@Transactional
+	public ChangeSet<Loan> getChanges(ChangeToken since, int limit) {
+		long upTo = changeSequence.watermark();
+		List<Loan> changed = repository.findChangedAfter(since.getSeq(), since.getId(), upTo, PageRequest.of(0, limit));
+		if(changed.size() == limit) {
+			Loan last = changed.get(changed.size() - 1);
+			return new ChangeSet<>(changed, Collections.emptyList(), ChangeToken.after(last.getChangeSeq(), last.getId()), true);
+		}
+		ChangeToken complete = ChangeToken.upTo(upTo);
+		return new ChangeSet<>(changed, Collections.emptyList(), since.isBefore(complete) ? complete : since, false);
+	}
+
 }
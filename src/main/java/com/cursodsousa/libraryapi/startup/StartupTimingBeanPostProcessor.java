@@ -0,0 +1,38 @@
+package com.cursodsousa.libraryapi.startup;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+
+/*Tempo entre a instanciação e o fim da inicialização de cada bean, incluindo as dependências
+ *criadas no caminho. Com inicialização preguiçosa, os beans criados na primeira requisição também aparecem.*/
+public class StartupTimingBeanPostProcessor implements InstantiationAwareBeanPostProcessor, PriorityOrdered {
+
+	private final Map<String, Long> starts = new ConcurrentHashMap<>();
+
+	@Override
+	public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+		if(beanName != null) {
+			starts.put(beanName, System.nanoTime());
+		}
+		return null;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		Long start = beanName == null ? null : starts.remove(beanName);
+		if(start != null) {
+			StartupTimings.get().recordBean(beanName, System.nanoTime() - start);
+		}
+		return bean;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+}
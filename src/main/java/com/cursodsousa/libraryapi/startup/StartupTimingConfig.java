@@ -0,0 +1,19 @@
+package com.cursodsousa.libraryapi.startup;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupTimingConfig {
+
+	@Bean
+	public static StartupTimingBeanPostProcessor startupTimingBeanPostProcessor() {
+		return new StartupTimingBeanPostProcessor();
+	}
+
+	@Bean
+	public StartupTimingEndpoint startupTimingEndpoint() {
+		return new StartupTimingEndpoint();
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.cursodsousa.libraryapi.startup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/*GET /actuator/startuptiming: duração de cada fase da inicialização e os beans mais lentos*/
+@Endpoint(id = "startuptiming")
+public class StartupTimingEndpoint {
+
+	private static final int SLOWEST_BEANS = 50;
+
+	@ReadOperation
+	public Map<String, Object> report() {
+		List<Map<String, Object>> phases = new ArrayList<>();
+		long previous = 0;
+		for(StartupTimings.Phase phase : StartupTimings.get().getPhases()) {
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("phase", phase.getName());
+			entry.put("uptimeMs", phase.getUptimeMillis());
+			entry.put("durationMs", phase.getUptimeMillis() - previous);
+			phases.add(entry);
+			previous = phase.getUptimeMillis();
+		}
+		
+		Map<String, Long> beans = StartupTimings.get().getBeanNanos();
+		Map<String, Long> slowest = new LinkedHashMap<>();
+		beans.entrySet().stream()
+				.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.limit(SLOWEST_BEANS)
+				.forEach(entry -> slowest.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue())));
+		
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("phases", phases);
+		report.put("beanCount", beans.size());
+		report.put("slowestBeansMs", slowest);
+		return report;
+	}
+
+}
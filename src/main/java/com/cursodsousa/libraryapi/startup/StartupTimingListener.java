@@ -0,0 +1,48 @@
+package com.cursodsousa.libraryapi.startup;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.servlet.context.ServletWebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+/*Registrado em META-INF/spring.factories para receber também os eventos anteriores ao contexto*/
+public class StartupTimingListener implements ApplicationListener<ApplicationEvent> {
+
+	private final AtomicBoolean firstRequestHandled = new AtomicBoolean();
+
+	@Override
+	public void onApplicationEvent(ApplicationEvent event) {
+		StartupTimings timings = StartupTimings.get();
+		if(event instanceof ApplicationStartingEvent) {
+			timings.reset();
+			firstRequestHandled.set(false);
+			timings.markPhase("starting");
+		} else if(event instanceof ApplicationEnvironmentPreparedEvent) {
+			timings.markPhase("environment-prepared");
+		} else if(event instanceof ApplicationContextInitializedEvent) {
+			timings.markPhase("context-initialized");
+		} else if(event instanceof ApplicationPreparedEvent) {
+			timings.markPhase("context-prepared");
+		} else if(event instanceof ContextRefreshedEvent) {
+			timings.markPhase("context-refreshed");
+		} else if(event instanceof ServletWebServerInitializedEvent) {
+			timings.markPhase("web-server-started");
+		} else if(event instanceof ApplicationStartedEvent) {
+			timings.markPhase("started");
+		} else if(event instanceof ApplicationReadyEvent) {
+			timings.markPhase("ready");
+		} else if(event instanceof ServletRequestHandledEvent && firstRequestHandled.compareAndSet(false, true)) {
+			timings.markPhase("first-request");
+		}
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.cursodsousa.libraryapi.startup;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*Marcos da inicialização (fases e tempo de criação de cada bean). Fica fora do contexto do Spring
+ *porque as primeiras fases acontecem antes de o contexto existir.*/
+public final class StartupTimings {
+
+	private static final StartupTimings INSTANCE = new StartupTimings();
+
+	private final List<Phase> phases = new CopyOnWriteArrayList<>();
+	private final Map<String, Long> beanNanos = new ConcurrentHashMap<>();
+
+	private StartupTimings() {
+	}
+
+	public static StartupTimings get() {
+		return INSTANCE;
+	}
+
+	void reset() {
+		phases.clear();
+		beanNanos.clear();
+	}
+
+	void markPhase(String name) {
+		phases.add(new Phase(name, ManagementFactory.getRuntimeMXBean().getUptime()));
+	}
+
+	void recordBean(String name, long nanos) {
+		beanNanos.merge(name, nanos, Long::sum);
+	}
+
+	public List<Phase> getPhases() {
+		return new ArrayList<>(phases);
+	}
+
+	public Map<String, Long> getBeanNanos() {
+		return new HashMap<>(beanNanos);
+	}
+
+	@Getter
+	@AllArgsConstructor
+	public static class Phase {
+
+		private final String name;
+		private final long uptimeMillis;
+
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.cursodsousa.libraryapi.startup;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/*Fica OUT_OF_SERVICE até o aquecimento terminar; faz parte do grupo /actuator/health/readiness.
+ *Uma falha no aquecimento não segura a instância, só aparece nos detalhes.*/
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.warmup.enabled", havingValue = "true")
+public class WarmupHealthIndicator extends AbstractHealthIndicator {
+
+	private final WarmupService warmupService;
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		if(warmupService.isDone()) {
+			builder.up();
+		} else {
+			builder.outOfService();
+		}
+		builder.withDetail("iterations", warmupService.getCompletedIterations() + "/" + warmupService.getIterations())
+				.withDetail("elapsedMs", warmupService.getElapsedMillis());
+		if(warmupService.getFailure() != null) {
+			builder.withDetail("failure", warmupService.getFailure());
+		}
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.cursodsousa.libraryapi.startup;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import com.cursodsousa.libraryapi.api.dto.BookDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanFilterDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanReturnsDTO;
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.CustomerRepository;
+import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/*Aquece o JIT antes de a instância ficar pronta: repete os caminhos de cadastro, busca e empréstimo
+ *da camada de serviço, com mapeamento e serialização, uma iteração por transação, sempre com rollback.
+ *Os eventos de empréstimo só são publicados após commit, então nada chega às estatísticas. Os ISBNs levam
+ *um prefixo desta instância, para que instâncias subindo juntas não esperem pelos índices umas das outras.*/
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.warmup.enabled", havingValue = "true")
+public class WarmupService {
+
+	private final BookService bookService;
+	private final LoanService loanService;
+	private final CustomerRepository customerRepository;
+	private final PlatformTransactionManager transactionManager;
+	private final ModelMapper mapper;
+	private final ObjectMapper objectMapper;
+	private final ConfigurableApplicationContext context;
+
+	@Value("${application.warmup.iterations:3000}")
+	private int iterations;
+
+	@Value("${application.warmup.exit-when-done:false}")
+	private boolean exitWhenDone;
+
+	@Value("${application.warmup.http-iterations:0}")
+	private int httpIterations;
+
+	private final String isbnPrefix = "warmup-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+	private volatile boolean done;
+	private volatile int completedIterations;
+	private volatile long elapsedMillis;
+	private volatile String failure;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		Thread thread = new Thread(this::run, "warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	void run() {
+		long start = System.nanoTime();
+		try {
+			TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+			while(completedIterations < iterations) {
+				int index = completedIterations;
+				transaction.execute(status -> {
+					status.setRollbackOnly();
+					iteration(customerRepository.save(Customer.builder().name("Warm-up").build()), index);
+					return null;
+				});
+				completedIterations++;
+			}
+			httpTraffic();
+		} catch (Exception e) {
+			failure = e.toString();
+			log.warn("warm-up stopped after {} iterations", completedIterations, e);
+		} finally {
+			elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			done = true;
+		}
+		log.info("warm-up finished {} iterations in {} ms", completedIterations, elapsedMillis);
+		if(exitWhenDone) {
+			System.exit(SpringApplication.exit(context));
+		}
+	}
+
+	private void iteration(Customer customer, int index) {
+		String isbn = isbnPrefix + index;
+		Book book = bookService.save(Book.builder().title("Warm-up " + index).author("Warm-up").isbn(isbn).build());
+		bookService.getById(book.getId());
+		bookService.getBookByIsbn(isbn);
+		bookService.find(Book.builder().title("Warm-up").build(), PageRequest.of(0, 10));
+		
+		Loan loan = loanService.save(Loan.builder().book(book).customerAccount(customer)
+				.loanDate(LocalDate.now()).build());
+		loanService.getLoansByBook(book, PageRequest.of(0, 10));
+		loanService.find(LoanFilterDTO.builder().isbn(isbn).build(), PageRequest.of(0, 10));
+		loanService.updateReturned(loan.getId(), true, null);
+		
+		try {
+			LoanDTO loanDTO = mapper.map(loan, LoanDTO.class);
+			loanDTO.setBook(mapper.map(book, BookDTO.class));
+			objectMapper.writeValueAsString(loanDTO);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*Só na execução de treino do CDS, com o banco em memória: a inicialização preguiçosa do perfil prod
+	 *só carrega servidor, Spring MVC e Jackson quando chegam requisições. Aqui os dados são gravados*/
+	private void httpTraffic() {
+		Integer port = context.getEnvironment().getProperty("local.server.port", Integer.class);
+		if(httpIterations <= 0 || port == null) {
+			return;
+		}
+		RestTemplate client = new RestTemplate();
+		String api = "http://localhost:" + port + "/api";
+		for(int i = 0; i < httpIterations; i++) {
+			String isbn = isbnPrefix + "http-" + i;
+			BookDTO book = client.postForObject(api + "/books",
+					BookDTO.builder().title("Warm-up " + i).author("Warm-up").isbn(isbn).build(), BookDTO.class);
+			client.getForObject(api + "/books/{id}", String.class, book.getId());
+			client.getForObject(api + "/books?title={title}&page=0&size=10", String.class, "Warm-up");
+			Long loanId = client.postForObject(api + "/loans",
+					LoanDTO.builder().isbn(isbn).customer("Warm-up").email(isbnPrefix + "@warmup.local").build(), Long.class);
+			client.getForObject(api + "/books/{id}/loans?page=0&size=10", String.class, book.getId());
+			client.getForObject(api + "/books/{id}/loans?compact=true&page=0&size=10", String.class, book.getId());
+			client.postForObject(api + "/loans/returns", LoanReturnsDTO.builder().ids(Collections.singletonList(loanId)).build(), String.class);
+			client.getForObject(api + "/stats/books/{id}", String.class, book.getId());
+		}
+		log.info("warm-up sent {} rounds of HTTP requests", httpIterations);
+	}
+
+	public boolean isDone() {
+		return done;
+	}
+
+	public int getCompletedIterations() {
+		return completedIterations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public String getFailure() {
+		return failure;
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.cursodsousa.libraryapi.util;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/*Posição na sequência de alterações: "seq.id" aponta a última linha entregue e "seq" sozinho indica que
+ *tudo até seq já foi entregue. A ordem é (change_seq, id), então linhas alteradas na mesma transação,
+ *que dividem o change_seq, podem ser paginadas sem repetir nem pular nenhuma.*/
+@Getter
+@EqualsAndHashCode
+public final class ChangeToken {
+
+	public static final ChangeToken START = new ChangeToken(0, 0);
+
+	private final long seq;
+	private final long id;
+
+	private ChangeToken(long seq, long id) {
+		this.seq = seq;
+		this.id = id;
+	}
+
+	public static ChangeToken after(long seq, long id) {
+		return new ChangeToken(seq, id);
+	}
+
+	public static ChangeToken upTo(long seq) {
+		return new ChangeToken(seq, Long.MAX_VALUE);
+	}
+
+	public static ChangeToken parse(String token) {
+		if(token == null || token.trim().isEmpty()) {
+			return START;
+		}
+		String[] parts = token.trim().split("\\.");
+		if(parts.length > 2) {
+			throw new IllegalArgumentException("Token de sincronização inválido: " + token);
+		}
+		try {
+			long seq = Long.parseLong(parts[0]);
+			return parts.length == 1 ? upTo(seq) : after(seq, Long.parseLong(parts[1]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Token de sincronização inválido: " + token, e);
+		}
+	}
+
+	public boolean isBefore(ChangeToken other) {
+		return seq < other.seq || (seq == other.seq && id < other.id);
+	}
+
+	@Override
+	public String toString() {
+		return id == Long.MAX_VALUE ? String.valueOf(seq) : seq + "." + id;
+	}
+
+}
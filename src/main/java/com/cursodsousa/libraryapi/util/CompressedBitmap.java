@@ -0,0 +1,219 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.util.Arrays;
+
+/*Conjunto de ids no formato do Roaring bitmap: os 48 bits altos escolhem um container, guardado em arrays
+ *ordenados (busca binária), e os 16 bits baixos ficam no container.
+ * - até 4096 valores: array ordenado de char, 2 bytes por id;
+ * - acima disso: bitmap de 65536 bits (8 KB), o que é menor que o array a partir desse ponto.
+ *Containers vazios são descartados. Não é thread-safe: quem compartilha a instância sincroniza o acesso.*/
+public class CompressedBitmap {
+
+	private static final int ARRAY_MAX = 4096;
+
+	private long[] keys = new long[0];
+	private Container[] containers = new Container[0];
+	private int size;
+
+	public boolean add(long value) {
+		long key = value >>> 16;
+		int index = Arrays.binarySearch(keys, 0, size, key);
+		if(index < 0) {
+			index = -index - 1;
+			insert(index, key, new ArrayContainer());
+		}
+		Container container = containers[index];
+		int before = container.cardinality();
+		containers[index] = container.add((char) value);
+		return containers[index].cardinality() > before;
+	}
+
+	public boolean remove(long value) {
+		int index = Arrays.binarySearch(keys, 0, size, value >>> 16);
+		if(index < 0) {
+			return false;
+		}
+		Container container = containers[index];
+		int before = container.cardinality();
+		containers[index] = container.remove((char) value);
+		if(containers[index].cardinality() == 0) {
+			delete(index);
+			return true;
+		}
+		return containers[index].cardinality() < before;
+	}
+
+	public boolean contains(long value) {
+		int index = Arrays.binarySearch(keys, 0, size, value >>> 16);
+		return index >= 0 && containers[index].contains((char) value);
+	}
+
+	public long getCardinality() {
+		long cardinality = 0;
+		for(int i = 0; i < size; i++) {
+			cardinality += containers[i].cardinality();
+		}
+		return cardinality;
+	}
+
+	public long estimatedBytes() {
+		long bytes = 8L * keys.length + 4L * containers.length;
+		for(int i = 0; i < size; i++) {
+			bytes += containers[i].bytes();
+		}
+		return bytes;
+	}
+
+	public void clear() {
+		keys = new long[0];
+		containers = new Container[0];
+		size = 0;
+	}
+
+	private void insert(int index, long key, Container container) {
+		if(size == keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+			containers = Arrays.copyOf(containers, keys.length);
+		}
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		size++;
+	}
+
+	private void delete(int index) {
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+		containers[--size] = null;
+	}
+
+	/*add e remove devolvem o container a usar dali em diante, que pode ter mudado de formato*/
+	private interface Container {
+
+		Container add(char value);
+
+		Container remove(char value);
+
+		boolean contains(char value);
+
+		int cardinality();
+
+		long bytes();
+
+	}
+
+	private static final class ArrayContainer implements Container {
+
+		private char[] values = new char[4];
+		private int cardinality;
+
+		@Override
+		public Container add(char value) {
+			int index = Arrays.binarySearch(values, 0, cardinality, value);
+			if(index >= 0) {
+				return this;
+			}
+			if(cardinality == ARRAY_MAX) {
+				return new BitmapContainer(this).add(value);
+			}
+			index = -index - 1;
+			if(cardinality == values.length) {
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+			}
+			System.arraycopy(values, index, values, index + 1, cardinality - index);
+			values[index] = value;
+			cardinality++;
+			return this;
+		}
+
+		@Override
+		public Container remove(char value) {
+			int index = Arrays.binarySearch(values, 0, cardinality, value);
+			if(index >= 0) {
+				System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+				cardinality--;
+			}
+			return this;
+		}
+
+		@Override
+		public boolean contains(char value) {
+			return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+		}
+
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		public long bytes() {
+			return 16 + 2L * values.length;
+		}
+
+	}
+
+	private static final class BitmapContainer implements Container {
+
+		private final long[] words = new long[1024];
+		private int cardinality;
+
+		BitmapContainer(ArrayContainer array) {
+			for(int i = 0; i < array.cardinality; i++) {
+				add(array.values[i]);
+			}
+		}
+
+		@Override
+		public Container add(char value) {
+			long bit = 1L << value;
+			if((words[value >>> 6] & bit) == 0) {
+				words[value >>> 6] |= bit;
+				cardinality++;
+			}
+			return this;
+		}
+
+		@Override
+		public Container remove(char value) {
+			long bit = 1L << value;
+			if((words[value >>> 6] & bit) == 0) {
+				return this;
+			}
+			words[value >>> 6] &= ~bit;
+			cardinality--;
+			return cardinality > ARRAY_MAX ? this : toArray();
+		}
+
+		@Override
+		public boolean contains(char value) {
+			return (words[value >>> 6] & (1L << value)) != 0;
+		}
+
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		public long bytes() {
+			return 16 + 8L * words.length;
+		}
+
+		private ArrayContainer toArray() {
+			ArrayContainer array = new ArrayContainer();
+			array.values = new char[cardinality];
+			for(int word = 0; word < words.length; word++) {
+				long bits = words[word];
+				while(bits != 0) {
+					array.values[array.cardinality++] = (char) (word * 64 + Long.numberOfTrailingZeros(bits));
+					bits &= bits - 1;
+				}
+			}
+			return array;
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*Contagem aproximada por item em memória fixa (depth x width). A estimativa nunca fica abaixo
+ *do valor real; o erro é no máximo total/width com probabilidade 1 - e^-depth.*/
+public class CountMinSketch {
+
+	private final int depth;
+	private final int width;
+	private final AtomicLongArray counters;
+	private final long[] seeds;
+
+	public CountMinSketch(int depth, int width) {
+		this.depth = depth;
+		this.width = width;
+		this.counters = new AtomicLongArray(depth * width);
+		this.seeds = new long[depth];
+		for(int row = 0; row < depth; row++) {
+			seeds[row] = mix(row + 0x9E3779B97F4A7C15L);
+		}
+	}
+
+	public void add(long item, long count) {
+		for(int row = 0; row < depth; row++) {
+			counters.addAndGet(row * width + index(item, row), count);
+		}
+	}
+
+	public long estimate(long item) {
+		long min = Long.MAX_VALUE;
+		for(int row = 0; row < depth; row++) {
+			min = Math.min(min, counters.get(row * width + index(item, row)));
+		}
+		return min;
+	}
+
+	public void clear() {
+		for(int i = 0; i < counters.length(); i++) {
+			counters.set(i, 0);
+		}
+	}
+
+	private int index(long item, int row) {
+		return (int) Math.floorMod(mix(item ^ seeds[row]), (long) width);
+	}
+
+	private static long mix(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
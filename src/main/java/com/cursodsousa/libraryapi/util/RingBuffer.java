@@ -0,0 +1,72 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*Fila circular limitada sem locks para vários produtores e um único consumidor. Cada posição guarda
+ *um número de sequência que diz se ela está livre para a volta atual do produtor ou pronta para o consumidor,
+ *então offer nunca bloqueia: com a fila cheia ele apenas retorna false.*/
+public class RingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	public RingBuffer(int capacity) {
+		if(capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("A capacidade deve ser uma potência de 2.");
+		}
+		this.mask = capacity - 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.sequences = new AtomicLongArray(capacity);
+		for(int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	public boolean offer(E element) {
+		long position = head.get();
+		while(true) {
+			int index = (int) (position & mask);
+			long available = sequences.get(index) - position;
+			if(available == 0) {
+				if(head.compareAndSet(position, position + 1)) {
+					slots.lazySet(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = head.get();
+			} else if(available < 0) {
+				return false;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	/*Só pode ser chamado pela thread consumidora*/
+	public E poll() {
+		long position = tail.get();
+		int index = (int) (position & mask);
+		if(sequences.get(index) != position + 1) {
+			return null;
+		}
+		E element = slots.get(index);
+		slots.lazySet(index, null);
+		sequences.set(index, position + mask + 1);
+		tail.lazySet(position + 1);
+		return element;
+	}
+
+	public int size() {
+		return (int) Math.max(0, Math.min(mask + 1, head.get() - tail.get()));
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+}
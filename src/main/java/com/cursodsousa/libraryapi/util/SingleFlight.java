@@ -0,0 +1,81 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/*Agrupa cargas concorrentes da mesma chave em uma única execução.
+ *Quem chega enquanto a carga está em andamento espera até o timeout e recebe
+ *uma cópia do resultado; a chave é removida assim que a carga termina.
+ *Depois de uma escrita confirmada, invalidate desliga a carga em andamento da chave:
+ *ela pode ter lido o valor antigo, então quem chega depois inicia uma nova.*/
+public class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final long timeoutMillis;
+	private final UnaryOperator<V> copier;
+
+	public SingleFlight(long timeoutMillis, UnaryOperator<V> copier) {
+		this.timeoutMillis = timeoutMillis;
+		this.copier = copier;
+	}
+
+	public V load(K key, Supplier<V> loader) {
+		if(key == null) {
+			return loader.get();
+		}
+		CompletableFuture<V> call = new CompletableFuture<>();
+		CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+		if(existing == null) {
+			try {
+				V value = loader.get();
+				call.complete(value);
+				return value;
+			} catch (RuntimeException e) {
+				call.completeExceptionally(e);
+				throw e;
+			} finally {
+				inFlight.remove(key, call);
+			}
+		}
+		return await(existing, loader);
+	}
+
+	public void invalidate(K key) {
+		if(key != null) {
+			inFlight.remove(key);
+		}
+	}
+
+	private V await(CompletableFuture<V> existing, Supplier<V> loader) {
+		try {
+			return existing.thenApply(copier).get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			return loader.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return loader.get();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	public int inFlightCount() {
+		return inFlight.size();
+	}
+
+	/*Quantos aguardam a carga em andamento da chave*/
+	int waitingCount(K key) {
+		CompletableFuture<V> call = inFlight.get(key);
+		return call == null ? 0 : call.getNumberOfDependents();
+	}
+
+}
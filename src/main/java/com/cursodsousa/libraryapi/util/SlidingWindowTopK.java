@@ -0,0 +1,196 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*Top-K aproximado dentro de uma janela deslizante: um CountMinSketch por fatia de tempo e um min-heap
+ *com até K candidatos e suas estimativas. Fatias que saem da janela são zeradas e o heap recalculado.
+ *Nada usa lock: o sketch é de contadores atômicos e o heap é imutável, trocado por compare-and-set.
+ *Um item abaixo do menor candidato com o heap cheio só lê o heap; os demais copiam K posições.*/
+public class SlidingWindowTopK {
+
+	private final int k;
+	private final long sliceMillis;
+	private final CountMinSketch[] slices;
+	private final AtomicLong currentSlice;
+	private final AtomicReference<Heap> candidates = new AtomicReference<>(Heap.EMPTY);
+
+	public SlidingWindowTopK(int k, int slices, long sliceMillis, int sketchDepth, int sketchWidth, long now) {
+		this.k = k;
+		this.sliceMillis = sliceMillis;
+		this.slices = new CountMinSketch[slices];
+		for(int i = 0; i < slices; i++) {
+			this.slices[i] = new CountMinSketch(sketchDepth, sketchWidth);
+		}
+		this.currentSlice = new AtomicLong(now / sliceMillis);
+	}
+
+	public void add(long item, long now) {
+		rotate(now);
+		slices[(int) Math.floorMod(currentSlice.get(), (long) slices.length)].add(item, 1);
+		offer(item, estimate(item));
+	}
+
+	public long estimate(long item) {
+		long total = 0;
+		for(CountMinSketch slice : slices) {
+			total += slice.estimate(item);
+		}
+		return total;
+	}
+
+	/*O(K): ordena só os candidatos, com a estimativa atual de cada um*/
+	public List<Entry<Long, Long>> top(int limit, long now) {
+		rotate(now);
+		Heap heap = candidates.get();
+		List<Entry<Long, Long>> top = new ArrayList<>(heap.size);
+		for(int i = 0; i < heap.size; i++) {
+			top.add(new SimpleImmutableEntry<>(heap.items[i], estimate(heap.items[i])));
+		}
+		top.sort(Entry.<Long, Long>comparingByValue().reversed());
+		return top.subList(0, Math.min(top.size(), Math.min(limit, k)));
+	}
+
+	private void offer(long item, long estimate) {
+		while(true) {
+			Heap current = candidates.get();
+			int index = current.indexOf(item);
+			Heap next;
+			if(index >= 0) {
+				if(current.counts[index] >= estimate) {
+					return;
+				}
+				next = current.update(index, estimate);
+			} else if(current.size < k) {
+				next = current.insert(item, estimate);
+			} else if(estimate > current.counts[0]) {
+				next = current.replaceMin(item, estimate);
+			} else {
+				return;
+			}
+			if(candidates.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	private void rotate(long now) {
+		long slice = now / sliceMillis;
+		long current = currentSlice.get();
+		if(slice <= current || !currentSlice.compareAndSet(current, slice)) {
+			return;
+		}
+		long expired = Math.min(slice - current, slices.length);
+		for(long i = 1; i <= expired; i++) {
+			slices[(int) Math.floorMod(current + i, (long) slices.length)].clear();
+		}
+		Heap before;
+		Heap after;
+		do {
+			before = candidates.get();
+			after = Heap.EMPTY;
+			for(int i = 0; i < before.size; i++) {
+				long estimate = estimate(before.items[i]);
+				if(estimate > 0) {
+					after = after.insert(before.items[i], estimate);
+				}
+			}
+		} while(!candidates.compareAndSet(before, after));
+	}
+
+	/*Min-heap imutável em arrays: a raiz é o candidato mais fraco*/
+	private static final class Heap {
+
+		static final Heap EMPTY = new Heap(new long[0], new long[0], 0);
+
+		final long[] items;
+		final long[] counts;
+		final int size;
+
+		Heap(long[] items, long[] counts, int size) {
+			this.items = items;
+			this.counts = counts;
+			this.size = size;
+		}
+
+		int indexOf(long item) {
+			for(int i = 0; i < size; i++) {
+				if(items[i] == item) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		Heap insert(long item, long count) {
+			Heap next = new Heap(Arrays.copyOf(items, size + 1), Arrays.copyOf(counts, size + 1), size + 1);
+			next.items[size] = item;
+			next.counts[size] = count;
+			next.siftUp(size);
+			return next;
+		}
+
+		/*Uma estimativa só cresce entre rotações, então o item desce no heap*/
+		Heap update(int index, long count) {
+			Heap next = copy();
+			next.counts[index] = count;
+			next.siftDown(index);
+			return next;
+		}
+
+		Heap replaceMin(long item, long count) {
+			Heap next = copy();
+			next.items[0] = item;
+			next.counts[0] = count;
+			next.siftDown(0);
+			return next;
+		}
+
+		private Heap copy() {
+			return new Heap(items.clone(), counts.clone(), size);
+		}
+
+		private void siftUp(int index) {
+			while(index > 0) {
+				int parent = (index - 1) / 2;
+				if(counts[parent] <= counts[index]) {
+					return;
+				}
+				swap(parent, index);
+				index = parent;
+			}
+		}
+
+		private void siftDown(int index) {
+			while(true) {
+				int smallest = index;
+				for(int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+					if(counts[child] < counts[smallest]) {
+						smallest = child;
+					}
+				}
+				if(smallest == index) {
+					return;
+				}
+				swap(smallest, index);
+				index = smallest;
+			}
+		}
+
+		private void swap(int first, int second) {
+			long item = items[first];
+			long count = counts[first];
+			items[first] = items[second];
+			counts[first] = counts[second];
+			items[second] = item;
+			counts[second] = count;
+		}
+
+	}
+
+}
@@ -0,0 +1,560 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*Índice imutável de prefixos para o autocomplete de livros.
+ * - os títulos e autores viram termos normalizados (minúsculas, sem acentos); cada termo tem a lista dos
+ *   livros que o contêm, em arrays primitivos (CSR) em vez de objetos por livro;
+ * - os livros são numerados por popularidade, então todas as listas já estão na ordem do ranking e as
+ *   melhores sugestões são sempre os menores números;
+ * - os termos ordenados formam um trie implícito: os termos com um prefixo são um intervalo contíguo,
+ *   achado por busca binária; para prefixos curtos (os de muitos termos) os melhores livros ficam pré-calculados;
+ * - o ISBN é guardado como número com 13 dígitos, e um prefixo de ISBN também é um intervalo; os intervalos
+ *   com mais de ISBN_SCAN_LIMIT livros têm os melhores pré-calculados, os demais são ranqueados por inteiro.
+ *Cada palavra da consulta é prefixo de algum termo do livro: "senhor an" encontra "O Senhor dos Anéis".
+ *Memória por livro, com seis termos em média: ~24 bytes das listas, ~28 dos termos do livro, 8 do id e
+ *12 do ISBN, além do vocabulário (~50 bytes por termo distinto) e do cache de prefixos. São ~400 MB para
+ *5 milhões de livros, e estimatedBytes() informa o valor do índice atual.*/
+public final class SuggestionIndex {
+
+	public static final SuggestionIndex EMPTY = new Builder().build(0, 0);
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern ISBN_QUERY = Pattern.compile("[0-9xX\\-\\s]+");
+	private static final int ISBN_DIGITS = 13;
+	private static final int ISBN_SCAN_LIMIT = 1000;
+	private static final String ISBN_KEY = "#";
+
+	private final String[] terms;
+	private final int[] termStart;
+	private final int[] postings;
+	private final int[] docTermStart;
+	private final int[] docTerms;
+	private final long[] bookIds;
+	private final long[] isbnKeys;
+	private final int[] isbnDocs;
+	private final int cachedPrefixLength;
+	private final int cachedTopK;
+	private final Map<String, int[]> prefixCache;
+	private final Map<String, int[]> isbnPrefixCache;
+
+	private SuggestionIndex(String[] terms, int[] termStart, int[] postings, int[] docTermStart, int[] docTerms, long[] bookIds,
+			long[] isbnKeys, int[] isbnDocs, int cachedPrefixLength, int cachedTopK, Map<String, int[]> prefixCache,
+			Map<String, int[]> isbnPrefixCache) {
+		this.terms = terms;
+		this.termStart = termStart;
+		this.postings = postings;
+		this.docTermStart = docTermStart;
+		this.docTerms = docTerms;
+		this.bookIds = bookIds;
+		this.isbnKeys = isbnKeys;
+		this.isbnDocs = isbnDocs;
+		this.cachedPrefixLength = cachedPrefixLength;
+		this.cachedTopK = cachedTopK;
+		this.prefixCache = prefixCache;
+		this.isbnPrefixCache = isbnPrefixCache;
+	}
+
+	/*Ids dos livros, do mais para o menos popular; skip exclui livros cuja versão indexada está desatualizada*/
+	public List<Long> suggest(Query query, int limit, LongPredicate skip) {
+		TreeSet<Integer> found = new TreeSet<>();
+		if(!query.tokens.isEmpty()) {
+			collectTerms(query.tokens, limit, skip, found);
+		}
+		if(query.isbnDigits != null) {
+			collectIsbn(query.isbnDigits, limit, skip, found);
+		}
+		return found.stream().limit(limit).map(doc -> bookIds[doc]).collect(Collectors.toList());
+	}
+
+	private void collectTerms(List<String> tokens, int limit, LongPredicate skip, Set<Integer> found) {
+		int[] lo = new int[tokens.size()];
+		int[] hi = new int[tokens.size()];
+		int driver = 0;
+		for(int i = 0; i < tokens.size(); i++) {
+			lo[i] = lowerBound(tokens.get(i));
+			hi[i] = lowerBound(tokens.get(i) + Character.MAX_VALUE);
+			if(lo[i] == hi[i]) {
+				return;
+			}
+			if(termStart[hi[i]] - termStart[lo[i]] < termStart[hi[driver]] - termStart[lo[driver]]) {
+				driver = i;
+			}
+		}
+		int added = 0;
+		DocCursor candidates = candidates(tokens.get(driver), lo[driver], hi[driver]);
+		for(int doc = candidates.next(); doc >= 0 && added < limit; doc = candidates.next()) {
+			if(!skip.test(bookIds[doc]) && containsAll(doc, lo, hi, driver) && found.add(doc)) {
+				added++;
+			}
+		}
+	}
+
+	/*Um termo: a própria lista. Prefixo curto: o cache, seguido da intercalação a partir do último livro
+	 *do cache quando os filtros o esgotam. Demais: intercala as listas dos termos do intervalo*/
+	private DocCursor candidates(String token, int lo, int hi) {
+		if(hi - lo == 1) {
+			return new ArrayCursor(postings, termStart[lo], termStart[hi]);
+		}
+		int[] cached = token.length() <= cachedPrefixLength ? prefixCache.get(token) : null;
+		if(cached == null) {
+			return new MergeCursor(lo, hi, -1);
+		}
+		if(cached.length < cachedTopK) {
+			return new ArrayCursor(cached, 0, cached.length);
+		}
+		return new CachedCursor(cached, lo, hi);
+	}
+
+	private boolean containsAll(int doc, int[] lo, int[] hi, int skipToken) {
+		for(int i = 0; i < lo.length; i++) {
+			if(i == skipToken) {
+				continue;
+			}
+			int position = Arrays.binarySearch(docTerms, docTermStart[doc], docTermStart[doc + 1], lo[i]);
+			int first = position >= 0 ? position : -position - 1;
+			if(first == docTermStart[doc + 1] || docTerms[first] >= hi[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*Os livros do intervalo estão na ordem do ISBN, não do ranking: um intervalo grande usa o cache e só é
+	 *ranqueado por inteiro quando os filtros esgotam o cache; um pequeno é ranqueado direto, sem cortes*/
+	private void collectIsbn(String digits, int limit, LongPredicate skip, Set<Integer> found) {
+		long scale = pow10(ISBN_DIGITS - digits.length());
+		long prefix = Long.parseLong(digits);
+		int from = lowerBound(isbnKeys, prefix * scale);
+		int to = lowerBound(isbnKeys, (prefix + 1) * scale);
+		int[] cached = to - from > ISBN_SCAN_LIMIT ? isbnPrefixCache.get(digits) : null;
+		int added = 0;
+		if(cached != null) {
+			for(int i = 0; i < cached.length && added < limit; i++) {
+				if(!skip.test(bookIds[cached[i]]) && found.add(cached[i])) {
+					added++;
+				}
+			}
+			if(added == limit || cached.length < cachedTopK) {
+				return;
+			}
+		}
+		for(int doc : smallest(isbnDocs, from, to, limit - added, doc -> !skip.test(bookIds[doc]) && !found.contains(doc))) {
+			found.add(doc);
+		}
+	}
+
+	/*Os k menores números (os mais populares) aceitos por accept em docs[from, to), em ordem crescente*/
+	private static int[] smallest(int[] docs, int from, int to, int k, IntPredicate accept) {
+		PriorityQueue<Integer> best = new PriorityQueue<>(Collections.reverseOrder());
+		for(int i = from; i < to && k > 0; i++) {
+			if((best.size() < k || docs[i] < best.peek()) && accept.test(docs[i])) {
+				best.add(docs[i]);
+				if(best.size() > k) {
+					best.poll();
+				}
+			}
+		}
+		int[] result = best.stream().mapToInt(Integer::intValue).toArray();
+		Arrays.sort(result);
+		return result;
+	}
+
+	private int lowerBound(String term) {
+		int position = Arrays.binarySearch(terms, term);
+		return position >= 0 ? position : -position - 1;
+	}
+
+	private static int lowerBound(long[] keys, long key) {
+		int position = Arrays.binarySearch(keys, key);
+		if(position < 0) {
+			return -position - 1;
+		}
+		while(position > 0 && keys[position - 1] == key) {
+			position--;
+		}
+		return position;
+	}
+
+	public int size() {
+		return bookIds.length;
+	}
+
+	public long estimatedBytes() {
+		long bytes = 4L * (termStart.length + postings.length + docTermStart.length + docTerms.length + isbnDocs.length)
+				+ 8L * (bookIds.length + isbnKeys.length);
+		for(String term : terms) {
+			bytes += 48 + 2L * term.length();
+		}
+		for(Map.Entry<String, int[]> entry : prefixCache.entrySet()) {
+			bytes += 96 + 2L * entry.getKey().length() + 4L * entry.getValue().length;
+		}
+		for(Map.Entry<String, int[]> entry : isbnPrefixCache.entrySet()) {
+			bytes += 96 + 2L * entry.getKey().length() + 4L * entry.getValue().length;
+		}
+		return bytes;
+	}
+
+	public static List<String> tokens(String text) {
+		if(text == null) {
+			return Collections.emptyList();
+		}
+		String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+		return Arrays.stream(SEPARATORS.split(normalized)).filter(token -> !token.isEmpty()).collect(Collectors.toList());
+	}
+
+	static String isbnDigits(String isbn) {
+		if(isbn == null) {
+			return null;
+		}
+		String digits = isbn.replaceAll("[^0-9]", "");
+		if(digits.isEmpty()) {
+			return null;
+		}
+		return digits.length() > ISBN_DIGITS ? digits.substring(0, ISBN_DIGITS) : digits;
+	}
+
+	static long isbnKey(String isbn) {
+		String digits = isbnDigits(isbn);
+		return digits == null ? -1 : Long.parseLong(digits) * pow10(ISBN_DIGITS - digits.length());
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		for(int i = 0; i < exponent; i++) {
+			value *= 10;
+		}
+		return value;
+	}
+
+	/*Consulta normalizada uma única vez e usada tanto no índice quanto nos livros ainda não indexados*/
+	public static final class Query {
+
+		private final List<String> tokens;
+		private final String isbnDigits;
+
+		private Query(List<String> tokens, String isbnDigits) {
+			this.tokens = tokens;
+			this.isbnDigits = isbnDigits;
+		}
+
+		public static Query parse(String text) {
+			String trimmed = text == null ? "" : text.trim();
+			return new Query(tokens(trimmed), ISBN_QUERY.matcher(trimmed).matches() ? isbnDigits(trimmed) : null);
+		}
+
+		public boolean isEmpty() {
+			return tokens.isEmpty() && isbnDigits == null;
+		}
+
+		/*Todo Document encontrado tem uma chave começando por uma destas: a palavra mais longa e o ISBN*/
+		public List<String> keys() {
+			List<String> keys = new ArrayList<>(2);
+			tokens.stream().max(Comparator.comparingInt(String::length)).ifPresent(keys::add);
+			if(isbnDigits != null) {
+				keys.add(ISBN_KEY + isbnDigits);
+			}
+			return keys;
+		}
+
+	}
+
+	/*Um livro fora do índice (criado ou alterado depois da última reconstrução)*/
+	public static final class Document {
+
+		private final long bookId;
+		private final List<String> tokens;
+		private final String isbnDigits;
+
+		public Document(long bookId, String title, String author, String isbn) {
+			this.bookId = bookId;
+			List<String> all = new ArrayList<>(tokens(title));
+			all.addAll(tokens(author));
+			this.tokens = all;
+			this.isbnDigits = isbnDigits(isbn);
+		}
+
+		public long getBookId() {
+			return bookId;
+		}
+
+		/*Os termos e o ISBN, com um prefixo que nenhum termo tem, para localizar o documento por Query.keys()*/
+		public Set<String> keys() {
+			Set<String> keys = new TreeSet<>(tokens);
+			if(isbnDigits != null) {
+				keys.add(ISBN_KEY + isbnDigits);
+			}
+			return keys;
+		}
+
+		public boolean matches(Query query) {
+			if(query.isbnDigits != null && isbnDigits != null && isbnDigits.startsWith(query.isbnDigits)) {
+				return true;
+			}
+			return !query.tokens.isEmpty() && query.tokens.stream().allMatch(token -> tokens.stream().anyMatch(term -> term.startsWith(token)));
+		}
+
+	}
+
+	public static final class Builder {
+
+		private final Map<String, Integer> dictionary = new HashMap<>();
+		private final List<String> dictionaryTerms = new ArrayList<>();
+		private long[] bookIds = new long[1024];
+		private long[] popularity = new long[1024];
+		private long[] isbnKeys = new long[1024];
+		private int[] docTermStart = new int[1025];
+		private int[] docTerms = new int[4096];
+		private int docs;
+
+		public Builder add(long bookId, String title, String author, String isbn, long score) {
+			if(docs == bookIds.length) {
+				bookIds = Arrays.copyOf(bookIds, docs * 2);
+				popularity = Arrays.copyOf(popularity, docs * 2);
+				isbnKeys = Arrays.copyOf(isbnKeys, docs * 2);
+				docTermStart = Arrays.copyOf(docTermStart, docs * 2 + 1);
+			}
+			bookIds[docs] = bookId;
+			popularity[docs] = score;
+			isbnKeys[docs] = isbnKey(isbn);
+			int start = docTermStart[docs];
+			int end = start;
+			Set<String> tokens = new TreeSet<>(tokens(title));
+			tokens.addAll(tokens(author));
+			for(String token : tokens) {
+				if(end == docTerms.length) {
+					docTerms = Arrays.copyOf(docTerms, end * 2);
+				}
+				docTerms[end++] = dictionary.computeIfAbsent(token, term -> {
+					dictionaryTerms.add(term);
+					return dictionaryTerms.size() - 1;
+				});
+			}
+			docTermStart[++docs] = end;
+			return this;
+		}
+
+		public SuggestionIndex build(int cachedPrefixLength, int cachedTopK) {
+			int[] order = IntStream.range(0, docs).boxed()
+					.sorted(Comparator.<Integer>comparingLong(doc -> -popularity[doc]).thenComparingLong(doc -> bookIds[doc]))
+					.mapToInt(Integer::intValue).toArray();
+
+			String[] terms = dictionaryTerms.toArray(new String[0]);
+			Integer[] byTerm = IntStream.range(0, terms.length).boxed().sorted(Comparator.comparing(term -> terms[term])).toArray(Integer[]::new);
+			int[] termId = new int[terms.length];
+			String[] sortedTerms = new String[terms.length];
+			for(int i = 0; i < byTerm.length; i++) {
+				termId[byTerm[i]] = i;
+				sortedTerms[i] = terms[byTerm[i]];
+			}
+
+			long[] orderedBookIds = new long[docs];
+			int[] orderedTermStart = new int[docs + 1];
+			int[] orderedTerms = new int[docTermStart[docs]];
+			int[] termCounts = new int[terms.length + 1];
+			for(int doc = 0; doc < docs; doc++) {
+				int source = order[doc];
+				orderedBookIds[doc] = bookIds[source];
+				int length = docTermStart[source + 1] - docTermStart[source];
+				int start = orderedTermStart[doc];
+				for(int i = 0; i < length; i++) {
+					orderedTerms[start + i] = termId[docTerms[docTermStart[source] + i]];
+					termCounts[orderedTerms[start + i] + 1]++;
+				}
+				Arrays.sort(orderedTerms, start, start + length);
+				orderedTermStart[doc + 1] = start + length;
+			}
+
+			int[] termStart = new int[terms.length + 1];
+			for(int term = 0; term < terms.length; term++) {
+				termStart[term + 1] = termStart[term] + termCounts[term + 1];
+			}
+			int[] fill = Arrays.copyOf(termStart, terms.length);
+			int[] postings = new int[orderedTerms.length];
+			for(int doc = 0; doc < docs; doc++) {
+				for(int i = orderedTermStart[doc]; i < orderedTermStart[doc + 1]; i++) {
+					postings[fill[orderedTerms[i]]++] = doc;
+				}
+			}
+
+			int[] withIsbn = IntStream.range(0, docs).filter(doc -> isbnKeys[order[doc]] >= 0).boxed()
+					.sorted(Comparator.comparingLong(doc -> isbnKeys[order[doc]]))
+					.mapToInt(Integer::intValue).toArray();
+			long[] sortedIsbnKeys = Arrays.stream(withIsbn).mapToLong(doc -> isbnKeys[order[doc]]).toArray();
+
+			Map<String, int[]> prefixCache = prefixCache(sortedTerms, termStart, postings, cachedPrefixLength, cachedTopK);
+			Map<String, int[]> isbnPrefixCache = isbnPrefixCache(sortedIsbnKeys, withIsbn, cachedTopK);
+			return new SuggestionIndex(sortedTerms, termStart, postings, orderedTermStart, orderedTerms, orderedBookIds,
+					sortedIsbnKeys, withIsbn, cachedPrefixLength, cachedTopK, prefixCache, isbnPrefixCache);
+		}
+
+		/*Para cada prefixo de ISBN com mais de ISBN_SCAN_LIMIT livros, os topK mais populares. São no máximo
+		 *13 * livros / ISBN_SCAN_LIMIT prefixos; a chave mantém os zeros à esquerda: "0123", não "123"*/
+		private static Map<String, int[]> isbnPrefixCache(long[] keys, int[] docs, int topK) {
+			Map<String, int[]> cache = new HashMap<>();
+			if(topK <= 0) {
+				return cache;
+			}
+			for(int length = 1; length <= ISBN_DIGITS; length++) {
+				long scale = pow10(ISBN_DIGITS - length);
+				int from = 0;
+				while(from < keys.length) {
+					long prefix = keys[from] / scale;
+					int to = from + 1;
+					while(to < keys.length && keys[to] / scale == prefix) {
+						to++;
+					}
+					if(to - from > ISBN_SCAN_LIMIT) {
+						cache.put(String.format("%0" + length + "d", prefix), smallest(docs, from, to, topK, doc -> true));
+					}
+					from = to;
+				}
+			}
+			return cache;
+		}
+
+		/*Para cada prefixo de até maxLength caracteres, os topK livros mais populares entre todos os termos com ele*/
+		private static Map<String, int[]> prefixCache(String[] terms, int[] termStart, int[] postings, int maxLength, int topK) {
+			Map<String, int[]> cache = new HashMap<>();
+			if(topK <= 0) {
+				return cache;
+			}
+			for(int length = 1; length <= maxLength; length++) {
+				int term = 0;
+				while(term < terms.length) {
+					if(terms[term].length() < length) {
+						term++;
+						continue;
+					}
+					String prefix = terms[term].substring(0, length);
+					TreeSet<Integer> best = new TreeSet<>();
+					for(; term < terms.length && terms[term].startsWith(prefix); term++) {
+						for(int i = termStart[term]; i < Math.min(termStart[term + 1], termStart[term] + topK); i++) {
+							best.add(postings[i]);
+							if(best.size() > topK) {
+								best.pollLast();
+							}
+						}
+					}
+					if(term - lowerBound(terms, prefix) > 1) {
+						cache.put(prefix, best.stream().mapToInt(Integer::intValue).toArray());
+					}
+				}
+			}
+			return cache;
+		}
+
+		private static int lowerBound(String[] terms, String prefix) {
+			int position = Arrays.binarySearch(terms, prefix);
+			return position >= 0 ? position : -position - 1;
+		}
+
+	}
+
+	private interface DocCursor {
+
+		/*Próximo livro em ordem de popularidade, ou -1 no fim*/
+		int next();
+
+	}
+
+	private static final class ArrayCursor implements DocCursor {
+
+		private final int[] docs;
+		private final int end;
+		private int position;
+
+		ArrayCursor(int[] docs, int from, int end) {
+			this.docs = docs;
+			this.position = from;
+			this.end = end;
+		}
+
+		@Override
+		public int next() {
+			return position < end ? docs[position++] : -1;
+		}
+
+	}
+
+	private final class MergeCursor implements DocCursor {
+
+		/*{livro atual, posição, fim} de cada termo do intervalo*/
+		private final PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparingInt((int[] head) -> head[0]));
+		private int last = -1;
+
+		/*Começa depois do livro after em cada lista*/
+		MergeCursor(int lo, int hi, int after) {
+			for(int term = lo; term < hi; term++) {
+				int position = Arrays.binarySearch(postings, termStart[term], termStart[term + 1], after + 1);
+				int first = position >= 0 ? position : -position - 1;
+				if(first < termStart[term + 1]) {
+					heads.add(new int[] {postings[first], first, termStart[term + 1]});
+				}
+			}
+		}
+
+		@Override
+		public int next() {
+			while(!heads.isEmpty()) {
+				int[] head = heads.poll();
+				int doc = head[0];
+				if(++head[1] < head[2]) {
+					head[0] = postings[head[1]];
+					heads.add(head);
+				}
+				if(doc != last) {
+					last = doc;
+					return doc;
+				}
+			}
+			return -1;
+		}
+
+	}
+
+	private final class CachedCursor implements DocCursor {
+
+		private final int[] cached;
+		private final int lo;
+		private final int hi;
+		private int position;
+		private DocCursor rest;
+
+		CachedCursor(int[] cached, int lo, int hi) {
+			this.cached = cached;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		public int next() {
+			if(position < cached.length) {
+				return cached[position++];
+			}
+			if(rest == null) {
+				rest = new MergeCursor(lo, hi, cached[cached.length - 1]);
+			}
+			return rest.next();
+		}
+
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.cursodsousa.libraryapi.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/*Sorteia índices 0..n-1 com P(k) proporcional a 1/(k+1)^s; s = 0 é uniforme*/
+public class ZipfSampler {
+
+	private final double[] cumulative;
+
+	public ZipfSampler(int n, double s) {
+		cumulative = new double[n];
+		double sum = 0;
+		for(int k = 0; k < n; k++) {
+			sum += 1 / Math.pow(k + 1, s);
+			cumulative[k] = sum;
+		}
+		for(int k = 0; k < n; k++) {
+			cumulative[k] /= sum;
+		}
+	}
+
+	public int next(Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+	}
+
+}
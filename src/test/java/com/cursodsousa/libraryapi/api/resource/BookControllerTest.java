@@ -1,6 +1,9 @@
 package com.cursodsousa.libraryapi.api.resource;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -20,6 +23,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -27,12 +31,17 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.cursodsousa.libraryapi.api.dto.BookBatchDTO;
 import com.cursodsousa.libraryapi.api.dto.BookDTO;
 import com.cursodsousa.libraryapi.exception.BusinessException;
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.service.BookAvailabilityService;
 import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.BookSuggestService;
 import com.cursodsousa.libraryapi.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -51,6 +60,12 @@ class BookControllerTest {
 	@MockBean
 	LoanService LoanService;
 	
+	@MockBean
+	BookSuggestService suggestService;
+	
+	@MockBean
+	BookAvailabilityService availabilityService;
+	
 	@Test
 	@DisplayName("Deve criar um livro com sucesso.")
 	void createBookTest() throws Exception {
@@ -128,6 +143,7 @@ class BookControllerTest {
 						.isbn(createNewBookDTO().getIsbn())
 						.build();
 		
+		BDDMockito.given(service.getVersion(id)).willReturn(Optional.of(0l));
 		BDDMockito.given(service.getById(id)).willReturn(Optional.of(book));
 		
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -136,6 +152,8 @@ class BookControllerTest {
 		
 		mvc.perform(request)
 			.andExpect(status().isOk())
+			.andExpect(header().string(HttpHeaders.ETAG, "W/\"0\""))
+			.andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT)))
 			.andExpect(jsonPath("id").value(id))
 			.andExpect(jsonPath("title").value(createNewBookDTO().getTitle()))
 			.andExpect(jsonPath("author").value(createNewBookDTO().getAuthor()))
@@ -143,6 +161,89 @@ class BookControllerTest {
 	
 	}
 	
+	@Test
+	@DisplayName("Deve criar um livro recebendo e respondendo em CBOR.")
+	void createBookCborTest() throws Exception {
+		
+		BookDTO dto = createNewBookDTO();
+		Book savedBook = Book.builder().id(10l).author("Arthur").title("As aventuras").isbn("001").build();
+		
+		BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(savedBook);
+		
+		ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+			.post(BOOK_API)
+			.contentType(MediaType.APPLICATION_CBOR)
+			.accept(MediaType.APPLICATION_CBOR)
+			.content(cbor.writeValueAsBytes(dto));
+		
+		byte[] body = mvc
+			.perform(request)
+			.andExpect(status().isCreated())
+			.andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+			.andReturn().getResponse().getContentAsByteArray();
+		
+		BookDTO created = cbor.readValue(body, BookDTO.class);
+		assertThat(created.getId()).isEqualTo(10l);
+		assertThat(created.getIsbn()).isEqualTo(dto.getIsbn());
+	}
+	
+	@Test
+	@DisplayName("Deve responder em Smile quando pedido e em JSON quando o cliente aceita qualquer formato.")
+	void getBookSmileAndDefaultJsonTest() throws Exception {
+		Long id = 1l;
+		Book book = Book.builder().id(id).author("Arthur").title("As aventuras").isbn("001").build();
+		
+		BDDMockito.given(service.getVersion(id)).willReturn(Optional.of(0l));
+		BDDMockito.given(service.getById(id)).willReturn(Optional.of(book));
+		
+		byte[] body = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/"+id)).accept("application/x-jackson-smile"))
+			.andExpect(status().isOk())
+			.andExpect(content().contentType("application/x-jackson-smile"))
+			.andReturn().getResponse().getContentAsByteArray();
+		assertThat(new ObjectMapper(new SmileFactory()).readValue(body, BookDTO.class).getTitle()).isEqualTo("As aventuras");
+		
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/"+id)).accept(MediaType.ALL))
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+			.andExpect(jsonPath("title").value("As aventuras"));
+	}
+	
+	@Test
+	@DisplayName("Deve sugerir livros na ordem do índice, ignorando os que não existem mais")
+	void suggestTest() throws Exception {
+		Book popular = Book.builder().id(2l).author("Fulano").title("As aventuras").isbn("002").build();
+		Book other = Book.builder().id(1l).author("Fulano").title("Aventuras no mar").isbn("001").build();
+		BDDMockito.given(suggestService.suggest("avent", 10)).willReturn(Arrays.asList(2l, 3l, 1l));
+		BDDMockito.given(service.getByIds(Arrays.asList(2l, 3l, 1l))).willReturn(Arrays.asList(other, popular));
+		
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/suggest?q=avent")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", hasSize(2)))
+			.andExpect(jsonPath("$[0].id").value(2))
+			.andExpect(jsonPath("$[1].id").value(1));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar 304 sem carregar o livro quando o ETag informado for o atual")
+	void getBookNotModified() throws Exception {
+		Long id = 1l;
+		
+		BDDMockito.given(service.getVersion(id)).willReturn(Optional.of(3l));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+			.get(BOOK_API.concat("/"+id))
+			.header(HttpHeaders.IF_NONE_MATCH, "W/\"3\"")
+			.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isNotModified())
+			.andExpect(header().string(HttpHeaders.VARY, Matchers.containsString(HttpHeaders.ACCEPT)));
+		
+		Mockito.verify(service, Mockito.never()).getById(id);
+	}
+	
 	@Test
 	@DisplayName("Deve retornar recurso não encontrado quando o livro procurado não existir")
 	void bookNotFound() throws Exception {
@@ -211,6 +312,51 @@ class BookControllerTest {
 		.andExpect(jsonPath("isbn").value("321"));
 	}
 	
+	@Test
+	@DisplayName("Deve aceitar no If-Match o ETag fraco obtido na consulta do livro")
+	void updateBookWithWeakETag() throws Exception {
+		
+		String json = new ObjectMapper().writeValueAsString(createNewBookDTO());
+		Book updatingBook = Book.builder().id(1l).title("some title").author("some author").isbn("321").version(2l).build();
+		BDDMockito.given(service.getById(Mockito.anyLong()))
+			.willReturn(Optional.of(updatingBook));
+		BDDMockito.given(service.update(updatingBook)).willReturn(updatingBook);
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.put(BOOK_API.concat("/"+ 1))
+				.header(HttpHeaders.IF_MATCH, "W/\"2\"")
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+		.andExpect(status().isOk());
+		
+		Mockito.verify(service).update(updatingBook);
+	}
+	
+	@Test
+	@DisplayName("Deve retornar 412 ao tentar atualizar um livro com ETag desatualizado")
+	void updateBookWithStaleETag() throws Exception {
+		
+		String json = new ObjectMapper().writeValueAsString(createNewBookDTO());
+		Book updatingBook = Book.builder().id(1l).title("some title").author("some author").isbn("321").version(2l).build();
+		BDDMockito.given(service.getById(Mockito.anyLong()))
+			.willReturn(Optional.of(updatingBook));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.put(BOOK_API.concat("/"+ 1))
+				.header(HttpHeaders.IF_MATCH, "\"1\"")
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+		.andExpect(status().isPreconditionFailed());
+		
+		Mockito.verify(service, Mockito.never()).update(Mockito.any(Book.class));
+	}
+	
 	@Test
 	@DisplayName("Deve retornar 404 ao tentar atualizar um livro inexistente")
 	void updateInexistentBook() throws Exception {
@@ -254,6 +400,67 @@ class BookControllerTest {
 			.andExpect(jsonPath("pageable.pageNumber").value(0));
 	}
 	
+	@Test
+	@DisplayName("Deve filtrar livros pela disponibilidade")
+	void findAvailableBooks() throws Exception {
+		
+		Book book = Book.builder().id(1l).title("As aventuras").author("Fulano").isbn("001").build();
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.eq(true), Mockito.any(Pageable.class)))
+				.willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 10), 1));
+		
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=aventuras&available=true&page=0&size=10")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(1)))
+			.andExpect(jsonPath("content[0].id").value(1))
+			.andExpect(jsonPath("totalElements").value(1));
+		
+		Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+	}
+	
+	@Test
+	@DisplayName("Deve informar a disponibilidade de livros pelos ids sem repetir ids")
+	void availabilityTest() throws Exception {
+		
+		BDDMockito.given(availabilityService.isAvailable(Mockito.anyLong())).willReturn(true);
+		BDDMockito.given(availabilityService.isAvailable(2l)).willReturn(false);
+		
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/availability?ids=1,2,3,1")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("available", Matchers.contains(1, 3)))
+			.andExpect(jsonPath("loaned", Matchers.contains(2)));
+		
+		Mockito.verify(service, Mockito.never()).getByIds(Mockito.any());
+	}
+	
+	@Test
+	@DisplayName("Deve obter livros por ids e isbns preservando a ordem e informando os não encontrados")
+	void batchBooks() throws Exception {
+		
+		Book first = Book.builder().id(1l).title("A").author("Fulano").isbn("001").build();
+		Book second = Book.builder().id(2l).title("B").author("Ciclano").isbn("002").build();
+		BDDMockito.given(service.getByIds(Arrays.asList(2l, 3l, 1l))).willReturn(Arrays.asList(first, second));
+		BDDMockito.given(service.getByIsbns(Arrays.asList("999"))).willReturn(Arrays.asList());
+		
+		String json = new ObjectMapper().writeValueAsString(BookBatchDTO.builder()
+				.ids(Arrays.asList(2l, 3l, 1l))
+				.isbns(Arrays.asList("999"))
+				.build());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+			.post(BOOK_API.concat("/batch"))
+			.contentType(MediaType.APPLICATION_JSON)
+			.accept(MediaType.APPLICATION_JSON)
+			.content(json);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("books", hasSize(2)))
+			.andExpect(jsonPath("books[0].id").value(2l))
+			.andExpect(jsonPath("books[1].id").value(1l))
+			.andExpect(jsonPath("missingIds[0]").value(3l))
+			.andExpect(jsonPath("missingIsbns[0]").value("999"));
+	}
+	
 	private BookDTO createNewBookDTO() {
 		return BookDTO.builder().author("Arthur").title("As aventuras").isbn("001").build();
 	} 
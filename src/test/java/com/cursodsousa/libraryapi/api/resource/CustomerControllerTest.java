@@ -0,0 +1,104 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.service.CustomerService;
+import com.cursodsousa.libraryapi.service.LoanService;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CustomerController.class)
+@AutoConfigureMockMvc
+class CustomerControllerTest {
+
+	static final String CUSTOMER_API = "/api/customers";
+
+	@Autowired
+	MockMvc mvc;
+	
+	@MockBean
+	CustomerService service;
+	
+	@MockBean
+	LoanService loanService;
+	
+	@Test
+	@DisplayName("Deve listar os empréstimos de um cliente com nome e email do cadastro")
+	void loansTest() throws Exception {
+		Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+		Loan first = createLoan(1l, customer, "123");
+		Loan second = createLoan(2l, customer, "456");
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(customer));
+		BDDMockito.given(loanService.getLoansByCustomer(Mockito.eq(1l), Mockito.any(Pageable.class)))
+			.willReturn(new PageImpl<Loan>(Arrays.asList(first, second), PageRequest.of(0, 10), 2));
+		
+		mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/loans?page=0&size=10")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(2)))
+			.andExpect(jsonPath("totalElements").value(2))
+			.andExpect(jsonPath("content[0].customer").value("Fulano"))
+			.andExpect(jsonPath("content[0].email").value("fulano@email.com"))
+			.andExpect(jsonPath("content[1].book.isbn").value("456"));
+	}
+	
+	@Test
+	@DisplayName("Deve listar os empréstimos de um cliente no envelope compacto")
+	void loansCompactTest() throws Exception {
+		Customer customer = Customer.builder().id(1l).name("Fulano").email("fulano@email.com").build();
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(customer));
+		BDDMockito.given(loanService.getLoansByCustomer(Mockito.eq(1l), Mockito.any(Pageable.class)))
+			.willReturn(new PageImpl<Loan>(Arrays.asList(createLoan(1l, customer, "123")), PageRequest.of(0, 10), 1));
+		
+		mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/loans?compact=true&page=0&size=10"))
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("items", Matchers.hasSize(1)))
+			.andExpect(jsonPath("items[0].customer").value("Fulano"))
+			.andExpect(jsonPath("items[0].isbn").value("123"))
+			.andExpect(jsonPath("$.books['123']").exists());
+	}
+	
+	@Test
+	@DisplayName("Deve retornar not found ao listar empréstimos de um cliente inexistente")
+	void loansOfInexistentCustomerTest() throws Exception {
+		BDDMockito.given(service.getById(Mockito.anyLong())).willReturn(Optional.empty());
+		
+		mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API.concat("/1/loans")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isNotFound());
+		
+		Mockito.verify(loanService, Mockito.never()).getLoansByCustomer(Mockito.anyLong(), Mockito.any(Pageable.class));
+	}
+	
+	private static Loan createLoan(Long id, Customer customer, String isbn) {
+		Book book = Book.builder().id(id).isbn(isbn).title("Aventuras").author("Artur").build();
+		return Loan.builder().id(id).customerAccount(customer).book(book).loanDate(LocalDate.now()).returned(false).build();
+	}
+	
+}
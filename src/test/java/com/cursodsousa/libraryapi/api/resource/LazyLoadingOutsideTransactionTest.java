@@ -0,0 +1,85 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+/*Com open-in-view desligado, qualquer carga lazy fora dos serviços gera LazyInitializationException
+ *e a requisição falha. Estes testes percorrem os endpoints que mapeiam empréstimos com seus livros.*/
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class LazyLoadingOutsideTransactionTest {
+
+	@Autowired
+	MockMvc mvc;
+	
+	@Autowired
+	BookRepository bookRepository;
+	
+	@Autowired
+	LoanRepository loanRepository;
+	
+	Book book;
+	
+	@BeforeEach
+	public void setUp() {
+		book = bookRepository.save(Book.builder().isbn("lazy-001").author("Fulano").title("As aventuras").build());
+		loanRepository.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		loanRepository.deleteAll();
+		bookRepository.deleteAll();
+	}
+	
+	@Test
+	@DisplayName("Deve listar empréstimos filtrados com o livro completo sem sessão aberta na view")
+	void findLoansTest() throws Exception {
+		mvc.perform(get("/api/loans?isbn=lazy-001&customer=Fulano").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(1)))
+			.andExpect(jsonPath("content[0].book.isbn").value("lazy-001"));
+	}
+	
+	@Test
+	@DisplayName("Deve listar empréstimos do livro com o livro completo sem sessão aberta na view")
+	void loansByBookTest() throws Exception {
+		mvc.perform(get("/api/books/" + book.getId() + "/loans").accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(1)))
+			.andExpect(jsonPath("content[0].book.title").value("As aventuras"));
+	}
+	
+	@Test
+	@DisplayName("Deve obter os detalhes do livro sem sessão aberta na view")
+	void getBookTest() throws Exception {
+		mvc.perform(get("/api/books/" + book.getId()).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("isbn").value("lazy-001"));
+	}
+	
+}
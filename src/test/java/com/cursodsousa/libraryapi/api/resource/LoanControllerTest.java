@@ -1,5 +1,6 @@
 package com.cursodsousa.libraryapi.api.resource;
 
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -24,6 +25,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -33,11 +35,13 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import com.cursodsousa.libraryapi.api.dto.LoanDTO;
 import com.cursodsousa.libraryapi.api.dto.LoanFilterDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanReturnsDTO;
 import com.cursodsousa.libraryapi.api.dto.ReturnedLoanDTO;
 import com.cursodsousa.libraryapi.exception.BusinessException;
 import com.cursodsousa.libraryapi.model.entity.Book;
 import com.cursodsousa.libraryapi.model.entity.Loan;
 import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.LoanCheckoutBatcher;
 import com.cursodsousa.libraryapi.service.LoanService;
 import com.cursodsousa.libraryapi.service.LoanServiceTest;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -59,6 +63,9 @@ class LoanControllerTest {
 	@MockBean
 	private LoanService loanService;
 	
+	@MockBean
+	private LoanCheckoutBatcher checkoutBatcher;
+	
 	@Test
 	@DisplayName("Deve realizar um empréstimo")
 	void createLoanTest() throws Exception {
@@ -72,7 +79,7 @@ class LoanControllerTest {
 		BDDMockito.given(bookService.getBookByIsbn(isbn)).willReturn(Optional.of(book));
 		
 		Loan loan = Loan.builder().id(1l).customer(customer).book(book).loanDate(LocalDate.now()).build();
-		BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willReturn(loan);
+		BDDMockito.given(checkoutBatcher.checkout(Mockito.any(Loan.class))).willReturn(loan);
 		
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
 			.post(LOAN_API)
@@ -119,7 +126,7 @@ class LoanControllerTest {
 		Book book = Book.builder().id(1l).isbn(isbn).build();
 		BDDMockito.given(bookService.getBookByIsbn(isbn)).willReturn(Optional.of(book));
 		
-		BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willThrow(new BusinessException("Livro já está emprestado."));
+		BDDMockito.given(checkoutBatcher.checkout(Mockito.any(Loan.class))).willThrow(new BusinessException("Livro já está emprestado."));
 		
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
 				.post(LOAN_API)
@@ -139,8 +146,7 @@ class LoanControllerTest {
 	void returnedBookTest() throws Exception {
 		
 		ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
-		Loan loan = Loan.builder().id(1l).build();
-		BDDMockito.given(loanService.getByid(Mockito.anyLong())).willReturn(Optional.of(loan));
+		BDDMockito.given(loanService.updateReturned(1l, true, null)).willReturn(true);
 		
 		String json = new ObjectMapper().writeValueAsString(dto);
 		
@@ -151,7 +157,30 @@ class LoanControllerTest {
 				.content(json)
 			).andExpect(status().isOk());
 		
-		verify(loanService, times(1)).update(loan);
+		verify(loanService, times(1)).updateReturned(1l, true, null);
+		verify(loanService, never()).getByid(Mockito.anyLong());
+	}
+	
+	@Test
+	@DisplayName("Deve retornar 412 ao devolver um empréstimo com ETag desatualizado")
+	void returnedBookWithStaleETagTest() throws Exception {
+		
+		ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
+		Loan loan = Loan.builder().id(1l).version(1l).build();
+		BDDMockito.given(loanService.updateReturned(1l, true, Arrays.asList(0l))).willReturn(false);
+		BDDMockito.given(loanService.getByid(Mockito.anyLong())).willReturn(Optional.of(loan));
+		
+		String json = new ObjectMapper().writeValueAsString(dto);
+		
+		mvc.perform(
+				patch(LOAN_API.concat("/1"))
+				.header(HttpHeaders.IF_MATCH, "\"0\"")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(json)
+			).andExpect(status().isPreconditionFailed());
+		
+		verify(loanService, times(1)).updateReturned(1l, true, Arrays.asList(0l));
 	}
 	
 	@Test
@@ -172,6 +201,25 @@ class LoanControllerTest {
 		
 	}
 	
+	@Test
+	@DisplayName("Deve devolver empréstimos em lote por id e isbn")
+	void returnBooksTest() throws Exception {
+		
+		LoanReturnsDTO dto = LoanReturnsDTO.builder().ids(Arrays.asList(1l, 2l)).isbns(Arrays.asList("123")).build();
+		String json = new ObjectMapper().writeValueAsString(dto);
+		
+		BDDMockito.given(loanService.returnLoans(Arrays.asList(1l, 2l), Arrays.asList("123"))).willReturn(3);
+		
+		mvc.perform(
+				MockMvcRequestBuilders.post(LOAN_API.concat("/returns"))
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(json)
+			)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("returned").value(3));
+	}
+	
 	@Test
 	@DisplayName("Deve filtrar empréstimos")
 	void findLoanTest() throws Exception {
@@ -200,4 +248,34 @@ class LoanControllerTest {
 			.andExpect(jsonPath("pageable.pageNumber").value(0));
 	}
 	
+	@Test
+	@DisplayName("Deve filtrar empréstimos no envelope compacto, com cada livro uma única vez na tabela books")
+	void findLoanCompactTest() throws Exception {
+		
+		Book book = Book.builder().id(1l).isbn("321").title("As aventuras").author("Fulano").build();
+		Loan first = LoanServiceTest.createLoan();
+		first.setId(1l);
+		first.setBook(book);
+		Loan second = LoanServiceTest.createLoan();
+		second.setId(2l);
+		second.setBook(book);
+		
+		BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+				.willReturn(new PageImpl<Loan>(Arrays.asList(first, second), PageRequest.of(0, 2), 3));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+			.get(LOAN_API.concat("?isbn=321&page=0&size=2&compact=true"))
+			.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("items", Matchers.hasSize(2)))
+			.andExpect(jsonPath("items[0].isbn").value("321"))
+			.andExpect(jsonPath("items[0].book").doesNotExist())
+			.andExpect(jsonPath("books['321'].title").value("As aventuras"))
+			.andExpect(jsonPath("total").value(3))
+			.andExpect(jsonPath("nextPage").value(1))
+			.andExpect(jsonPath("pageable").doesNotExist());
+	}
+	
 }
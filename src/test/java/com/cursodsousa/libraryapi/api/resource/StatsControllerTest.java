@@ -0,0 +1,112 @@
+package com.cursodsousa.libraryapi.api.resource;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.cursodsousa.libraryapi.model.entity.BookLoanStats;
+import com.cursodsousa.libraryapi.model.entity.DailyLoanStats;
+import com.cursodsousa.libraryapi.service.BorrowingStatisticsService;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = StatsController.class)
+@AutoConfigureMockMvc
+class StatsControllerTest {
+
+	static final String STATS_API = "/api/stats";
+
+	@Autowired
+	MockMvc mvc;
+	
+	@MockBean
+	BorrowingStatisticsService service;
+	
+	@Test
+	@DisplayName("Deve obter os totais de empréstimos e devoluções de um livro")
+	void bookStatsTest() throws Exception {
+		BDDMockito.given(service.getBookStats(1L))
+			.willReturn(BookLoanStats.builder().bookId(1L).totalLoans(7L).totalReturns(5L).build());
+		
+		mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/books/1")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("bookId").value(1))
+			.andExpect(jsonPath("loans").value(7))
+			.andExpect(jsonPath("returns").value(5));
+	}
+	
+	@Test
+	@DisplayName("Deve listar empréstimos e devoluções por dia no período")
+	void dailyStatsTest() throws Exception {
+		LocalDate from = LocalDate.of(2020, 1, 1);
+		LocalDate to = LocalDate.of(2020, 1, 2);
+		BDDMockito.given(service.getDailyStats(from, to)).willReturn(Arrays.asList(
+				DailyLoanStats.builder().day(from).loans(3L).returns(1L).build(),
+				DailyLoanStats.builder().day(to).loans(0L).returns(2L).build()));
+		
+		mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/daily?from=2020-01-01&to=2020-01-02"))
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$", Matchers.hasSize(2)))
+			.andExpect(jsonPath("$[0].loans").value(3))
+			.andExpect(jsonPath("$[0].returns").value(1))
+			.andExpect(jsonPath("$[1].returns").value(2));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar bad request para um período inválido")
+	void invalidPeriodTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/daily?from=2020-01-02&to=2020-01-01"))
+				.accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isBadRequest());
+		
+		Mockito.verify(service, Mockito.never()).getDailyStats(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	@DisplayName("Deve listar os livros mais emprestados na janela recente")
+	void trendingTest() throws Exception {
+		BDDMockito.given(service.getTopK()).willReturn(10);
+		BDDMockito.given(service.getTrending(5))
+			.willReturn(Collections.singletonList(new SimpleImmutableEntry<>(1L, 42L)));
+		
+		mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/trending?limit=5")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].bookId").value(1))
+			.andExpect(jsonPath("$[0].loans").value(42));
+	}
+	
+	@Test
+	@DisplayName("Deve recusar limites fora de 1 até o tamanho do ranking")
+	void invalidTrendingLimitTest() throws Exception {
+		BDDMockito.given(service.getTopK()).willReturn(10);
+		
+		mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/trending?limit=-1")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isBadRequest());
+		mvc.perform(MockMvcRequestBuilders.get(STATS_API.concat("/trending?limit=11")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isBadRequest());
+		
+		Mockito.verify(service, Mockito.never()).getTrending(Mockito.anyInt());
+	}
+	
+}
@@ -0,0 +1,174 @@
+package com.cursodsousa.libraryapi.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+class ReplicaRoutingDataSourceTest {
+
+	@AfterEach
+	public void tearDown() {
+		ReplicaRoutingDataSource.clearClient();
+	}
+	
+	@Test
+	@DisplayName("Deve alternar as leituras entre as réplicas e enviar escritas ao primário")
+	void routeReadsToReplicasTest() {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", node("replica0"));
+		replicas.put("replica-1", node("replica1"));
+		Routing routing = new Routing(node("primary"), replicas, Duration.ofSeconds(5));
+		
+		assertThat(routing.read()).isEqualTo("replica0");
+		assertThat(routing.read()).isEqualTo("replica1");
+		assertThat(routing.read()).isEqualTo("replica0");
+		assertThat(routing.write()).isEqualTo("primary");
+	}
+	
+	@Test
+	@DisplayName("Deve manter as leituras do cliente no primário logo após uma escrita dele")
+	void readYourWritesTest() {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", node("replica0"));
+		Routing routing = new Routing(node("primary"), replicas, Duration.ofMinutes(1));
+		
+		ReplicaRoutingDataSource.bindClient("cliente-a");
+		routing.write();
+		assertThat(routing.read()).isEqualTo("primary");
+		
+		ReplicaRoutingDataSource.bindClient("cliente-b");
+		assertThat(routing.read()).isEqualTo("replica0");
+	}
+	
+	@Test
+	@DisplayName("Deve ignorar réplicas que falharam na verificação de saúde")
+	void skipUnhealthyReplicaTest() {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", new DriverManagerDataSource("jdbc:h2:mem:inexistente;IFEXISTS=TRUE"));
+		replicas.put("replica-1", node("replica1"));
+		Routing routing = new Routing(node("primary"), replicas, Duration.ofSeconds(5));
+		
+		routing.dataSource.checkHealth();
+		
+		assertThat(routing.read()).isEqualTo("replica1");
+		assertThat(routing.read()).isEqualTo("replica1");
+	}
+	
+	@Test
+	@DisplayName("Deve manter a réplica escolhida até o fim da transação somente leitura")
+	void bindRouteToTransactionTest() {
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", node("replica0"));
+		replicas.put("replica-1", node("replica1"));
+		Routing routing = new Routing(node("primary"), replicas, Duration.ofSeconds(5));
+		
+		routing.reads.execute(status -> {
+			assertThat(routing.dataSource.route()).isEqualTo("replica-0");
+			assertThat(routing.dataSource.route()).isEqualTo("replica-0");
+			assertThat(ReplicaRoutingDataSource.isReplicaTransaction()).isTrue();
+			return null;
+		});
+		routing.writes.execute(status -> {
+			assertThat(routing.jdbc.queryForObject("select name from node", String.class)).isEqualTo("primary");
+			assertThat(ReplicaRoutingDataSource.isReplicaTransaction()).isFalse();
+			return null;
+		});
+		
+		assertThat(ReplicaRoutingDataSource.isReplicaTransaction()).isFalse();
+		assertThat(routing.read()).isEqualTo("replica1");
+	}
+	
+	@Test
+	@DisplayName("Deve copiar o primário para as réplicas locais e só então colocá-las no rodízio")
+	void localReplicaSyncTest() {
+		DataSource primary = node("primary-sync");
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", new DriverManagerDataSource("jdbc:h2:mem:replica-sync;DB_CLOSE_DELAY=-1"));
+		Routing routing = new Routing(primary, replicas, Duration.ofSeconds(5));
+		LocalReplicaSync sync = new LocalReplicaSync(routing.dataSource);
+		
+		assertThat(routing.read()).isEqualTo("primary-sync");
+		
+		sync.sync();
+		new JdbcTemplate(primary).update("update node set name = ?", "alterado");
+		
+		assertThat(routing.read()).isEqualTo("primary-sync");
+		sync.sync();
+		assertThat(routing.read()).isEqualTo("alterado");
+	}
+	
+	@Test
+	@DisplayName("Deve fechar os pools do primário e das réplicas ao encerrar")
+	void closePoolsOnDestroyTest() {
+		HikariDataSource primary = pool("primary");
+		HikariDataSource replica = pool("replica0");
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		replicas.put("replica-0", replica);
+		ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(5));
+		
+		dataSource.destroy();
+		
+		assertThat(primary.isClosed()).isTrue();
+		assertThat(replica.isClosed()).isTrue();
+	}
+	
+	private static HikariDataSource pool(String name) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+		dataSource.setPoolName(name);
+		return dataSource;
+	}
+	
+	private static DataSource node(String name) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("create table if not exists node(name varchar(20))");
+		jdbc.execute("delete from node");
+		jdbc.update("insert into node(name) values (?)", name);
+		return dataSource;
+	}
+	
+	private static class Routing {
+		
+		private final ReplicaRoutingDataSource dataSource;
+		private final JdbcTemplate jdbc;
+		private final TransactionTemplate reads;
+		private final TransactionTemplate writes;
+		
+		Routing(DataSource primary, Map<String, DataSource> replicas, Duration stickiness) {
+			dataSource = new ReplicaRoutingDataSource(primary, replicas, stickiness);
+			dataSource.afterPropertiesSet();
+			LazyConnectionDataSourceProxy lazy = new LazyConnectionDataSourceProxy(dataSource);
+			DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(lazy);
+			jdbc = new JdbcTemplate(lazy);
+			reads = new TransactionTemplate(transactionManager);
+			reads.setReadOnly(true);
+			writes = new TransactionTemplate(transactionManager);
+		}
+		
+		String read() {
+			return reads.execute(status -> jdbc.queryForObject("select name from node", String.class));
+		}
+		
+		String write() {
+			return writes.execute(status -> jdbc.queryForObject("select name from node", String.class));
+		}
+		
+	}
+	
+}
@@ -0,0 +1,69 @@
+package com.cursodsousa.libraryapi.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/*Carga da API inteira sobre o H2 embutido, fora da suíte normal:
+ *  mvn -Pload-test test -Dload.rate=500 -Dload.duration-seconds=60 -Dload.mix=search=50,get=30,checkout=10,return=10
+ *O resultado fica em target/load-test (report.json, summary.txt e os histogramas .hgrm).*/
+@Tag("load")
+@Slf4j
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+class LibraryLoadTest {
+
+	private static final List<String> WORDS = Arrays.asList("Aventura", "Mistério", "História", "Ciência", "Guerra",
+			"Amor", "Viagem", "Segredo", "Reino", "Mar", "Noite", "Cidade", "Jardim", "Sombra", "Caminho");
+
+	@Autowired
+	TestRestTemplate client;
+
+	@Autowired
+	BookRepository bookRepository;
+
+	@Test
+	@DisplayName("Deve executar a carga mista e gerar os relatórios")
+	void loadTest() throws Exception {
+		LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+		List<Book> books = seedBooks(settings);
+		
+		Map<LoadOperation, OperationStats> stats = new LoadGenerator(settings, client, books, WORDS).run();
+		String summary = new LoadReport(settings, stats).write();
+		log.info("load test summary\n{}", summary);
+		
+		assertThat(stats.values().stream().mapToLong(OperationStats::getTotal).sum()).isPositive();
+	}
+
+	private List<Book> seedBooks(LoadTestSettings settings) {
+		Random random = new Random(settings.getSeed());
+		List<Book> books = new ArrayList<>();
+		for(int i = 0; i < settings.getBooks(); i++) {
+			String title = WORDS.get(random.nextInt(WORDS.size())) + " " + WORDS.get(random.nextInt(WORDS.size()));
+			books.add(Book.builder().title(title).author("Autor " + random.nextInt(200)).isbn("load-" + i).build());
+		}
+		return bookRepository.saveAll(books);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.cursodsousa.libraryapi.loadtest;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+
+import com.cursodsousa.libraryapi.api.dto.LoanDTO;
+import com.cursodsousa.libraryapi.api.dto.LoanReturnsDTO;
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.util.ZipfSampler;
+
+/*Modelo aberto: as requisições são disparadas em instantes planejados (taxa constante ou chegadas de Poisson),
+ *independentemente de as anteriores terem terminado. Livros são escolhidos com distribuição Zipf.
+ *Cada requisição recebe uma semente tirada, na ordem do plano, do Random da semente configurada; assim
+ *livros, clientes e e-mails se repetem com a mesma semente, qualquer que seja a thread que a executa.*/
+public class LoadGenerator {
+
+	private final LoadTestSettings settings;
+	private final TestRestTemplate client;
+	private final List<Book> books;
+	private final List<String> searchTerms;
+	private final ZipfSampler bookSampler;
+	private final LoadOperation[] schedule;
+	private final Map<LoadOperation, OperationStats> stats = new EnumMap<>(LoadOperation.class);
+	private final Queue<Long> openLoans = new ConcurrentLinkedQueue<>();
+
+	public LoadGenerator(LoadTestSettings settings, TestRestTemplate client, List<Book> books, List<String> searchTerms) {
+		this.settings = settings;
+		this.client = client;
+		this.books = books;
+		this.searchTerms = searchTerms;
+		this.bookSampler = new ZipfSampler(books.size(), settings.getSkew());
+		this.schedule = settings.getMix().entrySet().stream()
+				.flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+				.toArray(LoadOperation[]::new);
+		for(LoadOperation operation : LoadOperation.values()) {
+			stats.put(operation, new OperationStats());
+		}
+	}
+
+	public Map<LoadOperation, OperationStats> run() throws InterruptedException {
+		Random random = new Random(settings.getSeed());
+		ExecutorService workers = Executors.newFixedThreadPool(settings.getThreads());
+		double intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.getRate();
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.getWarmupSeconds());
+		long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.getDurationSeconds());
+		double next = start;
+		while(next < end) {
+			long intended = (long) next;
+			long wait = intended - System.nanoTime();
+			if(wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			LoadOperation operation = schedule[random.nextInt(schedule.length)];
+			long requestSeed = random.nextLong();
+			boolean measured = intended >= measureFrom;
+			workers.execute(() -> execute(operation, requestSeed, intended, measured));
+			next += settings.isPoisson() ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+		}
+		workers.shutdown();
+		if(!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+			int abandoned = workers.shutdownNow().size();
+			throw new IllegalStateException("Requisições ainda em andamento um minuto após o fim da carga ("
+					+ abandoned + " não iniciadas); o relatório ficaria incompleto.");
+		}
+		return stats;
+	}
+
+	private void execute(LoadOperation operation, long requestSeed, long intended, boolean measured) {
+		int status;
+		try {
+			status = call(operation, new Random(requestSeed)).getStatusCodeValue();
+		} catch (RuntimeException e) {
+			status = 0;
+		}
+		if(measured) {
+			stats.get(operation).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended), status);
+		}
+	}
+
+	private ResponseEntity<?> call(LoadOperation operation, Random random) {
+		Book book = books.get(bookSampler.next(random));
+		switch(operation) {
+			case SEARCH:
+				String term = searchTerms.get(random.nextInt(searchTerms.size()));
+				return client.getForEntity("/api/books?title={title}&page=0&size=10", String.class, term);
+			case GET:
+				return client.getForEntity("/api/books/{id}", String.class, book.getId());
+			case CHECKOUT:
+				LoanDTO loan = LoanDTO.builder().isbn(book.getIsbn()).customer("Cliente " + random.nextInt(10000))
+						.email("cliente" + random.nextInt(10000) + "@email.com").build();
+				ResponseEntity<String> created = client.postForEntity("/api/loans", loan, String.class);
+				if(created.getStatusCode().is2xxSuccessful() && created.getBody() != null) {
+					openLoans.add(Long.valueOf(created.getBody().trim()));
+				}
+				return created;
+			case RETURN:
+				/*O HttpURLConnection do RestTemplate não envia PATCH, então a devolução usa o endpoint das estações de devolução*/
+				Long loanId = openLoans.poll();
+				LoanReturnsDTO returns = loanId != null
+						? LoanReturnsDTO.builder().ids(Collections.singletonList(loanId)).build()
+						: LoanReturnsDTO.builder().isbns(Collections.singletonList(book.getIsbn())).build();
+				return client.postForEntity("/api/loans/returns", returns, String.class);
+			case LIST_BY_BOOK:
+				return client.getForEntity("/api/books/{id}/loans?page=0&size=10", String.class, book.getId());
+			default:
+				throw new IllegalStateException(operation.name());
+		}
+	}
+
+}
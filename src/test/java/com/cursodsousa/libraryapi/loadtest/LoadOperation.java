@@ -0,0 +1,30 @@
+package com.cursodsousa.libraryapi.loadtest;
+
+import java.util.Arrays;
+
+public enum LoadOperation {
+
+	SEARCH("search"),
+	GET("get"),
+	CHECKOUT("checkout"),
+	RETURN("return"),
+	LIST_BY_BOOK("list-by-book");
+
+	private final String key;
+
+	LoadOperation(String key) {
+		this.key = key;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public static LoadOperation fromKey(String key) {
+		return Arrays.stream(values())
+				.filter(operation -> operation.key.equals(key))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Operação desconhecida: " + key));
+	}
+
+}
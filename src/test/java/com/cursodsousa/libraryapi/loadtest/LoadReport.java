@@ -0,0 +1,85 @@
+package com.cursodsousa.libraryapi.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*Grava report.json, summary.txt e um <operação>.hgrm (distribuição HDR em ms) por operação*/
+public class LoadReport {
+
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final LoadTestSettings settings;
+	private final Map<LoadOperation, OperationStats> stats;
+
+	public LoadReport(LoadTestSettings settings, Map<LoadOperation, OperationStats> stats) {
+		this.settings = settings;
+		this.stats = stats;
+	}
+
+	public String write() throws IOException {
+		File directory = new File(settings.getOutputDirectory());
+		directory.mkdirs();
+		
+		Map<String, Object> operations = new LinkedHashMap<>();
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format("rate=%.0f/s duration=%ds skew=%.2f mix=%s%n", settings.getRate(),
+				settings.getDurationSeconds(), settings.getSkew(), settings.getMix()));
+		summary.append(String.format("%-14s %8s %9s %8s %8s %9s %9s %9s %9s %9s%n",
+				"operation", "count", "rps", "4xx", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+		for(Map.Entry<LoadOperation, OperationStats> entry : stats.entrySet()) {
+			OperationStats operation = entry.getValue();
+			if(operation.getTotal() == 0) {
+				continue;
+			}
+			Histogram latency = operation.getLatency();
+			double throughput = operation.getTotal() / (double) settings.getDurationSeconds();
+			operations.put(entry.getKey().getKey(), json(operation, latency, throughput));
+			summary.append(String.format("%-14s %8d %9.1f %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+					entry.getKey().getKey(), operation.getTotal(), throughput, operation.getRejections(), operation.getErrors(),
+					millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+					latency.getMaxValue() / MICROS_PER_MILLI));
+			try(PrintStream out = new PrintStream(new File(directory, entry.getKey().getKey() + ".hgrm"), "UTF-8")) {
+				latency.outputPercentileDistribution(out, MICROS_PER_MILLI);
+			}
+		}
+		
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("settings", settings);
+		report.put("operations", operations);
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(directory, "report.json"), report);
+		try(PrintStream out = new PrintStream(new File(directory, "summary.txt"), "UTF-8")) {
+			out.print(summary);
+		}
+		return summary.toString();
+	}
+
+	private Map<String, Object> json(OperationStats operation, Histogram latency, double throughput) {
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("count", operation.getTotal());
+		json.put("throughputPerSecond", throughput);
+		json.put("successes", operation.getSuccesses());
+		json.put("rejections", operation.getRejections());
+		json.put("errors", operation.getErrors());
+		json.put("errorRate", operation.getErrors() / (double) operation.getTotal());
+		Map<String, Double> percentiles = new LinkedHashMap<>();
+		for(double percentile : new double[] {50, 90, 99, 99.9}) {
+			percentiles.put("p" + percentile, millis(latency, percentile));
+		}
+		percentiles.put("max", latency.getMaxValue() / MICROS_PER_MILLI);
+		json.put("latencyMs", percentiles);
+		return json;
+	}
+
+	private static double millis(Histogram latency, double percentile) {
+		return latency.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+	}
+
+}
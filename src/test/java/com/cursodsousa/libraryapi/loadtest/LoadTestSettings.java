@@ -0,0 +1,56 @@
+package com.cursodsousa.libraryapi.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+/*Parâmetros da carga, lidos de propriedades de sistema (-Dload.rate=500 ...)*/
+@Getter
+public class LoadTestSettings {
+
+	private final double rate;
+	private final int durationSeconds;
+	private final int warmupSeconds;
+	private final int threads;
+	private final int books;
+	private final double skew;
+	private final boolean poisson;
+	private final long seed;
+	private final String outputDirectory;
+	private final Map<LoadOperation, Integer> mix;
+
+	private LoadTestSettings() {
+		this.rate = Double.parseDouble(property("rate", "200"));
+		this.durationSeconds = Integer.parseInt(property("duration-seconds", "30"));
+		this.warmupSeconds = Integer.parseInt(property("warmup-seconds", "5"));
+		this.threads = Integer.parseInt(property("threads", "64"));
+		this.books = Integer.parseInt(property("books", "1000"));
+		this.skew = Double.parseDouble(property("skew", "1.0"));
+		this.poisson = Boolean.parseBoolean(property("poisson", "true"));
+		this.seed = Long.parseLong(property("seed", "42"));
+		this.outputDirectory = property("output", "target/load-test");
+		this.mix = parseMix(property("mix", "search=40,get=30,checkout=10,return=10,list-by-book=10"));
+	}
+
+	public static LoadTestSettings fromSystemProperties() {
+		return new LoadTestSettings();
+	}
+
+	private static String property(String name, String defaultValue) {
+		return System.getProperty("load." + name, defaultValue);
+	}
+
+	private static Map<LoadOperation, Integer> parseMix(String value) {
+		Map<LoadOperation, Integer> mix = new EnumMap<>(LoadOperation.class);
+		for(String entry : value.split(",")) {
+			String[] parts = entry.split("=");
+			if(parts.length != 2) {
+				throw new IllegalArgumentException("Proporção inválida: " + entry);
+			}
+			mix.put(LoadOperation.fromKey(parts[0].trim()), Integer.valueOf(parts[1].trim()));
+		}
+		return mix;
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.cursodsousa.libraryapi.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/*Latência em microssegundos medida desde o instante planejado da requisição, não desde o envio,
+ *para que o atraso de um servidor saturado apareça (coordinated omission)*/
+public class OperationStats {
+
+	private static final long MAX_LATENCY_MICROS = 60_000_000;
+
+	private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+	private final LongAdder successes = new LongAdder();
+	private final LongAdder rejections = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	void record(long latencyMicros, int status) {
+		latency.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+		if(status >= 200 && status < 400) {
+			successes.increment();
+		} else if(status >= 400 && status < 500) {
+			rejections.increment();
+		} else {
+			errors.increment();
+		}
+	}
+
+	public Histogram getLatency() {
+		return latency;
+	}
+
+	public long getSuccesses() {
+		return successes.sum();
+	}
+
+	public long getRejections() {
+		return rejections.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public long getTotal() {
+		return getSuccesses() + getRejections() + getErrors();
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.cursodsousa.libraryapi.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+class JsonEventEncoderTest {
+
+	LoggerContext context = new LoggerContext();
+	JsonEventEncoder encoder = new JsonEventEncoder();
+	ObjectMapper mapper = new ObjectMapper();
+	
+	@Test
+	@DisplayName("Deve gerar uma linha JSON válida com a mensagem escapada, o MDC e a exceção")
+	void encodeTest() throws Exception {
+		LoggingEvent event = event("Livro \"A\"\\B\nlinha\t2\u0001", new IllegalStateException("falhou", new RuntimeException("causa")));
+		event.setMDCPropertyMap(Collections.singletonMap("requestId", "abc-123"));
+		
+		String line = new String(encoder.encode(event), StandardCharsets.UTF_8);
+		
+		assertThat(line).endsWith("}\n");
+		assertThat(line.indexOf('\n')).isEqualTo(line.length() - 1);
+		JsonNode json = mapper.readTree(line);
+		assertThat(json.get("timestamp").asLong()).isEqualTo(event.getTimeStamp());
+		assertThat(json.get("level").asText()).isEqualTo("INFO");
+		assertThat(json.get("logger").asText()).isEqualTo("teste");
+		assertThat(json.get("message").asText()).isEqualTo("Livro \"A\"\\B\nlinha\t2\u0001");
+		assertThat(json.get("requestId").asText()).isEqualTo("abc-123");
+		assertThat(json.get("exception").asText())
+			.startsWith("java.lang.IllegalStateException: falhou\n\tat ")
+			.contains("\nCaused by: java.lang.RuntimeException: causa");
+	}
+	
+	@Test
+	@DisplayName("Deve codificar eventos de várias threads ao mesmo tempo sem misturar o conteúdo")
+	void concurrentEncodeTest() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<>();
+		for(int thread = 0; thread < 4; thread++) {
+			String message = "mensagem " + thread;
+			results.add(executor.submit((Callable<Boolean>) () -> {
+				for(int i = 0; i < 2000; i++) {
+					JsonNode json = mapper.readTree(encoder.encode(event(message, null)));
+					if(!message.equals(json.get("message").asText())) {
+						return false;
+					}
+				}
+				return true;
+			}));
+		}
+		for(Future<Boolean> result : results) {
+			assertThat(result.get()).isTrue();
+		}
+		executor.shutdown();
+	}
+	
+	private LoggingEvent event(String message, Throwable throwable) {
+		return new LoggingEvent(JsonEventEncoderTest.class.getName(), context.getLogger("teste"), Level.INFO, message, throwable, null);
+	}
+	
+}
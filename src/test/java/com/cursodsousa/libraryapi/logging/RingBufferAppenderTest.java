@@ -0,0 +1,149 @@
+package com.cursodsousa.libraryapi.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+
+class RingBufferAppenderTest {
+
+	LoggerContext context = new LoggerContext();
+	BlockingAppender target = new BlockingAppender();
+	RingBufferAppender appender;
+	
+	@AfterEach
+	public void tearDown() {
+		target.release.countDown();
+		appender.stop();
+	}
+	
+	@Test
+	@DisplayName("Deve descartar e contar eventos abaixo de WARN com a fila cheia na política DROP")
+	void dropPolicyTest() throws Exception {
+		appender = createAppender("DROP");
+		fillWhileDelivering();
+		
+		appender.doAppend(event(Level.INFO, "descartado 1"));
+		appender.doAppend(event(Level.DEBUG, "descartado 2"));
+		
+		assertThat(appender.getDroppedCount()).isEqualTo(2);
+		target.release.countDown();
+		awaitDelivered(5);
+		assertThat(target.messages()).containsExactly("evento 0", "evento 1", "evento 2", "evento 3", "evento 4");
+	}
+	
+	@Test
+	@DisplayName("Deve esperar posição livre com a fila cheia na política BLOCK, sem descartar")
+	void blockWhenFullTest() throws Exception {
+		appender = createAppender("BLOCK");
+		fillWhileDelivering();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		
+		Future<?> blocked = executor.submit(() -> appender.doAppend(event(Level.INFO, "esperou")));
+		Thread.sleep(100);
+		
+		assertThat(blocked.isDone()).isFalse();
+		target.release.countDown();
+		blocked.get(10, TimeUnit.SECONDS);
+		awaitDelivered(6);
+		assertThat(appender.getDroppedCount()).isZero();
+		assertThat(target.messages()).containsExactly("evento 0", "evento 1", "evento 2", "evento 3", "evento 4", "esperou");
+		executor.shutdown();
+	}
+	
+	@Test
+	@DisplayName("Deve esperar posição livre para WARN mesmo na política DROP")
+	void warnNeverDroppedTest() throws Exception {
+		appender = createAppender("DROP");
+		fillWhileDelivering();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		
+		Future<?> blocked = executor.submit(() -> appender.doAppend(event(Level.WARN, "aviso")));
+		Thread.sleep(100);
+		
+		assertThat(blocked.isDone()).isFalse();
+		target.release.countDown();
+		blocked.get(10, TimeUnit.SECONDS);
+		awaitDelivered(6);
+		assertThat(appender.getDroppedCount()).isZero();
+		assertThat(target.messages()).endsWith("aviso");
+		executor.shutdown();
+	}
+	
+	/*Com capacidade 4, a thread do appender fica presa entregando o primeiro evento e a fila guarda os quatro seguintes*/
+	private void fillWhileDelivering() throws InterruptedException {
+		appender.doAppend(event(Level.INFO, "evento 0"));
+		assertThat(target.entered.await(10, TimeUnit.SECONDS)).isTrue();
+		for(int i = 1; i <= 4; i++) {
+			appender.doAppend(event(Level.INFO, "evento " + i));
+		}
+		assertThat(appender.getQueueSize()).isEqualTo(4);
+	}
+	
+	private void awaitDelivered(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(target.messages().size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+	
+	private RingBufferAppender createAppender(String policy) {
+		target.setContext(context);
+		target.start();
+		RingBufferAppender appender = new RingBufferAppender();
+		appender.setContext(context);
+		appender.setName("teste");
+		appender.setCapacity(4);
+		appender.setPolicy(policy);
+		appender.addAppender(target);
+		appender.start();
+		return appender;
+	}
+	
+	private LoggingEvent event(Level level, String message) {
+		return new LoggingEvent(RingBufferAppenderTest.class.getName(), context.getLogger("teste"), level, message, null, null);
+	}
+	
+	/*Segura a entrega até release, para encher a fila do appender*/
+	private static class BlockingAppender extends AppenderBase<ILoggingEvent> {
+		
+		private final CountDownLatch entered = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		
+		@Override
+		protected void append(ILoggingEvent event) {
+			entered.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			messages.add(event.getFormattedMessage());
+		}
+		
+		List<String> messages() {
+			synchronized(messages) {
+				return new ArrayList<>(messages);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,58 @@
+package com.cursodsousa.libraryapi.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+
+class SamplingTurboFilterTest {
+
+	LoggerContext context = new LoggerContext();
+	SamplingTurboFilter filter = new SamplingTurboFilter();
+	
+	@Test
+	@DisplayName("Deve manter 1 a cada N chamadas do logger configurado e dos loggers abaixo dele")
+	void sampleRateTest() {
+		filter.setSampling("com.exemplo=3, com.exemplo.detalhe=1");
+		Logger logger = context.getLogger("com.exemplo.servico");
+		
+		int kept = 0;
+		for(int i = 0; i < 9; i++) {
+			if(filter.decide(null, logger, Level.INFO, "mensagem {}", new Object[] {i}, null) == FilterReply.NEUTRAL) {
+				kept++;
+			}
+		}
+		
+		assertThat(kept).isEqualTo(3);
+		assertThat(filter.getSampledOutCount()).isEqualTo(6);
+		assertThat(filter.decide(null, context.getLogger("com.exemplo.detalhe.X"), Level.INFO, "mensagem", null, null))
+			.isEqualTo(FilterReply.NEUTRAL);
+		assertThat(filter.decide(null, context.getLogger("org.outro"), Level.INFO, "mensagem", null, null))
+			.isEqualTo(FilterReply.NEUTRAL);
+	}
+	
+	@Test
+	@DisplayName("Deve deixar passar WARN, ERROR, consultas isEnabled e níveis já desligados sem contar chamadas")
+	void alwaysNeutralTest() {
+		filter.setSampling("com.exemplo=1000");
+		Logger logger = context.getLogger("com.exemplo.servico");
+		logger.setLevel(Level.INFO);
+		
+		assertThat(filter.decide(null, logger, Level.INFO, "primeira", null, null)).isEqualTo(FilterReply.NEUTRAL);
+		for(int i = 0; i < 5; i++) {
+			assertThat(filter.decide(null, logger, Level.WARN, "aviso", null, null)).isEqualTo(FilterReply.NEUTRAL);
+			assertThat(filter.decide(null, logger, Level.ERROR, "erro", null, null)).isEqualTo(FilterReply.NEUTRAL);
+			assertThat(filter.decide(null, logger, Level.INFO, null, null, null)).isEqualTo(FilterReply.NEUTRAL);
+			assertThat(filter.decide(null, logger, Level.DEBUG, "detalhe", null, null)).isEqualTo(FilterReply.NEUTRAL);
+		}
+		
+		assertThat(filter.getSampledOutCount()).isZero();
+		assertThat(filter.decide(null, logger, Level.INFO, "segunda", null, null)).isEqualTo(FilterReply.DENY);
+	}
+	
+}
@@ -0,0 +1,107 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.model.repository.BookTombstoneRepository;
+import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.ChangeSequence;
+import com.cursodsousa.libraryapi.service.EmailService;
+import com.cursodsousa.libraryapi.service.impl.BookServiceImpl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LibraryMetricsAspectTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	
+	LibraryMetricsAspect aspect = new LibraryMetricsAspect(registry);
+	
+	@AfterEach
+	void tearDown() {
+		SqlStatementCounter.stop();
+	}
+	
+	@Test
+	@DisplayName("Deve medir os métodos dos repositórios com o nome do repositório, o método e o resultado")
+	void timeRepositoryTest() {
+		BookRepository target = Mockito.mock(BookRepository.class);
+		Mockito.when(target.findById(1l)).thenReturn(Optional.of(Book.builder().id(1l).build()));
+		Mockito.when(target.findById(2l)).thenReturn(Optional.empty());
+		Mockito.when(target.findByIsbn("erro")).thenThrow(new IllegalStateException("falha"));
+		BookRepository repository = proxy(target, BookRepository.class);
+		
+		repository.findById(1l);
+		repository.findById(2l);
+		repository.findById(2l);
+		catchThrowable(() -> repository.findByIsbn("erro"));
+		
+		assertThat(registry.get("library.repository").tags("repository", "BookRepository", "method", "findById", "result", "success")
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.get("library.repository").tags("repository", "BookRepository", "method", "findById", "result", "not_found")
+				.timer().count()).isEqualTo(2);
+		assertThat(registry.get("library.repository").tags("repository", "BookRepository", "method", "findByIsbn", "result", "error")
+				.timer().count()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve medir o envio de e-mails e contar os destinatários")
+	void timeSendMailsTest() {
+		EmailService target = Mockito.mock(EmailService.class);
+		Mockito.doThrow(new IllegalStateException("smtp")).when(target).sendMails(Mockito.eq("falha"), Mockito.anyList());
+		EmailService emailService = proxy(target, EmailService.class);
+		
+		emailService.sendMails("atraso", Arrays.asList("a@email.com", "b@email.com"));
+		catchThrowable(() -> emailService.sendMails("falha", Arrays.asList("c@email.com")));
+		
+		assertThat(registry.get("library.mail.send").tag("result", "success").timer().count()).isEqualTo(1);
+		assertThat(registry.get("library.mail.send").tag("result", "error").timer().count()).isEqualTo(1);
+		assertThat(registry.get("library.mail.recipients").counter().count()).isEqualTo(2);
+	}
+	
+	@Test
+	@DisplayName("Deve registrar os comandos SQL de cada método de serviço apenas dentro de um escopo de contagem")
+	void countServiceStatementsTest() {
+		BookRepository repository = Mockito.mock(BookRepository.class);
+		Mockito.when(repository.findVersionById(1l)).thenAnswer(invocation -> {
+			SqlStatementCounter.recordStatement("select version from book where id=?", 1, 1);
+			SqlStatementCounter.recordStatement("select version from book where id=?", 1, 1);
+			return Optional.of(3l);
+		});
+		/*Subclasse, como nos proxies da aplicação: o tipo declarante é o ServiceImpl, não a interface*/
+		AspectJProxyFactory factory = new AspectJProxyFactory(new BookServiceImpl(repository, Mockito.mock(BookTombstoneRepository.class),
+				Mockito.mock(ChangeSequence.class), Mockito.mock(ApplicationEventPublisher.class)));
+		factory.setProxyTargetClass(true);
+		factory.addAspect(aspect);
+		BookService service = factory.getProxy();
+		
+		service.getVersion(1l);
+		assertThat(registry.find("library.service.sql.statements").summary()).isNull();
+		
+		SqlStatementCounter.start();
+		service.getVersion(1l);
+		
+		assertThat(registry.get("library.service.sql.statements").tags("service", "BookServiceImpl", "method", "getVersion")
+				.summary().totalAmount()).isEqualTo(2);
+	}
+	
+	private <T> T proxy(T target, Class<T> type) {
+		AspectJProxyFactory factory = new AspectJProxyFactory(target);
+		factory.addInterface(type);
+		factory.addAspect(aspect);
+		return factory.getProxy();
+	}
+	
+}
@@ -0,0 +1,64 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LibraryWebMvcTagsProviderTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	
+	LibraryWebMvcTagsProvider provider = new LibraryWebMvcTagsProvider();
+	
+	@Test
+	@DisplayName("Deve derivar a tag result do status quando o controller advice não marcou a requisição")
+	void resultFromStatusTest() {
+		record(response(200), null);
+		record(response(404), null);
+		record(response(500), null);
+		record(response(200), new IllegalStateException("falha"));
+		
+		assertThat(count("200", "success")).isEqualTo(1);
+		assertThat(count("404", "not_found")).isEqualTo(1);
+		assertThat(count("500", "error")).isEqualTo(1);
+		assertThat(registry.get("http.server.requests").tag("exception", "IllegalStateException").tag("result", "error")
+				.timer().count()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve usar o resultado marcado pelo controller advice")
+	void markedResultTest() {
+		MockHttpServletRequest request = request();
+		LibraryWebMvcTagsProvider.markResult(request, LibraryWebMvcTagsProvider.BUSINESS_ERROR);
+		
+		Timer.builder("http.server.requests").tags(provider.getTags(request, response(400), null, null)).register(registry).record(() -> { });
+		
+		assertThat(count("400", "business_error")).isEqualTo(1);
+		assertThat(registry.get("http.server.requests").tag("uri", "UNKNOWN").tag("method", "GET").timer().count()).isEqualTo(1);
+	}
+	
+	private void record(MockHttpServletResponse response, Throwable exception) {
+		Timer.builder("http.server.requests").tags(provider.getTags(request(), response, null, exception)).register(registry).record(() -> { });
+	}
+	
+	private double count(String status, String result) {
+		return registry.get("http.server.requests").tag("status", status).tag("result", result).timer().count();
+	}
+	
+	private static MockHttpServletRequest request() {
+		return new MockHttpServletRequest("GET", "/api/books/1");
+	}
+	
+	private static MockHttpServletResponse response(int status) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setStatus(status);
+		return response;
+	}
+	
+}
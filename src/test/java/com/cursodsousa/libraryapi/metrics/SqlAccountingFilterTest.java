@@ -0,0 +1,47 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class SqlAccountingFilterTest {
+
+	SqlAccountingFilter filter = new SqlAccountingFilter(20, 5, true);
+	
+	@Test
+	@DisplayName("Deve reter o corpo e adicionar os cabeçalhos de depuração")
+	void debugHeadersTest() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), response, (request, chainResponse) -> {
+			chainResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			chainResponse.getWriter().write("{\"id\":1}");
+			chainResponse.flushBuffer();
+			assertThat(response.getContentAsString()).isEmpty();
+		});
+		
+		assertThat(response.getHeader("X-Sql-Statements")).isEqualTo("0");
+		assertThat(response.getContentAsString()).isEqualTo("{\"id\":1}");
+	}
+	
+	@Test
+	@DisplayName("Deve entregar o fluxo SSE ao cliente sem retê-lo")
+	void eventStreamPassThroughTest() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/changes/stream"), response, (request, chainResponse) -> {
+			chainResponse.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+			chainResponse.getOutputStream().write("data:{}\n\n".getBytes());
+			chainResponse.flushBuffer();
+			assertThat(response.getContentAsString()).isEqualTo("data:{}\n\n");
+			assertThat(response.isCommitted()).isTrue();
+		});
+		
+		assertThat(response.getHeader("X-Sql-Statements")).isNull();
+	}
+	
+}
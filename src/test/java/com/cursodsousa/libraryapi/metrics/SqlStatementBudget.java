@@ -0,0 +1,17 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*Limite de comandos SQL do método de teste, verificado pelo SqlStatementBudgetExtension*/
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlStatementBudget {
+
+	int statements();
+
+	int repeatedStatements() default Integer.MAX_VALUE;
+
+}
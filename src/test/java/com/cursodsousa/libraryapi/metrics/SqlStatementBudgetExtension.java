@@ -0,0 +1,35 @@
+package com.cursodsousa.libraryapi.metrics;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import com.cursodsousa.libraryapi.metrics.SqlStatementCounter.Stats;
+
+/*Conta os comandos SQL executados pelo método de teste (sem os do @BeforeEach) e falha quando
+ *ultrapassam o @SqlStatementBudget. O DataSource do contexto precisa do SqlAccountingConfig.*/
+public class SqlStatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+	@Override
+	public void beforeTestExecution(ExtensionContext context) {
+		SqlStatementCounter.start();
+	}
+
+	@Override
+	public void afterTestExecution(ExtensionContext context) {
+		Stats stats = SqlStatementCounter.stop();
+		SqlStatementBudget budget = context.getRequiredTestMethod().getAnnotation(SqlStatementBudget.class);
+		if(budget == null || stats == null) {
+			return;
+		}
+		if(stats.getStatements() > budget.statements()) {
+			throw new AssertionError(String.format("Esperado no máximo %d comandos SQL, executados %d: %s",
+					budget.statements(), stats.getStatements(), stats.getShapes().keySet()));
+		}
+		if(stats.getMaxRepetitions() > budget.repeatedStatements()) {
+			throw new AssertionError(String.format("Comando SQL repetido %d vezes (máximo %d): %s",
+					stats.getMaxRepetitions(), budget.repeatedStatements(), stats.getMostRepeatedStatement()));
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.cursodsousa.libraryapi.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.service.BookService;
+import com.cursodsousa.libraryapi.service.ChangeSequence;
+import com.cursodsousa.libraryapi.service.impl.BookServiceImpl;
+
+/*Sem a transação do teste: cada passo confirma a sua, como em requisições separadas,
+ *e o cache de segundo nível só é atualizado no commit*/
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookCacheTest {
+
+	@Autowired
+	BookRepository repository;
+	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	BookService service;
+	
+	TransactionTemplate transaction;
+	
+	@BeforeEach
+	public void setUp() {
+		this.service = new BookServiceImpl(repository, Mockito.mock(BookTombstoneRepository.class), Mockito.mock(ChangeSequence.class),
+				Mockito.mock(ApplicationEventPublisher.class));
+		this.transaction = new TransactionTemplate(transactionManager);
+		entityManagerFactory.getCache().evictAll();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		transaction.execute(status -> {
+			repository.deleteAll();
+			return null;
+		});
+		entityManagerFactory.getCache().evictAll();
+	}
+	
+	@Test
+	@DisplayName("Deve obter o livro do cache de segundo nível")
+	void readFromSecondLevelCacheTest() {
+		Book book = persistAndCache();
+		
+		assertThat(entityManagerFactory.getCache().contains(Book.class, book.getId())).isTrue();
+	}
+	
+	@Test
+	@DisplayName("Não deve retornar dados antigos após confirmar a atualização do livro")
+	void updateIsNotServedStaleTest() {
+		Book book = persistAndCache();
+		
+		transaction.execute(status -> {
+			Book updating = service.getById(book.getId()).get();
+			updating.setTitle("Novo título");
+			return service.update(updating);
+		});
+		
+		assertThat(transaction.execute(status -> service.getById(book.getId()).get().getTitle())).isEqualTo("Novo título");
+		assertThat(transaction.execute(status -> service.getBookByIsbn(book.getIsbn()).get().getTitle())).isEqualTo("Novo título");
+		assertThat(entityManagerFactory.getCache().contains(Book.class, book.getId())).isTrue();
+	}
+	
+	@Test
+	@DisplayName("Não deve retornar o livro do cache após confirmar a exclusão")
+	void deleteIsNotServedStaleTest() {
+		Book book = persistAndCache();
+		
+		transaction.execute(status -> {
+			service.delete(service.getById(book.getId()).get());
+			return null;
+		});
+		
+		Optional<Book> byId = transaction.execute(status -> service.getById(book.getId()));
+		Optional<Book> byIsbn = transaction.execute(status -> service.getBookByIsbn(book.getIsbn()));
+		assertThat(byId).isNotPresent();
+		assertThat(byIsbn).isNotPresent();
+		assertThat(entityManagerFactory.getCache().contains(Book.class, book.getId())).isFalse();
+	}
+	
+	@Test
+	@DisplayName("Deve publicar estatísticas da região de cache do livro")
+	void regionStatisticsTest() {
+		persistAndCache();
+		
+		long puts = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+				.getDomainDataRegionStatistics(Book.class.getName())
+				.getPutCount();
+		assertThat(puts).isPositive();
+	}
+	
+	/*Confirma a inserção e carrega o livro em outra transação para popular o cache*/
+	private Book persistAndCache() {
+		Book book = transaction.execute(status -> repository.save(BookRepositoryTest.createNewBook()));
+		transaction.execute(status -> {
+			repository.findById(book.getId());
+			repository.findByIsbn(book.getIsbn());
+			return null;
+		});
+		return book;
+	}
+	
+}
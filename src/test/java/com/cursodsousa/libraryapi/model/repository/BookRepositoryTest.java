@@ -2,6 +2,7 @@ package com.cursodsousa.libraryapi.model.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.LocalDate;
 import java.util.Optional;
 
 import org.junit.jupiter.api.DisplayName;
@@ -10,10 +11,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Loan;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -89,6 +97,46 @@ class BookRepositoryTest {
 		
 	}
 
+	@Test
+	@DisplayName("Deve obter a versão de um livro sem carregar a entidade")
+	void findVersionByIdTest() {
+		Book book = createNewBook();
+		manager.persist(book);
+		
+		Optional<Long> version = repository.findVersionById(book.getId());
+		
+		assertThat(version).contains(0l);
+	}
+
+	@Test
+	@DisplayName("Deve filtrar e paginar no banco pelos livros com ou sem empréstimo em aberto")
+	void findByExampleAndAvailabilityTest() {
+		Book[] books = new Book[6];
+		for(int i = 0; i < books.length; i++) {
+			books[i] = manager.persist(createNewBook().toBuilder().isbn("00" + i).changeSeq(i + 1).build());
+		}
+		manager.persist(Book.builder().isbn("099").author("Ciclano").title("Outro livro").build());
+		persistLoan(books[1], null);
+		persistLoan(books[2], false);
+		persistLoan(books[3], true);
+		persistLoan(books[4], true);
+		persistLoan(books[4], null);
+		Example<Book> example = Example.of(Book.builder().title("AVENTURA").build(), ExampleMatcher.matching()
+				.withIgnoreCase().withIgnoreNullValues().withIgnorePaths("changeSeq").withStringMatcher(StringMatcher.CONTAINING));
+		
+		Page<Book> available = repository.findByExampleAndAvailability(example, true, PageRequest.of(0, 2, Sort.by("id")));
+		Page<Book> loaned = repository.findByExampleAndAvailability(example, false, PageRequest.of(1, 2, Sort.by("id")));
+		
+		assertThat(available.getContent()).containsExactly(books[0], books[3]);
+		assertThat(available.getTotalElements()).isEqualTo(3);
+		assertThat(loaned.getContent()).containsExactly(books[4]);
+		assertThat(loaned.getTotalElements()).isEqualTo(3);
+	}
+	
+	private void persistLoan(Book book, Boolean returned) {
+		manager.persist(Loan.builder().book(book).loanDate(LocalDate.now()).returned(returned).build());
+	}
+
 	public static Book createNewBook() {
 		return Book.builder().isbn("123").author("Fulano").title("As aventuras").build();
 	}
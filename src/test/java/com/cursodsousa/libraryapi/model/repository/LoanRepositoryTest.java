@@ -3,6 +3,8 @@ package com.cursodsousa.libraryapi.model.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.DisplayName;
@@ -11,17 +13,22 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.cursodsousa.libraryapi.metrics.SqlAccountingConfig;
+import com.cursodsousa.libraryapi.metrics.SqlStatementBudget;
+import com.cursodsousa.libraryapi.metrics.SqlStatementBudgetExtension;
 import com.cursodsousa.libraryapi.model.entity.Book;
 import com.cursodsousa.libraryapi.model.entity.Loan;
 
-@ExtendWith(SpringExtension.class)
+@ExtendWith({SpringExtension.class, SqlStatementBudgetExtension.class})
 @ActiveProfiles("test")
 @DataJpaTest
+@Import(SqlAccountingConfig.class)
 class LoanRepositoryTest {
 
 	@Autowired
@@ -43,6 +50,17 @@ class LoanRepositoryTest {
 		
 	}
 	
+	@Test
+	@DisplayName("Deve verificar empréstimo não devolvido com uma única consulta")
+	@SqlStatementBudget(statements = 3, repeatedStatements = 1)
+	void existsByBookAndNotReturnedStatementBudgetTest() {
+		
+		//2 inserts (livro e empréstimo) + 1 consulta
+		Loan loan = createAndPersistLoan(LocalDate.now());
+		
+		assertThat(repository.existsByBookAndNotRetruned(loan.getBook())).isTrue();
+	}
+	
 	@Test
 	@DisplayName("Deve buscar empréstimo pelo isbn do livro ou pelo customer")
 	void findByBookIsbnOrCustomerTest() {
@@ -78,6 +96,116 @@ class LoanRepositoryTest {
 		assertThat(result).isEmpty();
 	}
 	
+	@Test
+	@DisplayName("Deve mudar a versão dos empréstimos do livro a cada escrita sem voltar a um valor anterior após exclusões")
+	void findLoansVersionByBookIdTest() {
+		Loan loan = createAndPersistLoan(LocalDate.now());
+		loan.setChangeSeq(5);
+		Book book = loan.getBook();
+		manager.flush();
+		Object[] first = repository.findLoansVersionByBookId(book.getId()).get(0);
+		
+		Loan second = manager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).changeSeq(6).build());
+		manager.flush();
+		Object[] afterCheckout = repository.findLoansVersionByBookId(book.getId()).get(0);
+		
+		manager.remove(loan);
+		second.setReturned(true);
+		second.setChangeSeq(7);
+		manager.flush();
+		Object[] afterArchiveAndReturn = repository.findLoansVersionByBookId(book.getId()).get(0);
+		
+		assertThat(first).containsExactly(5l, 1l);
+		assertThat(afterCheckout).containsExactly(6l, 2l);
+		assertThat(afterArchiveAndReturn).containsExactly(7l, 1l);
+	}
+	
+	@Test
+	@DisplayName("Deve devolver o empréstimo com um único update apenas quando a versão confere")
+	void updateReturnedIfVersionInTest() {
+		Loan loan = createAndPersistLoan(LocalDate.now());
+		manager.flush();
+		
+		int stale = repository.updateReturnedIfVersionIn(loan.getId(), true, Collections.singletonList(loan.getVersion() + 1), 7l);
+		int updated = repository.updateReturnedIfVersionIn(loan.getId(), true, Collections.singletonList(loan.getVersion()), 7l);
+		manager.clear();
+		
+		assertThat(stale).isZero();
+		assertThat(updated).isEqualTo(1);
+		Loan found = manager.find(Loan.class, loan.getId());
+		assertThat(found.getReturned()).isTrue();
+		assertThat(found.getVersion()).isEqualTo(loan.getVersion() + 1);
+		assertThat(found.getChangeSeq()).isEqualTo(7l);
+	}
+	
+	@Test
+	@DisplayName("Deve devolver em lote apenas os empréstimos em aberto dos isbns informados")
+	void returnByBookIsbnInTest() {
+		Loan loan = createAndPersistLoan(LocalDate.now());
+		Loan returned = Loan.builder().book(loan.getBook()).customer("Ciclano").loanDate(LocalDate.now().minusDays(10)).returned(true).build();
+		manager.persist(returned);
+		manager.flush();
+		
+		int count = repository.returnByBookIsbnIn(Arrays.asList(loan.getBook().getIsbn(), "inexistente"), 3l);
+		manager.clear();
+		
+		assertThat(count).isEqualTo(1);
+		assertThat(manager.find(Loan.class, loan.getId()).getReturned()).isTrue();
+		assertThat(manager.find(Loan.class, returned.getId()).getVersion()).isEqualTo(returned.getVersion());
+	}
+	
+	@Test
+	@DisplayName("Deve listar as alterações posteriores ao token, em ordem, até o limite de sequência informado")
+	void findChangedAfterTest() {
+		Loan first = createAndPersistLoan(LocalDate.now());
+		first.setChangeSeq(5);
+		Loan second = Loan.builder().book(first.getBook()).customer("Ciclano").loanDate(LocalDate.now()).changeSeq(5).build();
+		Loan third = Loan.builder().book(first.getBook()).customer("Beltrano").loanDate(LocalDate.now()).changeSeq(6).build();
+		Loan uncommitted = Loan.builder().book(first.getBook()).customer("Fulano").loanDate(LocalDate.now()).changeSeq(9).build();
+		manager.persist(second);
+		manager.persist(third);
+		manager.persist(uncommitted);
+		manager.flush();
+		
+		List<Loan> changes = repository.findChangedAfter(5, first.getId(), 8, PageRequest.of(0, 10));
+		
+		assertThat(changes).extracting(Loan::getId).containsExactly(second.getId(), third.getId());
+		assertThat(changes.get(0).getBook().getIsbn()).isEqualTo(first.getBook().getIsbn());
+	}
+	
+	@Test
+	@DisplayName("Deve ignorar a devolução repetida, sem nova versão nem número de alteração")
+	void updateReturnedIdempotentTest() {
+		Loan loan = createAndPersistLoan(LocalDate.now());
+		manager.flush();
+		
+		int first = repository.updateReturned(loan.getId(), true, 7l);
+		int repeated = repository.updateReturned(loan.getId(), true, 8l);
+		manager.clear();
+		
+		assertThat(first).isEqualTo(1);
+		assertThat(repeated).isZero();
+		assertThat(repository.hasReturned(loan.getId(), true)).isTrue();
+		assertThat(repository.hasReturned(loan.getId(), false)).isFalse();
+		Loan found = manager.find(Loan.class, loan.getId());
+		assertThat(found.getVersion()).isEqualTo(loan.getVersion() + 1);
+		assertThat(found.getChangeSeq()).isEqualTo(7l);
+	}
+	
+	@Test
+	@DisplayName("Deve encontrar outro empréstimo em aberto para o livro de um empréstimo devolvido")
+	void existsOtherOpenLoanTest() {
+		Loan returned = createAndPersistLoan(LocalDate.now().minusDays(10));
+		returned.setReturned(true);
+		manager.persist(Loan.builder().book(returned.getBook()).customer("Ciclano").loanDate(LocalDate.now()).build());
+		Loan alone = createAndPersistLoan(LocalDate.now());
+		alone.setReturned(true);
+		manager.flush();
+		
+		assertThat(repository.existsOtherOpenLoan(returned.getId())).isTrue();
+		assertThat(repository.existsOtherOpenLoan(alone.getId())).isFalse();
+	}
+	
 	/*COMMONS METHODS*/
 	private Loan createAndPersistLoan(LocalDate loanDate) {
 		
@@ -0,0 +1,80 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.BookRepositoryTest;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class BookAvailabilityServiceTest {
+
+	@Autowired
+	TestEntityManager manager;
+	
+	@Autowired
+	LoanRepository loanRepository;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@Test
+	@DisplayName("Deve carregar do banco os livros com empréstimo em aberto e acompanhar empréstimos e devoluções")
+	void loadAndUpdateTest() {
+		Book loaned = manager.persist(BookRepositoryTest.createNewBook());
+		Book returned = manager.persist(BookRepositoryTest.createNewBook());
+		Book twice = manager.persist(BookRepositoryTest.createNewBook());
+		persistLoan(loaned, null);
+		persistLoan(returned, true);
+		persistLoan(twice, false);
+		persistLoan(twice, true);
+		
+		BookAvailabilityService service = createService();
+		
+		assertThat(service.isAvailable(loaned.getId())).isFalse();
+		assertThat(service.isAvailable(returned.getId())).isTrue();
+		assertThat(service.isAvailable(twice.getId())).isFalse();
+		assertThat(service.getLoanedCount()).isEqualTo(2);
+		
+		service.onLoanReturned(new LoanReturnedEvent(1l, loaned.getId(), true));
+		service.onLoanCheckedOut(new LoanCheckedOutEvent(Loan.builder().book(returned).build()));
+		service.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.DELETED, twice));
+		
+		assertThat(service.isAvailable(loaned.getId())).isTrue();
+		assertThat(service.isAvailable(returned.getId())).isFalse();
+		assertThat(service.isAvailable(twice.getId())).isTrue();
+	}
+	
+	private BookAvailabilityService createService() {
+		BookAvailabilityService service = new BookAvailabilityService(loanRepository, transactionManager, new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(service, "pageSize", 1);
+		service.start();
+		return service;
+	}
+	
+	private void persistLoan(Book book, Boolean returned) {
+		manager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(returned).build());
+	}
+	
+}
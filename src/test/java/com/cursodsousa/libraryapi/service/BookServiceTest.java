@@ -17,17 +17,22 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import com.cursodsousa.libraryapi.exception.BusinessException;
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.BookTombstone;
 import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.model.repository.BookTombstoneRepository;
 import com.cursodsousa.libraryapi.service.impl.BookServiceImpl;
+import com.cursodsousa.libraryapi.util.ChangeToken;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -38,9 +43,13 @@ class BookServiceTest {
 	@MockBean
 	BookRepository repository;
 	
+	BookTombstoneRepository tombstoneRepository = Mockito.mock(BookTombstoneRepository.class);
+	
+	ChangeSequence changeSequence = Mockito.mock(ChangeSequence.class);
+	
 	@BeforeEach
 	public void setUp() {
-		this.service = new BookServiceImpl(repository);
+		this.service = new BookServiceImpl(repository, tombstoneRepository, changeSequence, Mockito.mock(ApplicationEventPublisher.class));
 	}
 	
 	@Test
@@ -179,6 +188,22 @@ class BookServiceTest {
 		assertThat(result.getPageable().getPageSize()).isEqualTo(10);
 	}
 	
+	@Test
+	@DisplayName("Deve filtrar livros pelas propriedades e pela disponibilidade no banco")
+	void findAvailableBookTest() {
+		
+		Book book = createValidBook();
+		
+		PageRequest pageRequest = PageRequest.of(0, 10);
+		Page<Book> page = new PageImpl<Book>(Arrays.asList(book), pageRequest, 1);
+		Mockito.when(repository.findByExampleAndAvailability(Mockito.any(Example.class), Mockito.eq(true), Mockito.eq(pageRequest))).thenReturn(page);
+		
+		Page<Book> result = service.find(book, true, pageRequest);
+		
+		assertThat(result).isSameAs(page);
+		Mockito.verify(repository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(Pageable.class));
+	}
+	
 	@Test
 	@DisplayName("Deve obter um livro pelo isbn")
 	void getBookByIsbnTest() {
@@ -194,6 +219,43 @@ class BookServiceTest {
 		verify(repository, times(1)).findByIsbn(isbn);
 	}
 	
+	@Test
+	@DisplayName("Deve obter livros por uma lista de ids sem consultar a base quando a lista for vazia")
+	void getByIdsTest() {
+		List<Long> ids = Arrays.asList(1l, 2l);
+		List<Book> books = Arrays.asList(Book.builder().id(1l).build(), Book.builder().id(2l).build());
+		when(repository.findAllById(ids)).thenReturn(books);
+		
+		assertThat(service.getByIds(ids)).isEqualTo(books);
+		assertThat(service.getByIds(Arrays.asList())).isEmpty();
+		
+		verify(repository, times(1)).findAllById(Mockito.anyIterable());
+	}
+	
+	@Test
+	@DisplayName("Deve intercalar livros alterados e excluídos na ordem da sequência até o limite")
+	void getChangesTest() {
+		Book first = Book.builder().id(1l).changeSeq(3).build();
+		Book second = Book.builder().id(2l).changeSeq(5).build();
+		BookTombstone deleted = BookTombstone.builder().bookId(7l).changeSeq(4).build();
+		when(changeSequence.watermark()).thenReturn(10l);
+		when(repository.findChangedAfter(Mockito.eq(0l), Mockito.eq(0l), Mockito.eq(10l), Mockito.any(Pageable.class)))
+			.thenReturn(Arrays.asList(first, second));
+		when(tombstoneRepository.findChangedAfter(Mockito.eq(0l), Mockito.eq(0l), Mockito.eq(10l), Mockito.any(Pageable.class)))
+			.thenReturn(Arrays.asList(deleted));
+		
+		ChangeSet<Book> chunk = service.getChanges(ChangeToken.START, 2);
+		ChangeSet<Book> all = service.getChanges(ChangeToken.START, 5);
+		
+		assertThat(chunk.getChanged()).containsExactly(first);
+		assertThat(chunk.getDeleted()).containsExactly(7l);
+		assertThat(chunk.getNext().toString()).isEqualTo("4.7");
+		assertThat(chunk.isHasMore()).isTrue();
+		assertThat(all.getChanged()).containsExactly(first, second);
+		assertThat(all.getNext().toString()).isEqualTo("10");
+		assertThat(all.isHasMore()).isFalse();
+	}
+	
 	private Book createValidBook() {
 		return Book.builder().isbn("123").author("Fulano").title("As aventuras").build();
 	}
@@ -0,0 +1,125 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class BookSuggestServiceTest {
+
+	@MockBean
+	BookRepository repository;
+	
+	@MockBean
+	BorrowingStatisticsService statistics;
+	
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	
+	BookSuggestService service;
+	
+	@BeforeEach
+	public void setUp() {
+		service = new BookSuggestService(repository, statistics, Mockito.mock(PlatformTransactionManager.class), registry);
+		ReflectionTestUtils.setField(service, "enabled", false);
+		ReflectionTestUtils.setField(service, "maxPending", 10000);
+		ReflectionTestUtils.setField(service, "pageSize", 10);
+		ReflectionTestUtils.setField(service, "maxLimit", 20);
+		service.start();
+		Mockito.when(statistics.getLoansByBooks(Mockito.anyCollection())).thenAnswer(invocation -> {
+			Map<Long, Long> loans = new HashMap<>();
+			for(Object id : invocation.<Collection<?>>getArgument(0)) {
+				loans.put((Long) id, 0l);
+			}
+			return loans;
+		});
+	}
+	
+	@Test
+	@DisplayName("Deve manter pendente o livro gravado durante a reconstrução e descartar os já indexados")
+	void writeDuringRebuildTest() {
+		service.onBookChanged(changed(BookChangedEvent.Type.UPDATED, book(1l, "O Alienista", "001")));
+		Mockito.when(repository.findSuggestionRowsAfter(Mockito.anyLong(), Mockito.any(Pageable.class))).thenAnswer(invocation -> {
+			service.onBookChanged(changed(BookChangedEvent.Type.CREATED, book(2l, "Dom Casmurro", "002")));
+			return rows(book(1l, "O Alienista", "001"));
+		});
+		
+		service.rebuild();
+		
+		assertThat(service.suggest("alien", 10)).containsExactly(1l);
+		assertThat(service.suggest("casmu", 10)).containsExactly(2l);
+		assertThat(registry.get("library.books.suggest.pending").gauge().value()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Não deve sugerir o livro excluído depois da reconstrução")
+	void deleteThenSuggestTest() {
+		rebuildWith(book(1l, "O Alienista", "001"), book(2l, "Alienados", "002"));
+		
+		service.onBookChanged(changed(BookChangedEvent.Type.DELETED, book(1l, "O Alienista", "001")));
+		
+		assertThat(service.suggest("alien", 10)).containsExactly(2l);
+		assertThat(service.suggest("001", 10)).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve sugerir o livro alterado só pelos termos da versão mais recente")
+	void updateChangesKeysTest() {
+		rebuildWith(book(1l, "O Alienista", "001"));
+		
+		service.onBookChanged(changed(BookChangedEvent.Type.UPDATED, book(1l, "Memorias Postumas", "001")));
+		
+		assertThat(service.suggest("alien", 10)).isEmpty();
+		assertThat(service.suggest("memor", 10)).containsExactly(1l);
+		
+		service.onBookChanged(changed(BookChangedEvent.Type.UPDATED, book(1l, "Quincas Borba", "001")));
+		
+		assertThat(service.suggest("memor", 10)).isEmpty();
+		assertThat(service.suggest("quinc", 10)).containsExactly(1l);
+		assertThat(service.suggest("001", 10)).containsExactly(1l);
+	}
+	
+	private void rebuildWith(Book... books) {
+		Mockito.when(repository.findSuggestionRowsAfter(Mockito.anyLong(), Mockito.any(Pageable.class)))
+			.thenReturn(rows(books));
+		service.rebuild();
+	}
+	
+	private static List<Object[]> rows(Book... books) {
+		List<Object[]> rows = new ArrayList<>();
+		Arrays.stream(books).forEach(book -> rows.add(new Object[] {book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn()}));
+		return rows;
+	}
+	
+	private static BookChangedEvent changed(BookChangedEvent.Type type, Book book) {
+		return new BookChangedEvent(type, book);
+	}
+	
+	private static Book book(Long id, String title, String isbn) {
+		return Book.builder().id(id).title(title).author("Machado de Assis").isbn(isbn).build();
+	}
+	
+}
@@ -0,0 +1,127 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.BookLoanStats;
+import com.cursodsousa.libraryapi.model.entity.DailyLoanStats;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.BookLoanStatsRepository;
+import com.cursodsousa.libraryapi.model.repository.DailyLoanStatsRepository;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class BorrowingStatisticsServiceTest {
+
+	@Autowired
+	TestEntityManager manager;
+	
+	@Autowired
+	EntityManager entityManager;
+	
+	@Autowired
+	BookLoanStatsRepository bookStatsRepository;
+	
+	@Autowired
+	DailyLoanStatsRepository dailyStatsRepository;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	BorrowingStatisticsService service;
+	
+	@BeforeEach
+	public void setUp() {
+		manager.persistAndFlush(BookLoanStats.builder().bookId(1L).totalLoans(5L).totalReturns(2L).build());
+		service = new BorrowingStatisticsService(bookStatsRepository, dailyStatsRepository, transactionManager, entityManager);
+		ReflectionTestUtils.setField(service, "topK", 10);
+		ReflectionTestUtils.setField(service, "windowHours", 24);
+		service.load();
+	}
+	
+	@Test
+	@DisplayName("Deve somar aos totais do banco os incrementos ainda não gravados")
+	void countLoansAndReturnsTest() {
+		service.onLoanCheckedOut(checkout(1L));
+		service.onLoanReturned(new LoanReturnedEvent(10L, 1L, true));
+		service.onLoanReturned(new LoanReturnedEvent(10L, 1L, false));
+		
+		BookLoanStats stats = service.getBookStats(1L);
+		
+		assertThat(stats.getTotalLoans()).isEqualTo(6);
+		assertThat(stats.getTotalReturns()).isEqualTo(3);
+		assertThat(service.getDailyStats(LocalDate.now(), LocalDate.now()))
+			.extracting(DailyLoanStats::getLoans, DailyLoanStats::getReturns)
+			.containsExactly(tuple(1L, 1L));
+		assertThat(service.getTrending(10)).extracting(entry -> entry.getKey()).containsExactly(1L);
+		assertThat(service.getLoansByBooks(Arrays.asList(1L, 2L))).containsEntry(1L, 6L).containsEntry(2L, 0L);
+	}
+	
+	@Test
+	@DisplayName("Deve ler os totais gravados por outras instâncias")
+	void readOtherInstancesTotalsTest() {
+		service.onLoanCheckedOut(checkout(1L));
+		service.checkpoint();
+		bookStatsRepository.addTotals(1L, 4, 1);
+		manager.clear();
+		
+		BookLoanStats stats = service.getBookStats(1L);
+		
+		assertThat(stats.getTotalLoans()).isEqualTo(10);
+		assertThat(stats.getTotalReturns()).isEqualTo(3);
+		assertThat(service.getDailyStats(LocalDate.now(), LocalDate.now()))
+			.extracting(DailyLoanStats::getLoans)
+			.containsExactly(1L);
+	}
+	
+	@Test
+	@DisplayName("Deve somar ao banco apenas os incrementos desta instância no checkpoint")
+	void checkpointDeltasTest() {
+		bookStatsRepository.addTotals(1L, 3, 1);
+		service.onLoanCheckedOut(checkout(1L));
+		service.onLoanCheckedOut(checkout(1L));
+		service.onLoanReturned(new LoanReturnedEvent(10L, 1L, true));
+		service.onLoanCheckedOut(checkout(2L));
+		
+		service.checkpoint();
+		service.checkpoint();
+		manager.clear();
+		
+		BookLoanStats existing = bookStatsRepository.findById(1L).get();
+		assertThat(existing.getTotalLoans()).isEqualTo(10);
+		assertThat(existing.getTotalReturns()).isEqualTo(4);
+		BookLoanStats created = bookStatsRepository.findById(2L).get();
+		assertThat(created.getTotalLoans()).isEqualTo(1);
+		assertThat(created.getTotalReturns()).isEqualTo(0);
+		DailyLoanStats today = dailyStatsRepository.findById(LocalDate.now()).get();
+		assertThat(today.getLoans()).isEqualTo(3);
+		assertThat(today.getReturns()).isEqualTo(1);
+	}
+	
+	private static LoanCheckedOutEvent checkout(Long bookId) {
+		Book book = Book.builder().id(bookId).build();
+		return new LoanCheckedOutEvent(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+	}
+	
+}
@@ -0,0 +1,79 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.repository.BookRepository;
+import com.cursodsousa.libraryapi.model.repository.BookRepositoryTest;
+import com.cursodsousa.libraryapi.model.repository.BookTombstoneRepository;
+import com.cursodsousa.libraryapi.model.repository.ChangeCounterRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class ChangeSequenceTest {
+
+	@Autowired
+	TestEntityManager manager;
+	
+	@Autowired
+	BookRepository bookRepository;
+	
+	@Autowired
+	BookTombstoneRepository tombstoneRepository;
+	
+	@Autowired
+	LoanRepository loanRepository;
+	
+	@Autowired
+	ChangeCounterRepository counterRepository;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@Test
+	@DisplayName("Deve iniciar o contador pelo maior change_seq gravado e dar um único número por transação")
+	void startFromStoredChangesTest() {
+		Book book = BookRepositoryTest.createNewBook();
+		book.setChangeSeq(7);
+		manager.persist(book);
+		manager.flush();
+		ChangeSequence sequence = newSequence();
+		
+		assertThat(sequence.watermark()).isEqualTo(7);
+		assertThat(sequence.next()).isEqualTo(8);
+		assertThat(sequence.next()).isEqualTo(8);
+		assertThat(sequence.watermark()).isEqualTo(8);
+	}
+	
+	@Test
+	@DisplayName("Deve continuar a numeração do banco em uma segunda instância, sem reiniciar o contador")
+	void shareCounterBetweenInstancesTest() {
+		ChangeSequence first = newSequence();
+		long seq = first.next();
+		
+		ChangeSequence second = newSequence();
+		
+		assertThat(second.next()).isEqualTo(seq + 1);
+		assertThat(first.watermark()).isEqualTo(seq + 1);
+		assertThat(counterRepository.count()).isEqualTo(1);
+	}
+	
+	private ChangeSequence newSequence() {
+		ChangeSequence sequence = new ChangeSequence(bookRepository, tombstoneRepository, loanRepository, counterRepository, transactionManager);
+		sequence.load();
+		return sequence;
+	}
+	
+}
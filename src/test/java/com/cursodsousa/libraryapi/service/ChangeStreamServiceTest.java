@@ -0,0 +1,181 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.modelmapper.ModelMapper;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.cursodsousa.libraryapi.api.dto.ChangeEventDTO;
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.service.event.BookChangedEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class ChangeStreamServiceTest {
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	ChangeStreamService service;
+
+	@AfterEach
+	public void tearDown() {
+		service.stop();
+	}
+
+	@Test
+	@DisplayName("Deve retomar o fluxo a partir do Last-Event-ID com os eventos do log e continuar com os novos")
+	void resumeFromLastEventIdTest() throws Exception {
+		service = createService(100, 10);
+		publishBook(BookChangedEvent.Type.CREATED, 1l);
+		publishBook(BookChangedEvent.Type.UPDATED, 1l);
+		publishBook(BookChangedEvent.Type.DELETED, 1l);
+		
+		service.subscribe(service.eventId(1));
+		service.onLoanReturned(new LoanReturnedEvent(7l, 2l, true));
+		
+		RecordingEmitter emitter = emitters.get(0);
+		await(() -> emitter.events.size() == 3);
+		assertThat(emitter.events.stream().map(ChangeEventDTO::getType).collect(Collectors.toList()))
+			.containsExactly("book.updated", "book.deleted", "loan.returned");
+		assertThat(emitter.events.stream().map(ChangeEventDTO::getId).collect(Collectors.toList())).containsExactly(2l, 3l, 4l);
+		assertThat(emitter.events.get(0).getBook().getTitle()).isEqualTo("As aventuras");
+		assertThat(emitter.events.get(1).getBook()).isNull();
+		assertThat(emitter.events.get(2).getBookId()).isEqualTo(2l);
+	}
+
+	@Test
+	@DisplayName("Deve enviar stream.reset quando o Last-Event-ID já saiu do log")
+	void resetWhenLastEventIdExpiredTest() throws Exception {
+		service = createService(2, 10);
+		for(long id = 1; id <= 5; id++) {
+			publishBook(BookChangedEvent.Type.CREATED, id);
+		}
+		
+		service.subscribe(service.eventId(1));
+		
+		RecordingEmitter emitter = emitters.get(0);
+		await(() -> emitter.events.size() == 1);
+		assertThat(emitter.events.get(0).getType()).isEqualTo(ChangeStreamService.RESET);
+		assertThat(emitter.events.get(0).getId()).isEqualTo(5l);
+	}
+
+	@Test
+	@DisplayName("Deve enviar stream.reset quando o Last-Event-ID é de outra inicialização")
+	void resetWhenLastEventIdFromPreviousBootTest() throws Exception {
+		service = createService(100, 10);
+		publishBook(BookChangedEvent.Type.CREATED, 1l);
+		publishBook(BookChangedEvent.Type.UPDATED, 1l);
+		
+		service.subscribe("outra-1");
+		service.subscribe("2");
+		
+		await(() -> emitters.size() == 2 && emitters.stream().allMatch(emitter -> emitter.events.size() == 1));
+		for(RecordingEmitter emitter : emitters) {
+			assertThat(emitter.events.get(0).getType()).isEqualTo(ChangeStreamService.RESET);
+			assertThat(emitter.events.get(0).getId()).isEqualTo(2l);
+		}
+	}
+
+	@Test
+	@DisplayName("Deve desconectar o assinante lento sem atrasar a publicação para os demais")
+	void disconnectSlowSubscriberTest() throws Exception {
+		service = createService(100, 2);
+		service.subscribe(null);
+		service.subscribe(null);
+		RecordingEmitter slow = emitters.get(0);
+		RecordingEmitter fast = emitters.get(1);
+		slow.blocked = new CountDownLatch(1);
+		
+		for(long id = 1; id <= 5; id++) {
+			publishBook(BookChangedEvent.Type.CREATED, id);
+			long delivered = id;
+			await(() -> fast.events.size() == delivered);
+		}
+		slow.blocked.countDown();
+		
+		await(() -> slow.completed);
+		assertThat(service.getSubscriberCount()).isEqualTo(1);
+		assertThat(fast.events).hasSize(5);
+		assertThat(registry.get("library.stream.disconnected.slow").counter().count()).isEqualTo(1);
+	}
+
+	private void publishBook(BookChangedEvent.Type type, Long id) {
+		Book book = Book.builder().id(id).title("As aventuras").author("Fulano").isbn("00" + id).build();
+		service.onBookChanged(new BookChangedEvent(type, book));
+	}
+
+	private ChangeStreamService createService(int replaySize, int bufferSize) {
+		ChangeStreamService service = new ChangeStreamService(new ModelMapper(), registry) {
+			@Override
+			SseEmitter newEmitter() {
+				RecordingEmitter emitter = new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+		ReflectionTestUtils.setField(service, "replaySize", replaySize);
+		ReflectionTestUtils.setField(service, "bufferSize", bufferSize);
+		ReflectionTestUtils.setField(service, "senderThreads", 2);
+		service.start();
+		return service;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("tempo esgotado aguardando a entrega").isLessThan(deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	static class RecordingEmitter extends SseEmitter {
+
+		final List<ChangeEventDTO> events = new CopyOnWriteArrayList<>();
+		volatile CountDownLatch blocked;
+		volatile boolean completed;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			CountDownLatch latch = blocked;
+			if(latch != null) {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			builder.build().stream()
+				.map(DataWithMediaType::getData)
+				.filter(ChangeEventDTO.class::isInstance)
+				.forEach(data -> events.add((ChangeEventDTO) data));
+		}
+
+		@Override
+		public synchronized void complete() {
+			completed = true;
+		}
+
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.BookRepositoryTest;
+import com.cursodsousa.libraryapi.model.repository.CustomerRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class CustomerMigrationServiceTest {
+
+	@Autowired
+	TestEntityManager manager;
+	
+	@Autowired
+	LoanRepository loanRepository;
+	
+	@Autowired
+	CustomerRepository customerRepository;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	@Test
+	@DisplayName("Deve criar um cliente por email distinto e vincular seus empréstimos sem manter o texto")
+	void migrateTest() {
+		Book book = manager.persist(BookRepositoryTest.createNewBook());
+		persistLoan(book, "Fulano", "fulano@email.com");
+		persistLoan(book, "Fulano", "fulano@email.com");
+		persistLoan(book, "Fulano de Tal", "fulano@email.com");
+		persistLoan(book, "Ciclano", "ciclano@email.com");
+		persistLoan(book, "Beltrano", null);
+		
+		CustomerMigrationService service = new CustomerMigrationService(loanRepository, customerRepository, transactionManager);
+		ReflectionTestUtils.setField(service, "batchSize", 2);
+		
+		long linked = service.migrate();
+		manager.clear();
+		
+		assertThat(linked).isEqualTo(5);
+		assertThat(customerRepository.count()).isEqualTo(3);
+		Customer fulano = customerRepository.findByEmail("fulano@email.com").get();
+		assertThat(loanRepository.findByCustomerAccountId(fulano.getId(), PageRequest.of(0, 10)).getTotalElements()).isEqualTo(3);
+		assertThat(customerRepository.findFirstByNameAndEmailIsNull("Beltrano")).isPresent();
+		assertThat(manager.getEntityManager()
+				.createQuery("select count(l.id) from Loan l where l.customer is not null or l.customerEmail is not null", Long.class)
+				.getSingleResult()).isZero();
+		assertThat(service.migrate()).isZero();
+	}
+	
+	private void persistLoan(Book book, String customer, String email) {
+		manager.persist(Loan.builder().book(book).customer(customer).customerEmail(email).loanDate(LocalDate.now()).returned(false).build());
+	}
+	
+}
@@ -0,0 +1,78 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.BookRepositoryTest;
+import com.cursodsousa.libraryapi.model.repository.LoanHistoryRepository;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+class LoanArchiveServiceTest {
+
+	@Autowired
+	TestEntityManager manager;
+	
+	@Autowired
+	LoanRepository loanRepository;
+	
+	@Autowired
+	LoanHistoryRepository historyRepository;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
+	Customer customer;
+	
+	@Test
+	@DisplayName("Deve mover para o histórico apenas empréstimos devolvidos antigos, em lotes, com o cliente")
+	void archiveReturnedLoansTest() {
+		Book book = manager.persist(BookRepositoryTest.createNewBook());
+		customer = manager.persist(Customer.builder().name("Fulano").email("fulano@email.com").build());
+		persistLoan(book, LocalDate.now().minusDays(100), true);
+		persistLoan(book, LocalDate.now().minusDays(120), true);
+		persistLoan(book, LocalDate.now().minusDays(150), true);
+		persistLoan(book, LocalDate.now().minusDays(100), false);
+		persistLoan(book, LocalDate.now().minusDays(10), true);
+		
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		LoanArchiveService service = new LoanArchiveService(loanRepository, historyRepository, transactionManager, registry);
+		ReflectionTestUtils.setField(service, "ageDays", 90);
+		ReflectionTestUtils.setField(service, "batchSize", 2);
+		
+		long archived = service.archiveReturnedLoans();
+		manager.clear();
+		
+		assertThat(archived).isEqualTo(3);
+		assertThat(loanRepository.count()).isEqualTo(2);
+		assertThat(historyRepository.countByBook(book)).isEqualTo(3);
+		assertThat(registry.counter("library.loans.archived").count()).isEqualTo(3);
+		assertThat(registry.timer("library.loans.archive.batch").count()).isEqualTo(2);
+		assertThat(historyRepository.findAll()).extracting(history -> history.getCustomerAccount().getId())
+			.containsOnly(customer.getId());
+	}
+	
+	private void persistLoan(Book book, LocalDate loanDate, boolean returned) {
+		manager.persist(Loan.builder().book(book).customerAccount(customer).loanDate(loanDate).returned(returned).build());
+	}
+	
+}
@@ -0,0 +1,213 @@
+package com.cursodsousa.libraryapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.cursodsousa.libraryapi.exception.BusinessException;
+import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
+import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+class LoanCheckoutBatcherTest {
+
+	@MockBean
+	LoanRepository repository;
+
+	@MockBean
+	LoanService loanService;
+
+	@MockBean
+	CustomerService customerService;
+
+	ApplicationEventPublisher eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
+	SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	LoanCheckoutBatcher batcher;
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		batcher.stop();
+	}
+
+	@Test
+	@DisplayName("Deve gravar empréstimos concorrentes em um único lote, com erro apenas para o livro repetido")
+	void groupCommitTest() throws Exception {
+		batcher = createBatcher(1000, 3);
+		when(customerService.resolveAll(Mockito.anyList())).thenAnswer(invocation -> customers(invocation.getArgument(0)));
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		
+		List<Future<Loan>> results = new ArrayList<>();
+		results.add(executor.submit(() -> batcher.checkout(createLoan(1l))));
+		results.add(executor.submit(() -> batcher.checkout(createLoan(1l))));
+		results.add(executor.submit(() -> batcher.checkout(createLoan(2l))));
+		
+		int loaned = 0;
+		int rejected = 0;
+		for(Future<Loan> result : results) {
+			try {
+				assertThat(result.get().getCustomer()).isEqualTo("Fulano");
+				loaned++;
+			} catch (ExecutionException e) {
+				assertThat(e.getCause()).isInstanceOf(BusinessException.class).hasMessage("Livro já emprestado.");
+				rejected++;
+			}
+		}
+		executor.shutdown();
+		
+		assertThat(loaned).isEqualTo(2);
+		assertThat(rejected).isEqualTo(1);
+		verify(repository, times(1)).saveAll(Mockito.anyList());
+		verify(eventPublisher, times(2)).publishEvent(Mockito.any(LoanCheckedOutEvent.class));
+		verify(loanService, never()).save(Mockito.any(Loan.class));
+		verify(customerService, times(1)).resolveAll(Mockito.anyList());
+		verify(customerService, never()).resolve(Mockito.any(), Mockito.any());
+		assertThat(registry.summary("library.loans.checkout.batch.size").totalAmount()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Deve refazer sozinhos também os repetidos no lote quando a transação do lote falhar")
+	void retryDuplicatesAfterFailedBatchTest() throws Exception {
+		batcher = createBatcher(1000, 3);
+		when(customerService.resolveAll(Mockito.anyList())).thenAnswer(invocation -> customers(invocation.getArgument(0)));
+		Mockito.doThrow(new DataIntegrityViolationException("simulado")).when(repository).flush();
+		AtomicBoolean bookOneSaved = new AtomicBoolean();
+		when(loanService.save(Mockito.any(Loan.class))).thenAnswer(invocation -> {
+			Loan loan = invocation.getArgument(0);
+			if(loan.getBook().getId() == 1l && !bookOneSaved.compareAndSet(false, true)) {
+				throw new BusinessException("Livro já emprestado.");
+			}
+			return loan;
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		
+		List<Future<Loan>> results = new ArrayList<>();
+		results.add(executor.submit(() -> batcher.checkout(createLoan(1l))));
+		results.add(executor.submit(() -> batcher.checkout(createLoan(1l))));
+		results.add(executor.submit(() -> batcher.checkout(createLoan(2l))));
+		
+		int loaned = 0;
+		for(Future<Loan> result : results) {
+			try {
+				result.get();
+				loaned++;
+			} catch (ExecutionException e) {
+				assertThat(e.getCause()).isInstanceOf(BusinessException.class);
+			}
+		}
+		executor.shutdown();
+		
+		assertThat(loaned).isEqualTo(2);
+		verify(loanService, times(3)).save(Mockito.any(Loan.class));
+	}
+
+	@Test
+	@DisplayName("Deve salvar diretamente pelo serviço quando a janela de agrupamento for zero")
+	void disabledGroupCommitTest() throws Exception {
+		batcher = createBatcher(0, 3);
+		Loan loan = createLoan(1l);
+		when(loanService.save(loan)).thenReturn(loan);
+		
+		assertThat(batcher.checkout(loan)).isSameAs(loan);
+		
+		verify(repository, never()).saveAll(Mockito.anyList());
+	}
+
+	@Test
+	@DisplayName("Deve salvar diretamente o que esperou na fila além do tempo limite e aguardar o que já está no lote")
+	void timeoutFallbackTest() throws Exception {
+		batcher = createBatcher(1, 1);
+		ReflectionTestUtils.setField(batcher, "timeoutMillis", 300l);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(customerService.resolveAll(Mockito.anyList())).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return customers(invocation.getArgument(0));
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Loan> stuck = executor.submit(() -> batcher.checkout(createLoan(1l)));
+		assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+		Loan queued = createLoan(2l);
+		when(loanService.save(queued)).thenReturn(queued);
+		
+		assertThat(batcher.checkout(queued)).isSameAs(queued);
+		
+		assertThat(stuck.isDone()).isFalse();
+		release.countDown();
+		assertThat(stuck.get(10, TimeUnit.SECONDS).getBook().getId()).isEqualTo(1l);
+		executor.shutdown();
+		verify(loanService, times(1)).save(queued);
+	}
+
+	@Test
+	@DisplayName("Deve salvar diretamente pelo serviço quando a thread do lote não estiver viva")
+	void deadWorkerFallbackTest() throws Exception {
+		batcher = createBatcher(1000, 3);
+		Thread worker = (Thread) ReflectionTestUtils.getField(batcher, "worker");
+		when(customerService.resolveAll(Mockito.anyList())).thenThrow(new OutOfMemoryError("simulado"));
+		assertThatThrownBy(() -> batcher.checkout(createLoan(1l))).hasCauseInstanceOf(OutOfMemoryError.class);
+		worker.join(TimeUnit.SECONDS.toMillis(10));
+		Loan loan = createLoan(2l);
+		when(loanService.save(loan)).thenReturn(loan);
+		
+		assertThat(batcher.checkout(loan)).isSameAs(loan);
+	}
+
+	private static List<Customer> customers(List<Customer> requested) {
+		List<Customer> customers = new ArrayList<>();
+		for(Customer customer : requested) {
+			customers.add(Customer.builder().id(1l).name(customer.getName()).email(customer.getEmail()).build());
+		}
+		return customers;
+	}
+
+	private LoanCheckoutBatcher createBatcher(long windowMillis, int maxBatchSize) {
+		LoanCheckoutBatcher batcher = new LoanCheckoutBatcher(loanService, repository, customerService, Mockito.mock(ChangeSequence.class), eventPublisher,
+				Mockito.mock(PlatformTransactionManager.class), registry);
+		ReflectionTestUtils.setField(batcher, "windowMillis", windowMillis);
+		ReflectionTestUtils.setField(batcher, "maxBatchSize", maxBatchSize);
+		ReflectionTestUtils.setField(batcher, "queueCapacity", 100);
+		batcher.start();
+		return batcher;
+	}
+
+	private static Loan createLoan(Long bookId) {
+		return Loan.builder().book(Book.builder().id(bookId).build()).customer("Fulano").loanDate(LocalDate.now()).build();
+	}
+
+}
@@ -8,6 +8,7 @@ import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,19 +16,28 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import com.cursodsousa.libraryapi.api.dto.LoanFilterDTO;
 import com.cursodsousa.libraryapi.exception.BusinessException;
 import com.cursodsousa.libraryapi.model.entity.Book;
+import com.cursodsousa.libraryapi.model.entity.Customer;
 import com.cursodsousa.libraryapi.model.entity.Loan;
+import com.cursodsousa.libraryapi.model.entity.LoanHistory;
+import com.cursodsousa.libraryapi.model.repository.LoanHistoryRepository;
 import com.cursodsousa.libraryapi.model.repository.LoanRepository;
+import com.cursodsousa.libraryapi.service.event.LoanCheckedOutEvent;
+import com.cursodsousa.libraryapi.service.event.LoanReturnedEvent;
 import com.cursodsousa.libraryapi.service.impl.LoanServiceImpl;
 
 @ExtendWith(SpringExtension.class)
@@ -37,11 +47,20 @@ public class LoanServiceTest {
 	@MockBean
 	LoanRepository repository;
 
+	@MockBean
+	LoanHistoryRepository historyRepository;
+
+	@MockBean
+	CustomerService customerService;
+
+	ApplicationEventPublisher eventPublisher;
+
 	LoanService service;
 
 	@BeforeEach
 	public void setUp() {
-		this.service = new LoanServiceImpl(repository);
+		this.eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+		this.service = new LoanServiceImpl(repository, historyRepository, eventPublisher, customerService, Mockito.mock(ChangeSequence.class));
 	}
 	
 	@Test
@@ -64,7 +83,10 @@ public class LoanServiceTest {
 							.loanDate(LocalDate.now())
 							.build();
 		
+		Customer fulano = Customer.builder().id(1l).name(customer).build();
+		
 		when(repository.existsByBookAndNotRetruned(book)).thenReturn(false);
+		when(customerService.resolve(customer, null)).thenReturn(fulano);
 		when(repository.save(savingLoan)).thenReturn(savedLoan);
 		
 		Loan loan = service.save(savingLoan);
@@ -73,6 +95,9 @@ public class LoanServiceTest {
 		assertThat(loan.getBook().getId()).isEqualTo(savedLoan.getBook().getId());
 		assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
 		assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
+		assertThat(savingLoan.getCustomerAccount()).isEqualTo(fulano);
+		
+		verify(eventPublisher).publishEvent(Mockito.any(LoanCheckedOutEvent.class));
 	}
 	
 	@Test
@@ -160,6 +185,96 @@ public class LoanServiceTest {
 		assertThat(result.getPageable().getPageSize()).isEqualTo(10);
 	}
 	
+	@Test
+	@DisplayName("Deve completar a página de empréstimos do livro com o histórico")
+	void getLoansByBookWithHistoryTest() {
+		Book book = Book.builder().id(1l).build();
+		PageRequest pageRequest = PageRequest.of(0, 3);
+		
+		Loan live = createLoan();
+		live.setId(10l);
+		Mockito.when(repository.findByBook(book, pageRequest))
+			.thenReturn(new PageImpl<Loan>(Arrays.asList(live), pageRequest, 1));
+		
+		LoanHistory archived = LoanHistory.builder().id(5l).book(book).customer("Fulano").build();
+		Mockito.when(historyRepository.findByBook(Mockito.eq(book), Mockito.any()))
+			.thenAnswer(invocation -> new PageImpl<LoanHistory>(Arrays.asList(archived), invocation.getArgument(1), 4));
+		
+		Page<Loan> result = service.getLoansByBook(book, pageRequest, true);
+		
+		assertThat(result.getContent()).extracting(Loan::getId).containsExactly(10l, 5l);
+		assertThat(result.getContent().get(1).getReturned()).isTrue();
+		assertThat(result.getTotalElements()).isEqualTo(5);
+	}
+	
+	@Test
+	@DisplayName("Deve ordenar o histórico só pelas propriedades que ele possui")
+	void getLoansByBookWithHistorySortTest() {
+		Book book = Book.builder().id(1l).build();
+		PageRequest pageRequest = PageRequest.of(0, 3, Sort.by("returned", "loanDate"));
+		
+		Mockito.when(repository.findByBook(book, pageRequest))
+			.thenReturn(new PageImpl<Loan>(Collections.emptyList(), pageRequest, 0));
+		Mockito.when(historyRepository.findByBook(Mockito.eq(book), Mockito.any()))
+			.thenAnswer(invocation -> new PageImpl<LoanHistory>(Collections.emptyList(), invocation.getArgument(1), 0));
+		
+		service.getLoansByBook(book, pageRequest, true);
+		
+		ArgumentCaptor<Pageable> historyPage = ArgumentCaptor.forClass(Pageable.class);
+		verify(historyRepository).findByBook(Mockito.eq(book), historyPage.capture());
+		assertThat(historyPage.getValue().getSort()).isEqualTo(Sort.by("loanDate"));
+	}
+	
+	@Test
+	@DisplayName("Deve lançar erro de negócio ao ordenar o histórico por propriedade inexistente")
+	void getLoansByBookWithInvalidSortTest() {
+		Book book = Book.builder().id(1l).build();
+		PageRequest pageRequest = PageRequest.of(0, 3, Sort.by("inexistente"));
+		
+		Throwable exception = catchThrowable(() -> service.getLoansByBook(book, pageRequest, true));
+		
+		assertThat(exception).isInstanceOf(BusinessException.class);
+		verify(repository, never()).findByBook(Mockito.any(Book.class), Mockito.any(Pageable.class));
+	}
+	
+	@Test
+	@DisplayName("Deve aceitar a devolução repetida sem publicar outro evento")
+	void repeatedReturnTest() {
+		Mockito.when(repository.updateReturned(Mockito.eq(1l), Mockito.eq(true), Mockito.anyLong())).thenReturn(0);
+		Mockito.when(repository.hasReturned(1l, true)).thenReturn(true);
+		
+		boolean result = service.updateReturned(1l, true, null);
+		
+		assertThat(result).isTrue();
+		verify(eventPublisher, never()).publishEvent(Mockito.any(Object.class));
+	}
+	
+	@Test
+	@DisplayName("Deve lançar erro de negócio ao reabrir um empréstimo de livro que já tem outro em aberto")
+	void reopenLoanOfLoanedBookTest() {
+		Mockito.when(repository.existsOtherOpenLoan(1l)).thenReturn(true);
+		
+		Throwable exception = catchThrowable(() -> service.updateReturned(1l, false, null));
+		
+		assertThat(exception).isInstanceOf(BusinessException.class).hasMessage("Livro já emprestado.");
+		verify(repository, never()).updateReturned(Mockito.anyLong(), Mockito.anyBoolean(), Mockito.anyLong());
+		verify(eventPublisher, never()).publishEvent(Mockito.any(Object.class));
+	}
+	
+	@Test
+	@DisplayName("Deve publicar uma devolução por empréstimo lido com lock, com um único número de alteração")
+	void returnLoansTest() {
+		Mockito.when(repository.findOpenByIdIn(Arrays.asList(1l, 2l)))
+			.thenReturn(Arrays.asList(new Object[] {1l, 10l}, new Object[] {2l, 20l}));
+		Mockito.when(repository.returnByIdIn(Mockito.eq(Arrays.asList(1l, 2l)), Mockito.anyLong())).thenReturn(2);
+		
+		int returned = service.returnLoans(Arrays.asList(1l, 2l), Collections.emptyList());
+		
+		assertThat(returned).isEqualTo(2);
+		verify(eventPublisher, Mockito.times(2)).publishEvent(Mockito.any(LoanReturnedEvent.class));
+		verify(repository, never()).findOpenByBookIsbnIn(Mockito.any());
+	}
+	
 	public static Loan createLoan() {
 		Book book = Book.builder().id(1l).build();
 		String customer = "Fulano";
@@ -0,0 +1,60 @@
+package com.cursodsousa.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CompressedBitmapTest {
+
+	@Test
+	@DisplayName("Deve adicionar, remover e consultar ids em containers diferentes")
+	void addRemoveContainsTest() {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		
+		assertThat(bitmap.add(1l)).isTrue();
+		assertThat(bitmap.add(1l)).isFalse();
+		assertThat(bitmap.add(70_000l)).isTrue();
+		assertThat(bitmap.add(5_000_000_000l)).isTrue();
+		
+		assertThat(bitmap.contains(1l)).isTrue();
+		assertThat(bitmap.contains(70_000l)).isTrue();
+		assertThat(bitmap.contains(5_000_000_000l)).isTrue();
+		assertThat(bitmap.contains(2l)).isFalse();
+		assertThat(bitmap.contains(65_537l)).isFalse();
+		assertThat(bitmap.getCardinality()).isEqualTo(3);
+		
+		assertThat(bitmap.remove(70_000l)).isTrue();
+		assertThat(bitmap.remove(70_000l)).isFalse();
+		assertThat(bitmap.contains(70_000l)).isFalse();
+		assertThat(bitmap.getCardinality()).isEqualTo(2);
+	}
+	
+	@Test
+	@DisplayName("Deve trocar o formato do container ao passar de 4096 ids sem perder valores")
+	void containerConversionTest() {
+		CompressedBitmap bitmap = new CompressedBitmap();
+		Set<Long> expected = new HashSet<>();
+		Random random = new Random(11);
+		for(int i = 0; i < 20_000; i++) {
+			long id = random.nextInt(3 * 65_536);
+			assertThat(bitmap.add(id)).isEqualTo(expected.add(id));
+		}
+		long dense = bitmap.estimatedBytes();
+		for(int i = 0; i < 200_000; i++) {
+			long id = random.nextInt(3 * 65_536);
+			assertThat(bitmap.remove(id)).isEqualTo(expected.remove(id));
+		}
+		
+		assertThat(bitmap.getCardinality()).isEqualTo(expected.size());
+		for(long id = 0; id < 3 * 65_536; id++) {
+			assertThat(bitmap.contains(id)).isEqualTo(expected.contains(id));
+		}
+		assertThat(bitmap.estimatedBytes()).isLessThan(dense);
+	}
+	
+}
@@ -0,0 +1,71 @@
+package com.cursodsousa.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+
+	@Test
+	@DisplayName("Deve recusar elementos quando cheia e devolvê-los na ordem de chegada")
+	void offerAndPollTest() {
+		RingBuffer<Integer> buffer = new RingBuffer<>(4);
+		
+		for(int i = 0; i < 4; i++) {
+			assertThat(buffer.offer(i)).isTrue();
+		}
+		assertThat(buffer.offer(4)).isFalse();
+		assertThat(buffer.size()).isEqualTo(4);
+		
+		assertThat(buffer.poll()).isEqualTo(0);
+		assertThat(buffer.offer(4)).isTrue();
+		for(int i = 1; i <= 4; i++) {
+			assertThat(buffer.poll()).isEqualTo(i);
+		}
+		assertThat(buffer.poll()).isNull();
+	}
+
+	@Test
+	@DisplayName("Deve entregar ao consumidor todos os elementos de produtores concorrentes")
+	void concurrentProducersTest() throws Exception {
+		RingBuffer<Integer> buffer = new RingBuffer<>(64);
+		int producers = 4;
+		int perProducer = 10000;
+		CountDownLatch done = new CountDownLatch(producers);
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+		for(int p = 0; p < producers; p++) {
+			int base = p * perProducer;
+			executor.submit(() -> {
+				for(int i = 0; i < perProducer; i++) {
+					while(!buffer.offer(base + i)) {
+						Thread.yield();
+					}
+				}
+				done.countDown();
+			});
+		}
+		
+		Set<Integer> received = new HashSet<>();
+		while(received.size() < producers * perProducer) {
+			Integer value = buffer.poll();
+			if(value == null) {
+				Thread.yield();
+			} else {
+				received.add(value);
+			}
+		}
+		
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(buffer.poll()).isNull();
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.cursodsousa.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+	@Test
+	@DisplayName("Deve executar uma única carga para requisições concorrentes da mesma chave")
+	void coalesceConcurrentLoadsTest() throws Exception {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>(5000, value -> value);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		
+		List<Future<String>> results = new ArrayList<>();
+		for(int i = 0; i < 8; i++) {
+			results.add(executor.submit(() -> singleFlight.load(1l, () -> {
+				loads.incrementAndGet();
+				started.countDown();
+				await(release);
+				return "livro";
+			})));
+		}
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		awaitWaiting(singleFlight, 1l, 7);
+		release.countDown();
+		
+		for(Future<String> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("livro");
+		}
+		executor.shutdown();
+		
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+	
+	@Test
+	@DisplayName("Deve propagar o erro da carga e liberar a chave")
+	void propagateLoadErrorTest() {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>(5000, value -> value);
+		
+		Throwable exception = catchThrowable(() -> singleFlight.load(1l, () -> {
+			throw new IllegalStateException("falha");
+		}));
+		
+		assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessage("falha");
+		assertThat(singleFlight.inFlightCount()).isZero();
+	}
+	
+	@Test
+	@DisplayName("Deve iniciar uma nova carga depois de invalidar a chave, sem aguardar a carga anterior")
+	void invalidateInFlightLoadTest() throws Exception {
+		SingleFlight<Long, String> singleFlight = new SingleFlight<>(5000, value -> value);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		
+		Future<String> before = executor.submit(() -> singleFlight.load(1l, () -> {
+			started.countDown();
+			await(release);
+			return "antigo";
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		
+		singleFlight.invalidate(1l);
+		String after = singleFlight.load(1l, () -> "novo");
+		release.countDown();
+		
+		assertThat(after).isEqualTo("novo");
+		assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("antigo");
+		assertThat(singleFlight.inFlightCount()).isZero();
+		executor.shutdown();
+	}
+	
+	/*Espera os seguidores se juntarem à carga em andamento; falha em vez de seguir se não chegarem*/
+	private static void awaitWaiting(SingleFlight<Long, String> singleFlight, Long key, int expected) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(singleFlight.waitingCount(key) < expected) {
+			assertThat(System.nanoTime()).as("seguidores aguardando a carga").isLessThan(deadline);
+			Thread.yield();
+		}
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+}
@@ -0,0 +1,84 @@
+package com.cursodsousa.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowTopKTest {
+
+	private static final long SLICE = 1000;
+	
+	@Test
+	@DisplayName("Deve listar os itens mais frequentes em ordem decrescente")
+	void topItemsTest() {
+		SlidingWindowTopK topK = new SlidingWindowTopK(2, 3, SLICE, 4, 1024, 0);
+		add(topK, 1l, 5, 0);
+		add(topK, 2l, 3, 0);
+		add(topK, 3l, 8, 0);
+		
+		List<Entry<Long, Long>> top = topK.top(10, 0);
+		
+		assertThat(top).extracting(Entry::getKey).containsExactly(3l, 1l);
+		assertThat(top).extracting(Entry::getValue).containsExactly(8l, 5l);
+	}
+	
+	@Test
+	@DisplayName("Deve descartar contagens que saíram da janela")
+	void slidingWindowTest() {
+		SlidingWindowTopK topK = new SlidingWindowTopK(2, 3, SLICE, 4, 1024, 0);
+		add(topK, 1l, 10, 0);
+		add(topK, 2l, 2, 2 * SLICE);
+		
+		List<Entry<Long, Long>> top = topK.top(10, 3 * SLICE);
+		
+		assertThat(top).extracting(Entry::getKey).containsExactly(2l);
+		assertThat(topK.estimate(1l)).isZero();
+	}
+	
+	@Test
+	@DisplayName("Deve manter os mais frequentes com várias threads registrando ao mesmo tempo")
+	void concurrentAddTest() throws Exception {
+		SlidingWindowTopK topK = new SlidingWindowTopK(3, 3, SLICE, 4, 1024, 0);
+		List<Callable<Void>> tasks = new ArrayList<>();
+		for(int thread = 0; thread < 4; thread++) {
+			tasks.add(() -> {
+				for(int round = 1; round <= 20; round++) {
+					for(long item = round; item <= 20; item++) {
+						topK.add(item, 0);
+					}
+				}
+				return null;
+			});
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			for(Future<Void> future : executor.invokeAll(tasks)) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		List<Entry<Long, Long>> top = topK.top(10, 0);
+		
+		assertThat(top).extracting(Entry::getKey).containsExactly(20l, 19l, 18l);
+		assertThat(top).extracting(Entry::getValue).containsExactly(80l, 76l, 72l);
+	}
+	
+	private void add(SlidingWindowTopK topK, long item, int times, long now) {
+		for(int i = 0; i < times; i++) {
+			topK.add(item, now);
+		}
+	}
+	
+}
@@ -0,0 +1,124 @@
+package com.cursodsousa.libraryapi.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.cursodsousa.libraryapi.util.SuggestionIndex.Document;
+import com.cursodsousa.libraryapi.util.SuggestionIndex.Query;
+
+class SuggestionIndexTest {
+
+	@Test
+	@DisplayName("Deve sugerir por prefixo de título ou autor, sem acentos, do mais para o menos popular")
+	void suggestByPrefixTest() {
+		SuggestionIndex index = new SuggestionIndex.Builder()
+				.add(1l, "O Senhor dos Anéis", "J. R. R. Tolkien", "9788533613379", 5)
+				.add(2l, "O Hobbit", "J. R. R. Tolkien", "9788595084742", 20)
+				.add(3l, "Senhora", "José de Alencar", "9788508133031", 1)
+				.build(3, 10);
+		
+		assertThat(suggest(index, "sen")).containsExactly(1l, 3l);
+		assertThat(suggest(index, "senhor an")).containsExactly(1l);
+		assertThat(suggest(index, "TOLK")).containsExactly(2l, 1l);
+		assertThat(suggest(index, "jose")).containsExactly(3l);
+		assertThat(suggest(index, "alencar senhor")).containsExactly(3l);
+		assertThat(suggest(index, "tolkien x")).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve sugerir por prefixo de ISBN, com ou sem hífens")
+	void suggestByIsbnPrefixTest() {
+		SuggestionIndex index = new SuggestionIndex.Builder()
+				.add(1l, "O Senhor dos Anéis", "Tolkien", "978-85-336-1337-9", 5)
+				.add(2l, "O Hobbit", "Tolkien", "9788595084742", 20)
+				.add(3l, "Senhora", "Alencar", "9788508133031", 1)
+				.build(3, 10);
+		
+		assertThat(suggest(index, "978-85")).containsExactly(2l, 1l, 3l);
+		assertThat(suggest(index, "97885336")).containsExactly(1l);
+		assertThat(suggest(index, "9788595084742")).containsExactly(2l);
+		assertThat(suggest(index, "123")).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve ranquear todo o intervalo de um prefixo de ISBN amplo, com ou sem cache")
+	void rankWholeIsbnRangeTest() {
+		SuggestionIndex.Builder builder = new SuggestionIndex.Builder();
+		LongStream.rangeClosed(1, 1500).forEach(id -> builder.add(id, "Livro " + id, "Autor", String.format("978%010d", id), id));
+		SuggestionIndex cached = builder.build(3, 5);
+		SuggestionIndex uncached = builder.build(0, 0);
+		
+		assertThat(cached.suggest(Query.parse("978"), 3, id -> false)).containsExactly(1500l, 1499l, 1498l);
+		assertThat(uncached.suggest(Query.parse("978"), 3, id -> false)).containsExactly(1500l, 1499l, 1498l);
+		assertThat(cached.suggest(Query.parse("978-"), 10, id -> id % 2 == 0))
+			.isEqualTo(uncached.suggest(Query.parse("978-"), 10, id -> id % 2 == 0))
+			.containsExactly(1499l, 1497l, 1495l, 1493l, 1491l, 1489l, 1487l, 1485l, 1483l, 1481l);
+	}
+	
+	@Test
+	@DisplayName("Deve respeitar o limite e ignorar os livros desatualizados no índice")
+	void limitAndSkipTest() {
+		SuggestionIndex index = new SuggestionIndex.Builder()
+				.add(1l, "Aventura", "Fulano", "001", 1)
+				.add(2l, "Aventuras no mar", "Fulano", "002", 2)
+				.add(3l, "Aventureiro", "Fulano", "003", 3)
+				.build(3, 10);
+		
+		assertThat(index.suggest(Query.parse("avent"), 2, id -> false)).containsExactly(3l, 2l);
+		assertThat(index.suggest(Query.parse("avent"), 10, id -> id == 3l)).containsExactly(2l, 1l);
+		assertThat(index.suggest(Query.parse("  "), 10, id -> false)).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve dar o mesmo resultado pelo cache de prefixos curtos e pela intercalação das listas")
+	void cachedPrefixesMatchMergeTest() {
+		Random random = new Random(7);
+		String[] words = {"casa", "casamento", "caso", "castelo", "cavalo", "caminho", "cama", "carta", "cinema", "cidade"};
+		SuggestionIndex.Builder builder = new SuggestionIndex.Builder();
+		LongStream.rangeClosed(1, 500).forEach(id -> builder.add(id, words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)],
+				"Autor " + id, String.valueOf(id), random.nextInt(100)));
+		SuggestionIndex cached = builder.build(3, 5);
+		SuggestionIndex merged = builder.build(0, 0);
+		
+		for(String prefix : new String[] {"c", "ca", "cas", "ci"}) {
+			assertThat(suggest(cached, prefix)).as(prefix).isEqualTo(suggest(merged, prefix)).hasSize(10);
+			assertThat(cached.suggest(Query.parse(prefix), 10, id -> id % 3 != 0)).as(prefix)
+				.isEqualTo(merged.suggest(Query.parse(prefix), 10, id -> id % 3 != 0)).hasSize(10);
+		}
+		assertThat(cached.estimatedBytes()).isGreaterThan(merged.estimatedBytes());
+	}
+	
+	@Test
+	@DisplayName("Deve comparar livros fora do índice com a mesma normalização da consulta")
+	void documentMatchesTest() {
+		Document document = new Document(1l, "Memórias Póstumas de Brás Cubas", "Machado de Assis", "978-85-7232-144-9");
+		
+		assertThat(document.matches(Query.parse("memorias bras"))).isTrue();
+		assertThat(document.matches(Query.parse("machado pos"))).isTrue();
+		assertThat(document.matches(Query.parse("97885"))).isTrue();
+		assertThat(document.matches(Query.parse("dom casmurro"))).isFalse();
+	}
+	
+	@Test
+	@DisplayName("Deve achar livros fora do índice por uma chave da consulta que seja prefixo de uma chave do livro")
+	void documentKeysTest() {
+		Document document = new Document(1l, "Memórias Póstumas de Brás Cubas", "Machado de Assis", "978-85-7232-144-9");
+		
+		assertThat(Query.parse("bras memori").keys()).containsExactly("memori");
+		assertThat(Query.parse("978-85").keys()).containsExactly("978", "#97885");
+		assertThat(document.keys()).contains("memorias", "assis", "#9788572321449");
+		assertThat(Query.parse("  ").keys()).isEmpty();
+	}
+	
+	private static List<Long> suggest(SuggestionIndex index, String query) {
+		return index.suggest(Query.parse(query), 10, id -> false).stream().collect(Collectors.toList());
+	}
+	
+}